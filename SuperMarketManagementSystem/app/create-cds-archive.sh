@@ -0,0 +1,14 @@
+#!/bin/sh
+# Builds the till jar and records an AppCDS archive of the classes a till loads up to showing its items,
+# so later starts map them from the archive instead of loading and verifying them one by one.
+# Rerun after every build: the JVM ignores an archive made for a different jar.
+#
+# Usage (from a till's data directory, on a machine with a display): path/to/app/create-cds-archive.sh
+# The training run opens a seller panel by itself and closes it once the items are shown.
+set -e
+
+app=$(cd "$(dirname "$0")" && pwd)
+(cd "$app/.." && mvn -B -q package -DskipTests)
+java -XX:ArchiveClassesAtExit="$app/target/supermarket-app.jsa" -Dsupermarket.cdsTraining=true \
+    -jar "$app/target/supermarket-app-1.0-SNAPSHOT.jar"
+echo "Archive written to $app/target/supermarket-app.jsa"
@@ -0,0 +1,11 @@
+#!/bin/sh
+# Starts the till with the AppCDS archive made by create-cds-archive.sh, if there is one.
+# Further JVM options are passed on, e.g. run-till.sh -Dsupermarket.tillId=3
+#
+# Usage (from the till's data directory): path/to/app/run-till.sh [JVM options]
+app=$(cd "$(dirname "$0")" && pwd)
+archive="$app/target/supermarket-app.jsa"
+if [ -f "$archive" ]; then
+    set -- -XX:SharedArchiveFile="$archive" -Xshare:auto "$@"
+fi
+exec java "$@" -jar "$app/target/supermarket-app-1.0-SNAPSHOT.jar"
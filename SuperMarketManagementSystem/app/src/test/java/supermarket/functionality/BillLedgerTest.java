@@ -0,0 +1,181 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BillLedgerTest {
+    private static final Item APPLE = new Item("101", "Apple", 12_50);
+    private static final Item PEAR = new Item("102", "Pear", 5_00);
+
+    @TempDir
+    File directory;
+
+    private final IdGenerator ids = new IdGenerator(1);
+
+    @Test
+    void billsReadBackAsWritten() throws IOException {
+        File file = new File(directory, "bills.dat");
+        Bill first = bill(new BillItem(APPLE, 2), new BillItem(PEAR, 1));
+        Bill second = bill(new BillItem(PEAR, 3));
+        try (BillLedger ledger = new BillLedger(file)) {
+            ledger.append(first);
+            ledger.append(second);
+        }
+
+        BillLedger ledger = new BillLedger(file);
+        List<Bill> bills = readAll(ledger);
+        assertEquals(2, bills.size());
+        assertEquals(first.getBillId(), bills.get(0).getBillId());
+        assertEquals("sam", bills.get(0).getSellerUsername());
+        assertEquals(first.getTotal(), bills.get(0).getTotal());
+        assertEquals(2, bills.get(0).getBillItems().size());
+        assertEquals("Pear", bills.get(1).getBillItems().get(0).getItem().getName());
+        assertEquals(3, ledger.getRecordCount());
+        assertEquals(BillLedger.HEADER_SIZE + 3L * BillLedger.RECORD_SIZE, file.length());
+    }
+
+    @Test
+    void findBillUsesTheIdsTime() throws IOException {
+        BillLedger ledger = new BillLedger(new File(directory, "bills.dat"));
+        Bill wanted = bill(new BillItem(APPLE, 1));
+        ledger.appendAll(List.of(bill(new BillItem(PEAR, 1)), wanted, bill(new BillItem(PEAR, 2))));
+
+        assertEquals(wanted.getTotal(), assertFound(ledger.findBill(wanted.getBillId())).getTotal());
+        assertNull(ledger.findBill(ids.nextId()));
+        ledger.close();
+    }
+
+    @Test
+    void aFailedAppendLeavesNothingBehind() throws IOException {
+        File file = new File(directory, "bills.dat");
+        boolean[] fail = {false};
+        BillLedger ledger = new BillLedger(file) {
+            @Override
+            void writeAndForce(FileChannel channel, ByteBuffer buffer) throws IOException {
+                if (fail[0]) { // One whole record and part of the next reach the file, then the disk fills up
+                    buffer.limit(buffer.position() + BillLedger.RECORD_SIZE + 10);
+                    channel.write(buffer);
+                    throw new IOException("No space left on device");
+                }
+                super.writeAndForce(channel, buffer);
+            }
+        };
+        Bill saved = bill(new BillItem(APPLE, 1));
+        Bill retried = bill(new BillItem(APPLE, 1), new BillItem(PEAR, 1));
+        ledger.append(saved);
+        long length = file.length();
+
+        fail[0] = true;
+        assertThrows(IOException.class, () -> ledger.append(retried));
+        assertEquals(length, file.length());
+
+        fail[0] = false;
+        ledger.append(retried);
+        assertEquals(List.of(saved.getBillId(), retried.getBillId()), billIds(ledger));
+        ledger.close();
+    }
+
+    @Test
+    void aTornRecordIsCutBeforeTheNextAppend() throws IOException {
+        File file = new File(directory, "bills.dat");
+        Bill first = bill(new BillItem(APPLE, 1));
+        try (BillLedger ledger = new BillLedger(file)) {
+            ledger.append(first);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) { // A crash part-way through a record
+            out.seek(out.length());
+            out.write(new byte[BillLedger.RECORD_SIZE / 2]);
+        }
+
+        Bill second = bill(new BillItem(PEAR, 1));
+        try (BillLedger ledger = new BillLedger(file)) {
+            ledger.append(second);
+            assertEquals(2, ledger.getRecordCount());
+            assertEquals(List.of(first.getBillId(), second.getBillId()), billIds(ledger));
+        }
+    }
+
+    @Test
+    void anIncompleteBillIsSkipped() throws IOException {
+        File file = new File(directory, "bills.dat");
+        Bill complete = bill(new BillItem(APPLE, 1));
+        try (BillLedger ledger = new BillLedger(file)) {
+            ledger.append(complete);
+            ledger.append(bill(new BillItem(APPLE, 1), new BillItem(PEAR, 1), new BillItem(PEAR, 2)));
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) { // Only two of its three lines made it
+            out.setLength(out.length() - BillLedger.RECORD_SIZE);
+        }
+
+        BillLedger ledger = new BillLedger(file);
+        assertEquals(List.of(complete.getBillId()), billIds(ledger));
+        List<Long> lineBills = new ArrayList<>();
+        long stoppedAt = ledger.scanLines(0, ledger.getRecordCount(), line -> lineBills.add(line.getBillId()));
+        assertEquals(List.of(complete.getBillId()), lineBills);
+        assertEquals(1, stoppedAt); // Where the incomplete bill starts, to resume from
+    }
+
+    @Test
+    void adjacentScanRangesSplitNoBill() throws IOException {
+        BillLedger ledger = new BillLedger(new File(directory, "bills.dat"));
+        ledger.appendAll(List.of(bill(new BillItem(APPLE, 1), new BillItem(PEAR, 1)),
+                bill(new BillItem(APPLE, 2), new BillItem(PEAR, 2), new BillItem(PEAR, 3)),
+                bill(new BillItem(APPLE, 3))));
+
+        long total = ledger.getRecordCount();
+        List<String> lines = new ArrayList<>();
+        for (long start = 0; start < total; start += 2) { // Range boundaries fall inside bills
+            ledger.scanLines(start, Math.min(start + 2, total), line -> lines.add(line.getBillId() + ":" + line.getLineNumber()));
+        }
+        assertEquals(6, lines.size());
+        assertEquals(6, lines.stream().distinct().count());
+        ledger.close();
+    }
+
+    @Test
+    void validateRefusesWhatAFieldCannotHold() {
+        String longSeller = "s".repeat(BillLedger.MAX_SELLER_BYTES + 1);
+        String longId = "9".repeat(BillLedger.MAX_ITEM_ID_BYTES + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> BillLedger.validate(new Bill(1, "sam", 0, List.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> BillLedger.validate(new Bill(1, longSeller, 0, List.of(new BillItem(APPLE, 1)))));
+        assertThrows(IllegalArgumentException.class,
+                () -> BillLedger.validate(new Bill(1, "sam", 0, List.of(new BillItem(new Item(longId, "Long", 1), 1)))));
+        BillLedger.validate(new Bill(1, "s".repeat(BillLedger.MAX_SELLER_BYTES), 0, List.of(new BillItem(APPLE, 1))));
+    }
+
+    private Bill bill(BillItem... lines) {
+        return new Bill(ids.nextId(), "sam", System.currentTimeMillis(), List.of(lines));
+    }
+
+    private static List<Bill> readAll(BillLedger ledger) throws IOException {
+        List<Bill> bills = new ArrayList<>();
+        ledger.forEachBill(bills::add);
+        return bills;
+    }
+
+    private static List<Long> billIds(BillLedger ledger) throws IOException {
+        List<Long> billIds = new ArrayList<>();
+        ledger.forEachBill(bill -> billIds.add(bill.getBillId()));
+        return billIds;
+    }
+
+    private static Bill assertFound(Bill bill) {
+        assertNotNull(bill);
+        return bill;
+    }
+}
@@ -0,0 +1,40 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+    @Test
+    void idsIncreaseAndCarryTheNode() {
+        IdGenerator ids = new IdGenerator(37);
+        long before = System.currentTimeMillis();
+        long previous = -1;
+        for (int i = 0; i < 20_000; i++) { // More than one millisecond's sequence
+            long id = ids.nextId();
+            assertTrue(id > previous);
+            assertEquals(37, IdGenerator.nodeId(id));
+            previous = id;
+        }
+        assertTrue(IdGenerator.timestampMillis(previous) >= before);
+    }
+
+    @Test
+    void firstIdAtOrdersWithCreationTime() {
+        IdGenerator ids = new IdGenerator(IdGenerator.MAX_NODE_ID);
+        long id = ids.nextId();
+        long createdAt = IdGenerator.timestampMillis(id);
+
+        assertTrue(IdGenerator.firstIdAt(createdAt) <= id);
+        assertTrue(IdGenerator.firstIdAt(createdAt + 1) > id);
+        assertEquals(0, IdGenerator.firstIdAt(0));
+    }
+
+    @Test
+    void nodeIdMustFitItsBits() {
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(IdGenerator.MAX_NODE_ID + 1));
+    }
+}
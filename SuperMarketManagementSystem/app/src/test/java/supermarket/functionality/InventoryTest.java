@@ -0,0 +1,94 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InventoryTest {
+    private static final Item APPLE = new Item("101", "Apple", 100);
+    private static final Item PEAR = new Item("102", "Pear", 100);
+
+    @TempDir
+    File directory;
+
+    private final IdGenerator ids = new IdGenerator(1);
+    private BillLedger ledger;
+    private Inventory inventory;
+    private Inventory otherTill; // Another process on the same files
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ledger = new BillLedger(new File(directory, "bills.dat"));
+        inventory = new Inventory(new File(directory, "stock.txt"), ledger);
+        otherTill = new Inventory(new File(directory, "stock.txt"), ledger);
+        inventory.ensureLoaded();
+        otherTill.ensureLoaded();
+        inventory.adjustStock(APPLE.getId(), 10);
+    }
+
+    @Test
+    void aFailedReservationTakesNothing() {
+        inventory.reserve(bill(new BillItem(APPLE, 4)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> inventory.reserve(bill(new BillItem(APPLE, 2), new BillItem(APPLE, 5))));
+        assertEquals(6, inventory.getOnHand(APPLE.getId()));
+    }
+
+    @Test
+    void untrackedItemsAreNotLimited() {
+        inventory.reserve(bill(new BillItem(PEAR, 1000)));
+
+        assertEquals(Inventory.NOT_TRACKED, inventory.getOnHand(PEAR.getId()));
+    }
+
+    @Test
+    void aReservationSurvivesAReloadExactlyOnce() throws IOException {
+        Bill bill = bill(new BillItem(APPLE, 3));
+        inventory.reserve(bill);
+
+        otherTill.followChanges();
+        otherTill.compact(); // Rewrites stock.txt, so the next follow reloads
+        inventory.followChanges();
+        assertEquals(7, inventory.getOnHand(APPLE.getId()));
+
+        inventory.release(bill);
+        assertEquals(10, inventory.getOnHand(APPLE.getId()));
+    }
+
+    @Test
+    void aCommittedSaleIsCountedOnce() throws IOException {
+        Bill bill = bill(new BillItem(APPLE, 3));
+        inventory.reserve(bill);
+        ledger.append(bill);
+        inventory.billsCommitted(List.of(bill));
+        assertEquals(7, inventory.getOnHand(APPLE.getId()));
+
+        otherTill.followChanges();
+        assertEquals(7, otherTill.getOnHand(APPLE.getId()));
+        otherTill.compact();
+        inventory.followChanges();
+        assertEquals(7, inventory.getOnHand(APPLE.getId()));
+    }
+
+    @Test
+    void restocksAreFollowedAcrossTills() throws IOException {
+        otherTill.followChanges();
+        otherTill.adjustStock(APPLE.getId(), 5);
+
+        inventory.followChanges();
+        assertEquals(15, inventory.getOnHand(APPLE.getId()));
+        assertThrows(IllegalArgumentException.class, () -> inventory.adjustStock(APPLE.getId(), -16));
+    }
+
+    private Bill bill(BillItem... lines) {
+        return new Bill(ids.nextId(), "sam", System.currentTimeMillis(), List.of(lines));
+    }
+}
@@ -0,0 +1,107 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCatalogTest {
+    @TempDir
+    File directory;
+
+    private ItemCatalog catalog;
+    private ItemCatalog otherTill; // Another process on the same files
+    private final List<String> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalog = new ItemCatalog(new File(directory, "items.txt"));
+        otherTill = new ItemCatalog(new File(directory, "items.txt"));
+        catalog.ensureLoaded();
+        otherTill.ensureLoaded();
+        catalog.addCatalogListener(new CatalogListener() {
+            @Override
+            public void itemAdded(Item item) {
+                events.add("added " + item.getId());
+            }
+
+            @Override
+            public void itemRemoved(Item item) {
+                events.add("removed " + item.getId());
+            }
+
+            @Override
+            public void itemUpdated(Item oldItem, Item newItem) {
+                events.add("updated " + oldItem.getPricePaisa() + "->" + newItem.getPricePaisa());
+            }
+
+            @Override
+            public void catalogReloaded() {
+                events.add("reloaded");
+            }
+        });
+    }
+
+    @Test
+    void ownChangesAreNotReplayedWhenFollowingTheJournal() throws IOException {
+        catalog.addItem(new Item("1", "Apple", 100));
+        catalog.updatePrice("1", 200);
+        catalog.updatePrice("1", 300);
+        catalog.addItem(new Item("2", "Pear", 100));
+        catalog.removeItem("2");
+        events.clear();
+
+        catalog.refreshFromDisk();
+
+        assertEquals(List.of(), events);
+        assertEquals(300, catalog.findById("1").getPricePaisa());
+        assertNull(catalog.findById("2"));
+    }
+
+    @Test
+    void otherTillsChangesAreFollowed() throws IOException {
+        catalog.addItem(new Item("1", "Apple", 100));
+        otherTill.refreshFromDisk();
+        otherTill.updatePrice("1", 150);
+        otherTill.addItem(new Item("2", "Pear", 100));
+        events.clear();
+
+        catalog.refreshFromDisk();
+
+        assertEquals(List.of("updated 100->150", "added 2"), events);
+    }
+
+    @Test
+    void changesSeeTheOtherTillsItemsFirst() throws IOException {
+        otherTill.addItem(new Item("1", "Apple", 100));
+
+        assertFalse(catalog.addItem(new Item("2", "apple", 100)));
+        assertEquals(100, catalog.findById("1").getPricePaisa());
+    }
+
+    @Test
+    void commaNamesFollowTheSnapshotFormat() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> catalog.addItem(new Item("1", "Nuts, salted", 100)));
+
+        otherTill.convertSnapshot(true);
+        assertTrue(catalog.addItem(new Item("1", "Nuts, salted", 100)));
+        assertThrows(IllegalArgumentException.class, () -> otherTill.convertSnapshot(false));
+
+        otherTill.removeItem("1");
+        otherTill.convertSnapshot(false);
+        assertTrue(catalog.isBinarySnapshot()); // Not refreshed yet, but the next add checks the file
+        assertThrows(IllegalArgumentException.class, () -> catalog.addItem(new Item("2", "Tea, green", 100)));
+        assertEquals(1, catalog.addItems(List.of(new Item("3", "Milk, 1L", 100), new Item("4", "Bread", 100))).size());
+        assertFalse(catalog.isBinarySnapshot());
+    }
+}
@@ -0,0 +1,34 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCodeTest {
+    @Test
+    void generatedIdsAreTheirOwnCode() {
+        assertEquals(0, ItemCode.parse("0"));
+        assertEquals(123456789012345L, ItemCode.parse("123456789012345"));
+        assertEquals(Long.MAX_VALUE, ItemCode.parse(Long.toString(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void legacyIdsSetTheSignBit() {
+        long code = ItemCode.parse("1700000000000-42");
+
+        assertTrue(code < 0);
+        assertEquals(Long.MIN_VALUE | (1700000000000L * 1000 + 42), code);
+        assertNotEquals(ItemCode.parse("1700000000000-420"), code);
+    }
+
+    @Test
+    void otherFormsHaveNoCode() {
+        String[] noCode = {"", "abc", "12a", "007", "-1", "1-", "1-2-3", "1-0042",
+                "1234567890123456-1", "9223372036854775808", "12 34"};
+        for (String id : noCode) {
+            assertEquals(ItemCode.NO_CODE, ItemCode.parse(id), id);
+        }
+    }
+}
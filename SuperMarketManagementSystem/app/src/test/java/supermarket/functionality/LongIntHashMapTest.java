@@ -0,0 +1,78 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+    private static final int MISSING = -7;
+
+    @Test
+    void putGetAndReplace() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(42, 1);
+        map.put(42, 2);
+        map.put(0, 3);
+
+        assertEquals(2, map.get(42, MISSING));
+        assertEquals(3, map.get(0, MISSING));
+        assertEquals(MISSING, map.get(43, MISSING));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 7919L, i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 7919L, MISSING));
+        }
+    }
+
+    @Test
+    void removeShiftsLaterEntriesOfTheProbeRunBack() {
+        // Full enough that removals land in the middle of long probe runs, wrapping around the table end
+        LongIntHashMap map = new LongIntHashMap(1000);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals(i, map.remove(i, MISSING));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 == 0 ? MISSING : i, map.get(i, MISSING), "key " + i);
+        }
+        assertEquals(666, map.size());
+        assertEquals(MISSING, map.remove(3, MISSING));
+        assertEquals(666, map.size());
+    }
+
+    @Test
+    void noKeyIsNeverStoredOrFound() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1, 10);
+        map.put(2, 20);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(LongIntHashMap.NO_KEY, 1));
+        assertEquals(MISSING, map.get(LongIntHashMap.NO_KEY, MISSING));
+        assertEquals(MISSING, map.remove(LongIntHashMap.NO_KEY, MISSING));
+        assertEquals(2, map.size());
+        assertEquals(10, map.get(1, MISSING));
+        assertEquals(20, map.get(2, MISSING));
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1, 1);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(MISSING, map.get(1, MISSING));
+    }
+}
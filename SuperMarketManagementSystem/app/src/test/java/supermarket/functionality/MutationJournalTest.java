@@ -0,0 +1,145 @@
+package supermarket.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MutationJournalTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        File file = new File(directory, "test.journal");
+        try (MutationJournal journal = new MutationJournal(file)) {
+            journal.append("A,1");
+            journal.appendAll(List.of("B,2", "C,ünïcode"));
+        }
+
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(List.of("A,1", "B,2", "C,ünïcode"), replay(journal));
+            assertEquals(3, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    void replayCutsATornTail() throws IOException {
+        File file = new File(directory, "test.journal");
+        long intact;
+        try (MutationJournal journal = new MutationJournal(file)) {
+            intact = journal.appendAll(List.of("A,1", "B,2"));
+        }
+        appendBytes(file, "0badc0de C,hal"); // A crash mid-write: no newline
+
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(List.of("A,1", "B,2"), replay(journal));
+            assertEquals(intact, file.length());
+            journal.append("D,4");
+            assertEquals(List.of("A,1", "B,2", "D,4"), replay(journal));
+        }
+    }
+
+    @Test
+    void replayStopsAtACorruptRecord() throws IOException {
+        File file = new File(directory, "test.journal");
+        try (MutationJournal journal = new MutationJournal(file)) {
+            journal.append("A,1");
+        }
+        appendBytes(file, "00000000 B,2\n"); // Wrong CRC
+
+        try (MutationJournal journal = new MutationJournal(file)) {
+            assertEquals(List.of("A,1"), replay(journal));
+        }
+    }
+
+    @Test
+    void appendCutsATornTailFirst() throws IOException {
+        File file = new File(directory, "test.journal");
+        try (MutationJournal journal = new MutationJournal(file)) {
+            journal.append("A,1");
+        }
+        appendBytes(file, "12345678 torn");
+
+        try (MutationJournal journal = new MutationJournal(file)) {
+            long end = journal.append("B,2");
+            assertEquals(file.length(), end);
+            assertEquals(List.of("A,1", "B,2"), replay(journal));
+        }
+    }
+
+    @Test
+    void readFromFollowsAppendsByOffset() throws IOException {
+        File file = new File(directory, "test.journal");
+        try (MutationJournal journal = new MutationJournal(file)) {
+            long offset = journal.append("A,1");
+            journal.appendAll(List.of("B,2", "C,3"));
+
+            List<String> read = new ArrayList<>();
+            long next = journal.readFrom(offset, read::add);
+            assertEquals(List.of("B,2", "C,3"), read);
+            assertEquals(file.length(), next);
+
+            read.clear();
+            assertEquals(next, journal.readFrom(next, read::add));
+            assertEquals(List.of(), read);
+        }
+    }
+
+    @Test
+    void resetRequiresTheLock() throws IOException {
+        File file = new File(directory, "test.journal");
+        try (MutationJournal journal = new MutationJournal(file)) {
+            journal.append("A,1");
+            assertThrows(IllegalStateException.class, journal::reset);
+
+            journal.lock();
+            try {
+                journal.reset();
+            } finally {
+                journal.unlock();
+            }
+            assertEquals(0, file.length());
+            assertEquals(0, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    void recordsCannotContainLineBreaks() throws IOException {
+        try (MutationJournal journal = new MutationJournal(new File(directory, "test.journal"))) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append("A\nB"));
+        }
+    }
+
+    @Test
+    void writeSnapshotReplacesTheTarget() throws IOException {
+        File target = new File(directory, "items.txt");
+        Files.writeString(target.toPath(), "old\n");
+
+        MutationJournal.writeSnapshot(target, List.of("a", "b"));
+
+        assertEquals("a\nb\n", Files.readString(target.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> replay(MutationJournal journal) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.replay(records::add);
+        return records;
+    }
+
+    private static void appendBytes(File file, String text) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(out.length());
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
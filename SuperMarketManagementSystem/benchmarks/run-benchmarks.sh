@@ -0,0 +1,15 @@
+#!/bin/sh
+# Builds the project and runs the JMH benchmarks, writing the results to benchmarks/results/<label>.json.
+# Keep the JSON of each release: compare two of them with
+#   java -cp benchmarks/target/benchmarks.jar supermarket.benchmarks.CompareResults results/a.json results/b.json
+#
+# Usage (from SuperMarketManagementSystem): benchmarks/run-benchmarks.sh [label] [JMH options, e.g. ParsingBenchmark -p rows=10000]
+set -e
+
+label=${1:-$(git describe --tags --always --dirty 2>/dev/null || date +%Y%m%d-%H%M%S)}
+[ $# -gt 0 ] && shift
+
+mvn -B -q package -DskipTests
+mkdir -p benchmarks/results
+java -jar benchmarks/target/benchmarks.jar -rf json -rff "benchmarks/results/$label.json" "$@"
+echo "Results written to benchmarks/results/$label.json"
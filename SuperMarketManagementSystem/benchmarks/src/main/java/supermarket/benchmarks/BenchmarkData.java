@@ -0,0 +1,87 @@
+package supermarket.benchmarks;
+
+import supermarket.functionality.BillItem;
+import supermarket.functionality.IdGenerator;
+import supermarket.functionality.Item;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data shaped like the real items.txt, users.txt and bills.
+ */
+final class BenchmarkData {
+    // A stored PasswordHasher credential. Computing one per row would make the data setup take hours.
+    static final String SAMPLE_CREDENTIAL = "pbkdf2-sha256$310000$q83vEjRWeJCrze8SNFZ4kA$3q2+7wAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    private static final String[] WORDS = {"Basmati", "Rice", "Brown", "Bread", "Milk", "Pack", "Green", "Tea",
+            "Cooking", "Oil", "Sugar", "Salt", "Chicken", "Masala", "Family", "Size", "Soap", "Shampoo"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Item> items(int count) {
+        Random random = new Random(42);
+        IdGenerator ids = new IdGenerator(1);
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            items.add(new Item(Long.toString(ids.nextId()), name, 500 + random.nextInt(500_000)));
+        }
+        return items;
+    }
+
+    static List<BillItem> billItems(int count) {
+        Random random = new Random(7);
+        List<BillItem> billItems = new ArrayList<>(count);
+        for (Item item : items(count)) {
+            billItems.add(new BillItem(item, 1 + random.nextInt(10)));
+        }
+        return billItems;
+    }
+
+    static void writeItemsFile(File file, int count) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (Item item : items(count)) {
+                writer.write(item.toCSVString());
+                writer.newLine();
+            }
+        }
+    }
+
+    static void writeUsersFile(File file, int count) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("admin," + SAMPLE_CREDENTIAL + ",Admin");
+            writer.newLine();
+            for (int i = 1; i < count; i++) {
+                writer.write("seller" + i + "," + SAMPLE_CREDENTIAL + ",Seller");
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty directory for one benchmark's data files.
+     */
+    static File newDataDirectory(String prefix) throws IOException {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,47 @@
+package supermarket.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import supermarket.functionality.Bill;
+import supermarket.functionality.BillItem;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line subtotals, bill totals and receipt rendering, for bills of typical and large size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BillingBenchmark {
+    @Param({"10", "100"})
+    public int lines;
+
+    private BillItem billItem;
+    private Bill bill;
+
+    @Setup
+    public void setUp() {
+        List<BillItem> billItems = BenchmarkData.billItems(lines);
+        billItem = billItems.get(0);
+        bill = new Bill(1L, "seller1", 1_717_000_000_000L, billItems);
+    }
+
+    @Benchmark
+    public long subtotal() {
+        return billItem.getSubtotal();
+    }
+
+    @Benchmark
+    public long billTotal() {
+        return bill.getTotal();
+    }
+
+    @Benchmark
+    public String receiptText() {
+        return bill.toReceiptText();
+    }
+}
@@ -0,0 +1,95 @@
+package supermarket.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files (for example from two releases) benchmark by benchmark.
+ * A benchmark counts as a regression when it got slower by more than the threshold and by more
+ * than the combined error margins, so run-to-run noise is not reported.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar supermarket.benchmarks.CompareResults <baseline.json> <candidate.json> [threshold %]}
+ * Exits with status 1 if there is any regression.
+ */
+public class CompareResults {
+    private static final double DEFAULT_THRESHOLD_PERCENT = 5.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json> [threshold %]");
+            System.exit(2);
+        }
+        double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, JsonObject> baseline = readResults(args[0]);
+        Map<String, JsonObject> candidate = readResults(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, JsonObject> entry : candidate.entrySet()) {
+            JsonObject before = baseline.get(entry.getKey());
+            JsonObject after = entry.getValue().getAsJsonObject("primaryMetric");
+            String unit = after.get("scoreUnit").getAsString();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s  (new) %s%n", entry.getKey(), "-", after.get("score").getAsDouble(), "", unit);
+                continue;
+            }
+            before = before.getAsJsonObject("primaryMetric");
+            double oldScore = before.get("score").getAsDouble();
+            double newScore = after.get("score").getAsDouble();
+            double changePercent = (newScore - oldScore) / oldScore * 100;
+            // Time per operation: higher is worse. Throughput: lower is worse.
+            boolean higherIsWorse = !unit.startsWith("ops/");
+            double worsePercent = higherIsWorse ? changePercent : -changePercent;
+            boolean beyondNoise = Math.abs(newScore - oldScore) > error(before) + error(after);
+            String verdict = "";
+            if (worsePercent > thresholdPercent && beyondNoise) {
+                verdict = "  REGRESSION";
+                regressions++;
+            } else if (worsePercent < -thresholdPercent && beyondNoise) {
+                verdict = "  improved";
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), oldScore, newScore, changePercent, unit, verdict);
+        }
+        System.out.println(regressions + " regression(s) beyond " + thresholdPercent + "%");
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static double error(JsonObject metric) {
+        JsonElement error = metric.get("scoreError");
+        // JMH writes "NaN" when there were too few iterations to estimate the error
+        return error == null || !error.isJsonPrimitive() || !error.getAsJsonPrimitive().isNumber() ? 0 : error.getAsDouble();
+    }
+
+    /**
+     * @return The results keyed by benchmark name plus parameters, e.g. "StorageBenchmark.loadItems rows=10000".
+     */
+    private static Map<String, JsonObject> readResults(String path) throws IOException {
+        Map<String, JsonObject> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : array) {
+                JsonObject result = element.getAsJsonObject();
+                String name = result.get("benchmark").getAsString().replace("supermarket.benchmarks.", "");
+                StringBuilder key = new StringBuilder(name);
+                JsonObject params = result.getAsJsonObject("params");
+                if (params != null) {
+                    for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+                    }
+                }
+                results.put(key.toString(), result);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,37 @@
+package supermarket.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import supermarket.functionality.Item;
+import supermarket.functionality.User;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of single items.txt and users.txt lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+    private String itemLine;
+    private String userLine;
+
+    @Setup
+    public void setUp() {
+        itemLine = BenchmarkData.items(1).get(0).toCSVString();
+        userLine = "seller1," + BenchmarkData.SAMPLE_CREDENTIAL + ",Seller";
+    }
+
+    @Benchmark
+    public Item itemFromCsv() {
+        return Item.fromCSVString(itemLine);
+    }
+
+    @Benchmark
+    public User userFromCsv() {
+        return User.fromCSVString(userLine);
+    }
+}
@@ -0,0 +1,90 @@
+package supermarket.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import supermarket.functionality.BinarySnapshot;
+import supermarket.functionality.Item;
+import supermarket.functionality.MappedItemLoader;
+import supermarket.functionality.User;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the same items and users from a text snapshot and from a {@link BinarySnapshot}, without indexing.
+ * The text item read uses the single-threaded mapped loader, so both sides use one core.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private File directory;
+    private File itemsText;
+    private File itemsBinary;
+    private File usersText;
+    private File usersBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkData.newDataDirectory("snapshot-benchmark");
+        itemsText = new File(directory, "items.txt");
+        itemsBinary = new File(directory, "items.bin");
+        usersText = new File(directory, "users.txt");
+        usersBinary = new File(directory, "users.bin");
+        BenchmarkData.writeItemsFile(itemsText, rows);
+        BenchmarkData.writeUsersFile(usersText, rows);
+        BinarySnapshot.writeItems(itemsBinary, MappedItemLoader.load(itemsText, false));
+        BinarySnapshot.writeUsers(usersBinary, readUsersText());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<Item> itemsFromText() throws IOException {
+        return MappedItemLoader.load(itemsText, false);
+    }
+
+    @Benchmark
+    public List<Item> itemsFromBinary() throws IOException {
+        return BinarySnapshot.readItems(itemsBinary);
+    }
+
+    @Benchmark
+    public List<User> usersFromText() throws IOException {
+        return readUsersText();
+    }
+
+    @Benchmark
+    public List<User> usersFromBinary() throws IOException {
+        return BinarySnapshot.readUsers(usersBinary);
+    }
+
+    // As UserRepository reads a text users.txt
+    private List<User> readUsersText() throws IOException {
+        List<User> users = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(usersText.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                User user = User.fromCSVString(line);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+        }
+        return users;
+    }
+}
@@ -0,0 +1,70 @@
+package supermarket.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.UserRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full load (snapshot read plus indexing) and full save (snapshot rewrite) of items.txt and users.txt.
+ * Each invocation is one whole-file operation, so it is timed individually.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private File directory;
+    private ItemCatalog catalog;
+    private UserRepository users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkData.newDataDirectory("storage-benchmark");
+        File itemsFile = new File(directory, "items.txt");
+        File usersFile = new File(directory, "users.txt");
+        BenchmarkData.writeItemsFile(itemsFile, rows);
+        BenchmarkData.writeUsersFile(usersFile, rows);
+        catalog = new ItemCatalog(itemsFile);
+        catalog.ensureLoaded();
+        users = new UserRepository(usersFile);
+        users.ensureLoaded();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int loadItems() throws IOException {
+        catalog.reload();
+        return catalog.size();
+    }
+
+    @Benchmark
+    public File saveItems() throws IOException {
+        catalog.compact();
+        return catalog.getItemsFile();
+    }
+
+    @Benchmark
+    public int loadUsers() throws IOException {
+        users.reload();
+        return users.getAllUsers().size();
+    }
+
+    @Benchmark
+    public File saveUsers() throws IOException {
+        users.compact();
+        return users.getUsersFile();
+    }
+}
@@ -0,0 +1,56 @@
+package supermarket;
+
+import java.io.File;
+import java.io.IOException;
+import supermarket.functionality.DataFileLock;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.UserRepository;
+
+/**
+ * Converts the items.txt and users.txt of a data directory to binary snapshots (or back to text with --text),
+ * folding in their journals. Tills that are running pick the new format up like any other compaction.
+ * Converting to text is refused, leaving both files as they are, while an item name contains a comma.
+ * <p>
+ * Usage: java -cp supermarket-app-1.0-SNAPSHOT.jar supermarket.SnapshotConverter [--text] [data directory]
+ */
+public class SnapshotConverter {
+    public static void main(String[] args) throws IOException {
+        boolean binary = true;
+        File directory = new File(".");
+        for (String arg : args) {
+            if ("--text".equals(arg)) {
+                binary = false;
+            } else {
+                directory = new File(arg);
+            }
+        }
+
+        DataFileLock lock = DataFileLock.tryAcquireShared(directory);
+        if (lock == null) {
+            System.err.println("The data files are in use by a till server. Stop it first.");
+            System.exit(1);
+        }
+        try {
+            ItemCatalog catalog = new ItemCatalog(new File(directory, ItemCatalog.DEFAULT_ITEMS_FILE_PATH));
+            try {
+                catalog.convertSnapshot(binary);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println("Nothing was converted.");
+                System.exit(1);
+            }
+            System.out.println("Wrote " + catalog.size() + " items to " + catalog.getItemsFile().getPath()
+                    + (binary ? " as a binary snapshot." : " as text."));
+
+            File usersFile = new File(directory, UserRepository.DEFAULT_USERS_FILE_PATH);
+            if (usersFile.exists()) {
+                UserRepository users = new UserRepository(usersFile);
+                users.convertSnapshot(binary);
+                System.out.println("Wrote " + users.getAllUsers().size() + " users to " + usersFile.getPath()
+                        + (binary ? " as a binary snapshot." : " as text."));
+            }
+        } finally {
+            lock.close();
+        }
+    }
+}
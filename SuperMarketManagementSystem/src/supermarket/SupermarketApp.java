@@ -1,28 +1,64 @@
 package supermarket; // Stays in the root supermarket package
 
 import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import supermarket.functionality.DataFileLock;
+import supermarket.functionality.IdGenerator;
+import supermarket.functionality.PosEngine;
+import supermarket.functionality.User;
 import supermarket.view.LoginFrame; // Import LoginFrame from the view package
+import supermarket.view.SellerFrame;
 
 /**
  * Main application class to launch the Supermarket Management System.
+ * The login window is shown before any data file is read; users and items are read in the background.
+ * With -Dsupermarket.cdsTraining=true the app opens a seller panel by itself and exits once the items are
+ * shown, so a run with -XX:ArchiveClassesAtExit records the classes a till needs (see app/create-cds-archive.sh).
  * Updated for new package structure.
  */
 public class SupermarketApp {
+    public static final String CDS_TRAINING_PROPERTY = "supermarket.cdsTraining";
+    private static final String NIMBUS_CLASS_NAME = "javax.swing.plaf.nimbus.NimbusLookAndFeel";
+
+    // Held for the life of the process so a till server cannot take over the data files meanwhile
+    private static DataFileLock dataFileLock;
 
     public static void main(String[] args) {
-        // Set a more modern Look and Feel if available (Nimbus is a good choice)
+        // Set a more modern Look and Feel if available (Nimbus is a good choice).
+        // Named directly: listing the installed look and feels loads all of them.
         try {
-            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
-                if ("Nimbus".equals(info.getName())) {
-                    UIManager.setLookAndFeel(info.getClassName());
-                    break;
-                }
-            }
+            UIManager.setLookAndFeel(NIMBUS_CLASS_NAME);
         } catch (UnsupportedLookAndFeelException | ClassNotFoundException | InstantiationException | IllegalAccessException e) {
             // If Nimbus is not available, it will fall back to the default L&F.
             System.err.println("Nimbus L&F not found, using default: " + e.getMessage());
         }
 
+        boolean ownedByServer = false;
+        try {
+            dataFileLock = DataFileLock.tryAcquireShared(new File("."));
+            ownedByServer = dataFileLock == null;
+        } catch (IOException e) {
+            System.err.println("Could not lock the data files: " + e.getMessage()); // Carry on as before locking existed
+        }
+        if (ownedByServer) {
+            JOptionPane.showMessageDialog(null,
+                    "The data files are in use by a till server.\nConnect to the server instead, or stop it first.",
+                    "Data Files In Use", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        // Before anything makes an ID, so tills sharing the data files never make the same bill or item IDs
+        try {
+            int tillId = IdGenerator.claim(new File(".")).getNodeId();
+            System.out.println("Till ID " + tillId);
+        } catch (IOException e) {
+            System.err.println("Could not claim a till ID: " + e.getMessage()); // IdGenerator falls back to the configured one
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Till ID", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
         // Run the GUI on the Event Dispatch Thread (EDT) for thread safety
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -31,5 +67,27 @@ public class SupermarketApp {
                 loginFrame.setVisible(true);
             }
         });
+
+        if (Boolean.getBoolean(CDS_TRAINING_PROPERTY)) {
+            runCdsTraining();
+        }
+    }
+
+    /**
+     * Goes through what a till does after login, then exits so the JVM writes its class archive.
+     * Needs a display, like the till itself.
+     */
+    private static void runCdsTraining() {
+        try {
+            SwingUtilities.invokeAndWait(() ->
+                    new SellerFrame(new User("cds-training", "", PosEngine.SELLER_ROLE)).setVisible(true));
+            PosEngine engine = PosEngine.getInstance();
+            engine.getCatalog().ensureLoaded();
+            engine.getInventory().ensureLoaded();
+            Thread.sleep(2000); // Let the seller panel show the items
+        } catch (Exception e) {
+            System.err.println("CDS training run failed: " + e);
+        }
+        System.exit(0);
     }
 }
@@ -0,0 +1,98 @@
+package supermarket.functionality;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A finalized bill: who sold what, and when.
+ * Bills are stored in the binary {@link BillLedger}; the human-readable receipt is only
+ * rendered on demand by {@link #toReceiptText()}.
+ */
+public class Bill {
+    public static final String BILL_ID_PREFIX = "Bill ID: ";
+
+    private final long billId; // From IdGenerator
+    private final String sellerUsername;
+    private final long epochMillis;
+    private final List<BillItem> billItems;
+
+    public Bill(long billId, String sellerUsername, long epochMillis, List<BillItem> billItems) {
+        this.billId = billId;
+        this.sellerUsername = sellerUsername;
+        this.epochMillis = epochMillis;
+        this.billItems = Collections.unmodifiableList(new ArrayList<>(billItems));
+    }
+
+    public long getBillId() {
+        return billId;
+    }
+
+    public String getSellerUsername() {
+        return sellerUsername;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public List<BillItem> getBillItems() {
+        return billItems;
+    }
+
+    /**
+     * @return The bill total in paisa.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (BillItem billItem : billItems) {
+            total = Math.addExact(total, billItem.getSubtotal());
+        }
+        return total;
+    }
+
+    /**
+     * Renders the printable receipt for this bill.
+     */
+    public String toReceiptText() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String billDate = dateFormat.format(new Date(epochMillis));
+
+        StringBuilder receiptBuilder = new StringBuilder();
+        receiptBuilder.append("==========================================================\n");
+        receiptBuilder.append("                     SUPERMARKET RECEIPT                  \n");
+        receiptBuilder.append("==========================================================\n");
+        receiptBuilder.append(BILL_ID_PREFIX).append(billId).append("\n");
+        receiptBuilder.append("Seller:  ").append(sellerUsername).append("\n");
+        receiptBuilder.append("Date:    ").append(billDate).append("\n");
+        receiptBuilder.append("----------------------------------------------------------\n");
+        receiptBuilder.append(String.format("%-15s %-25s %-5s %-13s %-13s\n", "Item ID", "Item Name", "Qty", "Price (PKR)", "Amount (PKR)"));
+        receiptBuilder.append("----------------------------------------------------------\n");
+
+        for (BillItem bi : billItems) {
+            receiptBuilder.append(String.format("%-15s %-25.25s %-5d PKR %-10s PKR %-10s\n",
+                    bi.getItem().getId(),
+                    bi.getItem().getName(),
+                    bi.getQuantity(),
+                    Money.format(bi.getItem().getPricePaisa()),
+                    Money.format(bi.getSubtotal())));
+        }
+        receiptBuilder.append("----------------------------------------------------------\n");
+        receiptBuilder.append(String.format("%48s PKR %s\n", "TOTAL AMOUNT: ", Money.format(getTotal())));
+        receiptBuilder.append("==========================================================\n");
+        receiptBuilder.append("                 Thank you for your purchase!             \n");
+        receiptBuilder.append("==========================================================\n\n");
+        return receiptBuilder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Bill{" +
+                "billId=" + billId +
+                ", seller='" + sellerUsername + '\'' +
+                ", lines=" + billItems.size() +
+                '}';
+    }
+}
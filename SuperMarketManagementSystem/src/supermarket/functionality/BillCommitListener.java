@@ -0,0 +1,14 @@
+package supermarket.functionality;
+
+import java.util.List;
+
+/**
+ * Notified by a {@link BillWriter} after bills have been written to the ledger and forced to disk.
+ * Called on the bill-writer thread, so implementations should be quick; the next batch waits for them.
+ */
+public interface BillCommitListener {
+    /**
+     * @param bills The bills of one batch, in the order they were appended.
+     */
+    void billsCommitted(List<Bill> bills);
+}
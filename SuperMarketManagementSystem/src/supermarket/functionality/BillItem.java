@@ -24,13 +24,16 @@ public class BillItem {
         return quantity;
     }
 
-    public double getSubtotal() {
-        return item.getPrice() * quantity;
+    /**
+     * @return Price times quantity, in paisa.
+     */
+    public long getSubtotal() {
+        return Money.multiply(item.getPricePaisa(), quantity);
     }
 
     @Override
     public String toString() {
-        return String.format("%s (ID: %s) x %d @ PKR %.2f = PKR %.2f",
-                item.getName(), item.getId(), quantity, item.getPrice(), getSubtotal());
+        return String.format("%s (ID: %s) x %d @ PKR %s = PKR %s",
+                item.getName(), item.getId(), quantity, Money.format(item.getPricePaisa()), Money.format(getSubtotal()));
     }
 }
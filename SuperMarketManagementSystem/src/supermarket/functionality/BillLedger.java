@@ -0,0 +1,653 @@
+package supermarket.functionality;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only binary ledger of bills (bills.dat).
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE}-byte header (magic "SMBL", format version, record size)
+ * followed by fixed-size {@value #RECORD_SIZE}-byte records, one per bill line. Every record repeats
+ * the bill header fields, so the file can be scanned sequentially, or jumped into at any record
+ * boundary, without parsing text:
+ * <pre>
+ * offset size field
+ *      0    8 bill id (see {@link IdGenerator}; increases with time)
+ *      8    8 bill time, epoch millis
+ *     16   32 seller username (UTF-8, zero padded; a longer one is refused by {@link #validate(Bill)})
+ *     48   24 item id (UTF-8, zero padded)
+ *     72   48 item name (UTF-8, zero padded, truncated)
+ *    120    4 quantity
+ *    124    8 unit price in paisa
+ *    132    2 line number within the bill (0-based)
+ *    134    2 number of lines in the bill
+ *    136   24 reserved
+ * </pre>
+ * All numbers are big-endian. A bill is appended with one write and one force, under an exclusive lock
+ * on the file so other tills' appends cannot land in between. A write or force that fails is truncated
+ * away before the error is reported, so a bill reported as failed is never in the ledger and a retry
+ * cannot store it twice; only a crash can leave an incomplete last bill, which readers skip. Since bill IDs grow with time, a time range
+ * is found by binary search instead of a full scan ({@link #forEachBillBetween(long, long, Consumer)}).
+ */
+public class BillLedger implements Closeable {
+    public static final String DEFAULT_LEDGER_FILE_PATH = "bills.dat";
+
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 160;
+    public static final int FORMAT_VERSION = 2; // Version 1 stored text bill IDs
+
+    /**
+     * Bills from different tills may reach the ledger slightly out of ID order; range scans
+     * widen their search by this much so such bills are not missed.
+     */
+    public static final long MAX_CLOCK_SKEW_MILLIS = 60_000;
+
+    /** Longest seller username, in UTF-8 bytes, that fits a record. */
+    public static final int MAX_SELLER_BYTES = 32;
+
+    /** Longest item ID, in UTF-8 bytes, that fits a record. */
+    public static final int MAX_ITEM_ID_BYTES = 24;
+
+    private static final byte[] MAGIC = {'S', 'M', 'B', 'L'};
+    private static final int BILL_ID_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int SELLER_OFFSET = 16;
+    private static final int SELLER_BYTES = MAX_SELLER_BYTES;
+    private static final int ITEM_ID_OFFSET = 48;
+    private static final int ITEM_ID_BYTES = MAX_ITEM_ID_BYTES;
+    private static final int ITEM_NAME_OFFSET = 72;
+    private static final int ITEM_NAME_BYTES = 48;
+    private static final int QUANTITY_OFFSET = 120;
+    private static final int PRICE_OFFSET = 124;
+    private static final int LINE_NO_OFFSET = 132;
+    private static final int LINE_COUNT_OFFSET = 134;
+    private static final int MAX_LINES_PER_BILL = 0xFFFF;
+    private static final int SCAN_BUFFER_RECORDS = 8192; // 1.25 MB per read
+
+    private static BillLedger sharedInstance;
+
+    private final File ledgerFile;
+    private FileChannel appendChannel;
+
+    public BillLedger(File ledgerFile) {
+        this.ledgerFile = ledgerFile;
+    }
+
+    /**
+     * Returns the ledger backed by the default bills.dat, shared by every frame in this process.
+     */
+    public static synchronized BillLedger getInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new BillLedger(new File(DEFAULT_LEDGER_FILE_PATH));
+        }
+        return sharedInstance;
+    }
+
+    public File getLedgerFile() {
+        return ledgerFile;
+    }
+
+    /**
+     * Appends all lines of a bill with a single write and forces them to disk.
+     * @throws IllegalArgumentException if the bill fails {@link #validate(Bill)}.
+     */
+    public synchronized void append(Bill bill) throws IOException {
+        appendAll(List.of(bill));
+    }
+
+    /**
+     * Appends several bills with a single write and a single force. If either fails, whatever part of
+     * the batch reached the file is truncated away again, so none of the bills is stored.
+     */
+    public synchronized void appendAll(List<Bill> bills) throws IOException {
+        int lineCount = 0;
+        for (Bill bill : bills) {
+            validate(bill);
+            lineCount += bill.getBillItems().size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(lineCount * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        for (Bill bill : bills) {
+            encode(bill, buffer);
+        }
+        buffer.flip();
+
+        FileChannel channel = openForAppend();
+        boolean rolledBack = true;
+        try (FileLock ignored = channel.lock()) {
+            long start = channel.size();
+            try {
+                writeAndForce(channel, buffer);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(start);
+                    channel.force(false);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                    rolledBack = false;
+                }
+                throw e;
+            }
+        } finally {
+            if (!rolledBack) {
+                close(); // Reopening realigns the tail, dropping at least a torn record
+            }
+        }
+    }
+
+    // Package-private so tests can fail a write part-way
+    void writeAndForce(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Checks that a bill can be stored: it has 1 to 65535 lines, and its seller and item IDs fit their
+     * fixed-width fields (a cut seller name would credit the sale to someone else in reports).
+     * @throws IllegalArgumentException describing the first problem found.
+     */
+    public static void validate(Bill bill) {
+        int lines = bill.getBillItems().size();
+        if (lines == 0 || lines > MAX_LINES_PER_BILL) {
+            throw new IllegalArgumentException("Bill " + bill.getBillId() + " has " + lines + " lines; expected 1 to " + MAX_LINES_PER_BILL + ".");
+        }
+        checkFits("Seller", bill.getSellerUsername(), SELLER_BYTES);
+        for (BillItem line : bill.getBillItems()) {
+            checkFits("ID", line.getItem().getId(), ITEM_ID_BYTES);
+        }
+    }
+
+    private static void checkFits(String what, String value, int width) {
+        if (value.getBytes(StandardCharsets.UTF_8).length > width) {
+            throw new IllegalArgumentException(what + " '" + value + "' is longer than " + width + " bytes.");
+        }
+    }
+
+    /**
+     * Reads the ledger from start to end and passes every complete bill to the consumer, in file order.
+     */
+    public void forEachBill(Consumer<Bill> consumer) throws IOException {
+        if (!ledgerFile.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return;
+            }
+            readHeader(channel);
+            scan(channel, 0, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, consumer);
+        }
+    }
+
+    /**
+     * Passes every complete bill created in [fromMillis, toMillis) to the consumer, in file order.
+     * Only the matching part of the ledger (plus {@link #MAX_CLOCK_SKEW_MILLIS} either side) is read.
+     */
+    public void forEachBillBetween(long fromMillis, long toMillis, Consumer<Bill> consumer) throws IOException {
+        if (!ledgerFile.exists() || fromMillis >= toMillis) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return;
+            }
+            readHeader(channel);
+            long fromId = IdGenerator.firstIdAt(fromMillis);
+            long toId = IdGenerator.firstIdAt(toMillis);
+            long startRecord = firstRecordAtOrAfter(channel, IdGenerator.firstIdAt(fromMillis - MAX_CLOCK_SKEW_MILLIS));
+            long stopId = toMillis > Long.MAX_VALUE - MAX_CLOCK_SKEW_MILLIS
+                    ? Long.MAX_VALUE : IdGenerator.firstIdAt(toMillis + MAX_CLOCK_SKEW_MILLIS);
+            scan(channel, startRecord, fromId, toId, stopId, consumer);
+        }
+    }
+
+    /**
+     * Finds a bill by ID. Uses the time encoded in the ID to read only the nearby part of the ledger.
+     * @return The bill, or null if it is not in the ledger.
+     */
+    public Bill findBill(long billId) throws IOException {
+        Bill[] found = new Bill[1];
+        long createdAt = IdGenerator.timestampMillis(billId);
+        forEachBillBetween(createdAt, createdAt + 1, bill -> {
+            if (bill.getBillId() == billId) {
+                found[0] = bill;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * @return The number of whole records (bill lines) in the ledger, for splitting it into {@link #scanLines} ranges.
+     */
+    public long getRecordCount() throws IOException {
+        if (!ledgerFile.exists()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.READ)) {
+            return channel.size() < HEADER_SIZE ? 0 : (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        }
+    }
+
+    /**
+     * @return The index of the first record of the first bill whose ID is at least firstIdAt(millis),
+     *         or the record count if there is none. Callers allow for {@link #MAX_CLOCK_SKEW_MILLIS} themselves.
+     */
+    public long findFirstRecordAt(long millis) throws IOException {
+        if (!ledgerFile.exists()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            readHeader(channel);
+            return firstRecordAtOrAfter(channel, IdGenerator.firstIdAt(millis));
+        }
+    }
+
+    /**
+     * Passes every line of every complete bill whose first line lies in [startRecord, endRecord) to the visitor,
+     * straight from the read buffer: no Bill or String is created unless the visitor asks for one.
+     * A bill starting in the range is read to its end even past endRecord, and lines at startRecord that
+     * continue an earlier bill are skipped, so adjacent ranges can be scanned in parallel without
+     * splitting or double-counting a bill. Incomplete bills are skipped whole.
+     * @return The record index the scan stopped at: endRecord or a little past it, or the start of an
+     *         incomplete bill at the end of the ledger (which may still be being written), for resuming later.
+     */
+    public long scanLines(long startRecord, long endRecord, LineVisitor visitor) throws IOException {
+        if (!ledgerFile.exists() || startRecord >= endRecord) {
+            return startRecord;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return startRecord;
+            }
+            readHeader(channel);
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+            LineRecord line = new LineRecord();
+            long record = startRecord;
+            while (record < endRecord) {
+                buffer.clear();
+                int read = channel.read(buffer, HEADER_SIZE + record * RECORD_SIZE);
+                int records = Math.max(read, 0) / RECORD_SIZE;
+                if (records == 0) {
+                    return record; // End of the ledger, or a torn final record
+                }
+                int r = 0;
+                while (r < records && record + r < endRecord) {
+                    int base = r * RECORD_SIZE;
+                    if ((buffer.getShort(base + LINE_NO_OFFSET) & 0xFFFF) != 0) {
+                        r++; // The rest of a bill that started before this range, or of an incomplete one
+                        continue;
+                    }
+                    int lineTotal = buffer.getShort(base + LINE_COUNT_OFFSET) & 0xFFFF;
+                    if (r + lineTotal > records) {
+                        if (r == 0 && read == buffer.capacity()) {
+                            // A bill longer than the buffer: grow it and read again from the bill's start
+                            buffer = ByteBuffer.allocate(lineTotal * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+                        } else if (r == 0) {
+                            return record; // The last bill is incomplete
+                        }
+                        break; // Reread so the whole bill is in the buffer
+                    }
+                    if (isCompleteBill(buffer, base, lineTotal)) {
+                        for (int lineNo = 0; lineNo < lineTotal; lineNo++) {
+                            line.position(buffer, base + lineNo * RECORD_SIZE);
+                            visitor.visit(line);
+                        }
+                        r += lineTotal;
+                    } else {
+                        r++;
+                    }
+                }
+                record += r;
+            }
+            return record;
+        }
+    }
+
+    // The lines of one bill are written together, so they are consecutive and share the bill ID
+    private static boolean isCompleteBill(ByteBuffer buffer, int base, int lineTotal) {
+        long billId = buffer.getLong(base + BILL_ID_OFFSET);
+        for (int lineNo = 1; lineNo < lineTotal; lineNo++) {
+            int lineBase = base + lineNo * RECORD_SIZE;
+            if ((buffer.getShort(lineBase + LINE_NO_OFFSET) & 0xFFFF) != lineNo || buffer.getLong(lineBase + BILL_ID_OFFSET) != billId) {
+                return false;
+            }
+        }
+        return lineTotal > 0;
+    }
+
+    /**
+     * Binary search over the (nearly) ID-ordered records.
+     * @return Index of the first line 0 of a bill whose ID is at least targetId (or the record count).
+     */
+    private long firstRecordAtOrAfter(FileChannel channel, long targetId) throws IOException {
+        long recordCount = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            readRecord(channel, mid, record);
+            if (record.getLong(BILL_ID_OFFSET) < targetId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low < recordCount) {
+            readRecord(channel, low, record);
+            low -= record.getShort(LINE_NO_OFFSET) & 0xFFFF; // Back up to the bill's first line
+        }
+        return Math.max(0, low);
+    }
+
+    private void readRecord(FileChannel channel, long index, ByteBuffer record) throws IOException {
+        record.clear();
+        long position = HEADER_SIZE + index * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("Unexpected end of " + ledgerFile.getPath());
+            }
+        }
+    }
+
+    /**
+     * Reads bills sequentially from a record index, passing those with fromId <= id < toId to the consumer,
+     * and stops at the first bill whose ID is at least stopId.
+     */
+    private void scan(FileChannel channel, long startRecord, long fromId, long toId, long stopId,
+                      Consumer<Bill> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        long position = HEADER_SIZE + startRecord * RECORD_SIZE;
+        List<BillItem> pendingLines = new ArrayList<>();
+        boolean pending = false;
+        long pendingBillId = 0;
+        String pendingSeller = null;
+        long pendingTime = 0;
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return;
+            }
+            int records = read / RECORD_SIZE;
+            if (records == 0) {
+                return; // Torn final record
+            }
+            position += (long) records * RECORD_SIZE;
+            for (int r = 0; r < records; r++) {
+                int base = r * RECORD_SIZE;
+                int lineNo = buffer.getShort(base + LINE_NO_OFFSET) & 0xFFFF;
+                int lineTotal = buffer.getShort(base + LINE_COUNT_OFFSET) & 0xFFFF;
+                if (lineNo == 0) {
+                    pendingLines.clear();
+                    pendingBillId = buffer.getLong(base + BILL_ID_OFFSET);
+                    if (pendingBillId >= stopId) {
+                        return;
+                    }
+                    pending = pendingBillId >= fromId && pendingBillId < toId;
+                    if (pending) {
+                        pendingSeller = readString(buffer, base + SELLER_OFFSET, SELLER_BYTES);
+                        pendingTime = buffer.getLong(base + TIME_OFFSET);
+                    }
+                } else if (lineNo != pendingLines.size()) {
+                    pendingLines.clear(); // Lines of an incomplete or filtered-out bill; skip until the next bill starts
+                    pending = false;
+                    continue;
+                }
+                if (!pending) {
+                    continue;
+                }
+                Item item = new Item(readString(buffer, base + ITEM_ID_OFFSET, ITEM_ID_BYTES),
+                        readString(buffer, base + ITEM_NAME_OFFSET, ITEM_NAME_BYTES),
+                        buffer.getLong(base + PRICE_OFFSET));
+                pendingLines.add(new BillItem(item, buffer.getInt(base + QUANTITY_OFFSET)));
+                if (pendingLines.size() == lineTotal) {
+                    consumer.accept(new Bill(pendingBillId, pendingSeller, pendingTime, pendingLines));
+                    pendingLines.clear();
+                    pending = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives bill lines from {@link #scanLines(long, long, LineVisitor)}.
+     */
+    public interface LineVisitor {
+        /**
+         * @param line Only valid during this call; it is reused for the next line.
+         */
+        void visit(LineRecord line);
+    }
+
+    /**
+     * A view of one ledger record in the scan buffer. The numeric fields cost nothing to read;
+     * the String fields are decoded on each call, so visitors that aggregate should key on
+     * {@link #getBillId()} and {@link #getItemCode()} where they can.
+     */
+    public static final class LineRecord {
+        private ByteBuffer buffer;
+        private int base;
+        private final FieldChars itemIdChars = new FieldChars();
+
+        void position(ByteBuffer buffer, int base) {
+            this.buffer = buffer;
+            this.base = base;
+        }
+
+        public long getBillId() {
+            return buffer.getLong(base + BILL_ID_OFFSET);
+        }
+
+        public long getEpochMillis() {
+            return buffer.getLong(base + TIME_OFFSET);
+        }
+
+        public int getLineNumber() {
+            return buffer.getShort(base + LINE_NO_OFFSET) & 0xFFFF;
+        }
+
+        public int getLineCount() {
+            return buffer.getShort(base + LINE_COUNT_OFFSET) & 0xFFFF;
+        }
+
+        public int getQuantity() {
+            return buffer.getInt(base + QUANTITY_OFFSET);
+        }
+
+        public long getUnitPricePaisa() {
+            return buffer.getLong(base + PRICE_OFFSET);
+        }
+
+        public long getSubtotalPaisa() {
+            return Money.multiply(getUnitPricePaisa(), getQuantity());
+        }
+
+        /**
+         * @return The item's {@link ItemCode}, parsed without allocating, or {@link ItemCode#NO_CODE}.
+         */
+        public long getItemCode() {
+            itemIdChars.position(buffer, base + ITEM_ID_OFFSET, ITEM_ID_BYTES);
+            return ItemCode.parse(itemIdChars);
+        }
+
+        public String getItemId() {
+            return readString(buffer, base + ITEM_ID_OFFSET, ITEM_ID_BYTES);
+        }
+
+        public String getItemName() {
+            return readString(buffer, base + ITEM_NAME_OFFSET, ITEM_NAME_BYTES);
+        }
+
+        public String getSellerUsername() {
+            return readString(buffer, base + SELLER_OFFSET, SELLER_BYTES);
+        }
+    }
+
+    /**
+     * The bytes of a zero-padded field as characters, for {@link ItemCode#parse(CharSequence)}.
+     * Bytes above 127 become characters that are not digits, which is all ItemCode needs.
+     */
+    private static final class FieldChars implements CharSequence {
+        private final byte[] bytes = new byte[ITEM_ID_BYTES];
+        private int length;
+
+        void position(ByteBuffer buffer, int offset, int width) {
+            buffer.get(offset, bytes, 0, width); // One bulk copy instead of a bounds-checked get per character
+            int length = 0;
+            while (length < width && bytes[length] != 0) {
+                length++;
+            }
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Prints receipts from a ledger on demand.
+     * Usage: BillLedger [ledger-file [bill-id]] - prints one bill, or every bill if no ID is given.
+     */
+    public static void main(String[] args) throws IOException {
+        BillLedger ledger = new BillLedger(new File(args.length > 0 ? args[0] : DEFAULT_LEDGER_FILE_PATH));
+        if (args.length > 1) {
+            Bill bill = ledger.findBill(Long.parseLong(args[1]));
+            System.out.print(bill != null ? bill.toReceiptText() : "No bill with ID " + args[1] + "\n");
+        } else {
+            ledger.forEachBill(bill -> System.out.print(bill.toReceiptText()));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.close();
+            appendChannel = null;
+        }
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        if (appendChannel == null || !appendChannel.isOpen()) {
+            // Validate (or write) the header and realign the tail before switching to append mode
+            try (FileChannel channel = FileChannel.open(ledgerFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) { // Another till's append in progress is not a torn record
+                if (channel.size() == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+                    header.put(MAGIC).putInt(FORMAT_VERSION).putInt(RECORD_SIZE).putInt(0);
+                    header.flip();
+                    while (header.hasRemaining()) {
+                        channel.write(header);
+                    }
+                    channel.force(true);
+                } else {
+                    readHeader(channel);
+                    long aligned = channel.size() - (channel.size() - HEADER_SIZE) % RECORD_SIZE;
+                    if (aligned != channel.size()) {
+                        channel.truncate(aligned); // Drop a torn record so new records stay aligned
+                    }
+                }
+            }
+            appendChannel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return appendChannel;
+    }
+
+    private void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE
+                || header.get(0) != MAGIC[0] || header.get(1) != MAGIC[1] || header.get(2) != MAGIC[2] || header.get(3) != MAGIC[3]) {
+            throw new IOException(ledgerFile.getPath() + " is not a bill ledger.");
+        }
+        int version = header.getInt(4);
+        int recordSize = header.getInt(8);
+        if (version != FORMAT_VERSION || recordSize != RECORD_SIZE) {
+            throw new IOException("Unsupported bill ledger format in " + ledgerFile.getPath()
+                    + " (version " + version + ", record size " + recordSize + ").");
+        }
+    }
+
+    private static void encode(Bill bill, ByteBuffer buffer) {
+        List<BillItem> lines = bill.getBillItems();
+        for (int lineNo = 0; lineNo < lines.size(); lineNo++) {
+            BillItem line = lines.get(lineNo);
+            int base = buffer.position();
+            buffer.putLong(base + BILL_ID_OFFSET, bill.getBillId());
+            buffer.putLong(base + TIME_OFFSET, bill.getEpochMillis());
+            writeString(buffer, base + SELLER_OFFSET, SELLER_BYTES, bill.getSellerUsername(), true);
+            writeString(buffer, base + ITEM_ID_OFFSET, ITEM_ID_BYTES, line.getItem().getId(), true);
+            writeString(buffer, base + ITEM_NAME_OFFSET, ITEM_NAME_BYTES, line.getItem().getName(), false);
+            buffer.putInt(base + QUANTITY_OFFSET, line.getQuantity());
+            buffer.putLong(base + PRICE_OFFSET, line.getItem().getPricePaisa());
+            buffer.putShort(base + LINE_NO_OFFSET, (short) lineNo);
+            buffer.putShort(base + LINE_COUNT_OFFSET, (short) lines.size());
+            buffer.position(base + RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Writes a zero-padded UTF-8 string into a fixed-width field.
+     * @param exact If true the value must fit; otherwise it is cut at the last whole character that fits.
+     */
+    private static void writeString(ByteBuffer buffer, int offset, int width, String value, boolean exact) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length > width) {
+            if (exact) {
+                throw new IllegalArgumentException("'" + value + "' is longer than " + width + " bytes.");
+            }
+            length = width;
+            while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--; // Do not split a multi-byte character
+            }
+        }
+        for (int i = 0; i < width; i++) {
+            buffer.put(offset + i, i < length ? bytes[i] : 0);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int width) {
+        int length = 0;
+        while (length < width && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,185 @@
+package supermarket.functionality;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The bill a seller is building at one till, before it is finalized by {@link PosEngine}.
+ * Adding an item merges it into the item's existing line, if there is one, and keeps a running total.
+ * Thread-safe, so a session may be driven from any thread; each till normally owns its own session.
+ */
+public class BillSession {
+    private final User seller;
+    private final List<BillItem> lines = new ArrayList<>();
+    private final Map<String, Integer> lineByItemId = new HashMap<>();
+    private long totalPaisa;
+
+    public BillSession(User seller) {
+        this.seller = seller;
+    }
+
+    public User getSeller() {
+        return seller;
+    }
+
+    /**
+     * Adds a quantity of an item, merging it into the item's existing line if there is one.
+     * A merged line is re-priced with this version of the item, as the latest one seen.
+     * @return The index of the line that was added or updated.
+     * @throws IllegalArgumentException if the quantity is not positive.
+     */
+    public synchronized int addItem(Item item, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be at least 1.");
+        }
+        Integer existingLine = lineByItemId.get(item.getId());
+        int line;
+        if (existingLine != null) {
+            line = existingLine;
+            BillItem existing = lines.get(line);
+            // BillItem is never mutated: a saved Bill may still reference the old instance.
+            // The whole line takes the incoming item's price, so the total always matches the lines.
+            BillItem merged = new BillItem(item, Math.addExact(existing.getQuantity(), quantity));
+            totalPaisa = Math.addExact(totalPaisa - existing.getSubtotal(), merged.getSubtotal());
+            lines.set(line, merged);
+        } else {
+            totalPaisa = Math.addExact(totalPaisa, Money.multiply(item.getPricePaisa(), quantity));
+            line = lines.size();
+            if (line == 0) {
+                FlightEvents.BillOpened opened = new FlightEvents.BillOpened();
+                if (opened.isEnabled()) {
+                    opened.seller = seller.getUsername();
+                    opened.commit();
+                }
+            }
+            lines.add(new BillItem(item, quantity));
+            lineByItemId.put(item.getId(), line);
+        }
+        FlightEvents.BillLineAdded added = new FlightEvents.BillLineAdded();
+        if (added.isEnabled()) {
+            added.itemId = item.getId();
+            added.quantity = quantity;
+            added.line = line;
+            added.lineCount = lines.size();
+            added.commit();
+        }
+        return line;
+    }
+
+    /**
+     * Puts the lines of a bill that could not be saved back into this session, merged with anything added since.
+     * Merged lines keep the item this session already has, which is the newer one.
+     */
+    public synchronized void restore(Bill unsavedBill) {
+        for (BillItem billItem : unsavedBill.getBillItems()) {
+            Integer existingLine = lineByItemId.get(billItem.getItem().getId());
+            Item item = existingLine != null ? lines.get(existingLine).getItem() : billItem.getItem();
+            addItem(item, billItem.getQuantity());
+        }
+    }
+
+    /**
+     * {@link #restore(Bill)}, but only while this session is empty, so an unsaved bill is never merged
+     * into the next customer's.
+     * @return Whether the bill was restored.
+     */
+    public synchronized boolean restoreIfEmpty(Bill unsavedBill) {
+        if (!lines.isEmpty()) {
+            return false;
+        }
+        restore(unsavedBill);
+        return true;
+    }
+
+    /**
+     * Drops the line of an item, for example because it was deleted from the catalog.
+     * @return The index the line had, or -1 if the item is not on this bill.
+     */
+    public synchronized int removeItem(String itemId) {
+        Integer line = lineByItemId.remove(itemId);
+        if (line == null) {
+            return -1;
+        }
+        BillItem removed = lines.remove((int) line);
+        totalPaisa -= removed.getSubtotal();
+        for (int i = line; i < lines.size(); i++) {
+            lineByItemId.put(lines.get(i).getItem().getId(), i);
+        }
+        return line;
+    }
+
+    /**
+     * Re-prices the line of an item with the catalog's new version of it, keeping the quantity.
+     * @return The index of the updated line, or -1 if the item is not on this bill.
+     */
+    public synchronized int updateItem(Item newItem) {
+        Integer line = lineByItemId.get(newItem.getId());
+        if (line == null) {
+            return -1;
+        }
+        BillItem old = lines.get(line);
+        BillItem updated = new BillItem(newItem, old.getQuantity());
+        totalPaisa = Math.addExact(totalPaisa - old.getSubtotal(), updated.getSubtotal());
+        lines.set(line, updated);
+        return line;
+    }
+
+    /**
+     * Brings every line in line with the catalog after it was reloaded as a whole:
+     * deleted items are dropped and changed items re-priced.
+     * Not synchronized as a whole, so this session's lock is never held while waiting for the catalog's.
+     */
+    public void resync(ItemCatalog catalog) {
+        for (BillItem line : getLines()) {
+            Item current = catalog.findById(line.getItem().getId());
+            if (current == null) {
+                removeItem(line.getItem().getId());
+            } else if (current.getPricePaisa() != line.getItem().getPricePaisa() || !current.getName().equals(line.getItem().getName())) {
+                updateItem(current);
+            }
+        }
+    }
+
+    public synchronized BillItem getLine(int index) {
+        return lines.get(index);
+    }
+
+    public synchronized int getLineCount() {
+        return lines.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * @return The running bill total in paisa.
+     */
+    public synchronized long getTotalPaisa() {
+        return totalPaisa;
+    }
+
+    /**
+     * @return A copy of the current lines, in the order they were first added.
+     */
+    public synchronized List<BillItem> getLines() {
+        return new ArrayList<>(lines);
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+        lineByItemId.clear();
+        totalPaisa = 0;
+    }
+
+    /**
+     * Removes and returns all lines at once, leaving the session empty for the next customer.
+     */
+    synchronized List<BillItem> takeLines() {
+        List<BillItem> taken = new ArrayList<>(lines);
+        clear();
+        return taken;
+    }
+}
@@ -0,0 +1,185 @@
+package supermarket.functionality;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists bills on a background thread so callers (the Swing EDT in particular) never block on disk I/O.
+ * Submitted bills wait in a bounded queue; the writer drains everything that is pending and appends it
+ * to the {@link BillLedger} with one write and one force (group commit). Each caller's future completes
+ * only once its bill is durable. {@link BillCommitListener}s hear about every batch after that.
+ */
+public class BillWriter implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private static final long CLOSE_CHECK_INTERVAL_MILLIS = 100;
+
+    private static BillWriter sharedInstance;
+
+    private final BillLedger ledger;
+    private final BlockingQueue<PendingBill> queue;
+    private final Thread writerThread;
+    private final List<BillCommitListener> commitListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public BillWriter(BillLedger ledger, int queueCapacity) {
+        this.ledger = ledger;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::runWriter, "bill-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Returns the writer for the shared {@link BillLedger}. Pending bills are flushed when the JVM exits.
+     */
+    public static synchronized BillWriter getInstance() {
+        if (sharedInstance == null) {
+            BillWriter writer = new BillWriter(BillLedger.getInstance(), DEFAULT_QUEUE_CAPACITY);
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "bill-writer-shutdown"));
+            sharedInstance = writer;
+        }
+        return sharedInstance;
+    }
+
+    public BillLedger getLedger() {
+        return ledger;
+    }
+
+    public void addCommitListener(BillCommitListener listener) {
+        commitListeners.add(listener);
+    }
+
+    public void removeCommitListener(BillCommitListener listener) {
+        commitListeners.remove(listener);
+    }
+
+    /**
+     * Queues a bill for writing. Never blocks: if the queue is full or the writer is closed,
+     * the returned future fails immediately.
+     * @return A future completed with the bill once it is on disk, or exceptionally if it could not be saved.
+     */
+    public CompletableFuture<Bill> submit(Bill bill) {
+        CompletableFuture<Bill> future = new CompletableFuture<>();
+        try {
+            BillLedger.validate(bill); // Reject bad bills here so they cannot fail a whole batch
+        } catch (IllegalArgumentException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (closed) {
+            future.completeExceptionally(new IOException("Bill writer is shut down."));
+        } else if (!queue.offer(new PendingBill(bill, future))) {
+            future.completeExceptionally(new IOException("Too many bills waiting to be saved. Please try again."));
+        }
+        return future;
+    }
+
+    /**
+     * @return Number of bills waiting to be written.
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting bills, writes everything still queued and waits for the writer thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingBill> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            PendingBill first;
+            try {
+                // Timed poll rather than interrupts: interrupting a thread inside FileChannel.write closes the channel
+                first = queue.poll(CLOSE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                if (closed) {
+                    queue.drainTo(batch); // Anything offered while close() was running
+                    if (!batch.isEmpty()) {
+                        writeBatch(batch);
+                    }
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingBill> batch) {
+        List<Bill> bills = new ArrayList<>(batch.size());
+        int lineCount = 0;
+        for (PendingBill pending : batch) {
+            bills.add(pending.bill);
+            lineCount += pending.bill.getBillItems().size();
+        }
+        FlightEvents.BillBatchWrite write = new FlightEvents.BillBatchWrite();
+        write.billCount = bills.size();
+        write.bytes = (long) lineCount * BillLedger.RECORD_SIZE;
+        write.begin();
+        try {
+            ledger.appendAll(bills);
+        } catch (IOException | RuntimeException e) {
+            write.commit();
+            System.err.println("Error saving " + bills.size() + " bill(s) to " + ledger.getLedgerFile().getPath() + ": " + e.getMessage());
+            for (PendingBill pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        write.succeeded = true;
+        write.commit();
+        for (PendingBill pending : batch) {
+            pending.future.complete(pending.bill);
+            FlightEvents.BillCommitted committed = new FlightEvents.BillCommitted();
+            if (committed.isEnabled()) {
+                committed.billId = pending.bill.getBillId();
+                committed.seller = pending.bill.getSellerUsername();
+                committed.lineCount = pending.bill.getBillItems().size();
+                committed.totalPaisa = pending.bill.getTotal();
+                committed.bytes = (long) committed.lineCount * BillLedger.RECORD_SIZE;
+                committed.commit();
+            }
+        }
+        for (BillCommitListener listener : commitListeners) {
+            try {
+                listener.billsCommitted(bills);
+            } catch (RuntimeException e) { // The bills are saved whatever a listener does
+                System.err.println("Error in bill commit listener: " + e);
+            }
+        }
+    }
+
+    private static final class PendingBill {
+        final Bill bill;
+        final CompletableFuture<Bill> future;
+
+        PendingBill(Bill bill, CompletableFuture<Bill> future) {
+            this.bill = bill;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package supermarket.functionality;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot format for items.txt and users.txt, an alternative to their comma-joined text lines.
+ * Names and credentials are stored as length-prefixed UTF-8, so any text (commas included) round-trips,
+ * and loading decodes each field directly instead of splitting, trimming and parsing lines.
+ * <pre>
+ * header   4 bytes  magic 0x89 'S' 'M' 'S' (0x89 never starts a UTF-8 text line)
+ *          2 bytes  format version, big-endian
+ *          1 byte   kind: 'I' items, 'U' users
+ *          1 byte   reserved, 0
+ *          4 bytes  record count, big-endian
+ * records  varint   payload length, then the payload:
+ *                   item: varint price in paisa, string id, string name
+ *                   user: string username, string role, string credential
+ *                   (string = varint byte length + UTF-8 bytes)
+ * trailer  4 bytes  CRC32 of everything before it, big-endian
+ * </pre>
+ * Varints are unsigned LEB128. Readers skip payload bytes they do not know, so later versions may append
+ * fields to a record. Snapshots are written to a temporary file and renamed over the target, like the text ones.
+ */
+public final class BinarySnapshot {
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {(byte) 0x89, 'S', 'M', 'S'};
+    private static final byte ITEMS = 'I';
+    private static final byte USERS = 'U';
+    private static final int HEADER_BYTES = 12;
+    private static final int TRAILER_BYTES = 4;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * @return Whether the file starts with the binary snapshot magic (false for text files and missing files).
+     */
+    public static boolean isBinarySnapshot(File file) throws IOException {
+        if (file.length() < MAGIC.length) {
+            return false;
+        }
+        byte[] start = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.readNBytes(start, 0, start.length) == start.length && Arrays.equals(start, MAGIC);
+        }
+    }
+
+    // --- Writing ---
+
+    public static void writeItems(File target, Collection<Item> items) throws IOException {
+        MutationJournal.writeSnapshot(target, out -> {
+            Encoder encoder = new Encoder(out, ITEMS, items.size());
+            for (Item item : items) {
+                encoder.record.putVarint(item.getPricePaisa());
+                encoder.record.putString(item.getId());
+                encoder.record.putString(item.getName());
+                encoder.endRecord();
+            }
+            encoder.finish();
+        });
+    }
+
+    public static void writeUsers(File target, Collection<User> users) throws IOException {
+        MutationJournal.writeSnapshot(target, out -> {
+            Encoder encoder = new Encoder(out, USERS, users.size());
+            for (User user : users) {
+                encoder.record.putString(user.getUsername());
+                encoder.record.putString(user.getRole());
+                encoder.record.putString(user.getPasswordHash());
+                encoder.endRecord();
+            }
+            encoder.finish();
+        });
+    }
+
+    /**
+     * Writes the header, then one record at a time through a reused buffer, keeping a running CRC.
+     */
+    private static final class Encoder {
+        private final OutputStream out;
+        private final CRC32 crc = new CRC32();
+        final Buffer record = new Buffer(256);
+        private final Buffer prefix = new Buffer(8);
+
+        Encoder(OutputStream fileOut, byte kind, int recordCount) throws IOException {
+            out = new BufferedOutputStream(fileOut, 1 << 16);
+            byte[] header = new byte[HEADER_BYTES];
+            System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+            header[4] = (byte) (VERSION >>> 8);
+            header[5] = (byte) VERSION;
+            header[6] = kind;
+            putInt(header, 8, recordCount);
+            write(header, header.length);
+        }
+
+        void endRecord() throws IOException {
+            prefix.length = 0;
+            prefix.putVarint(record.length);
+            write(prefix.bytes, prefix.length);
+            write(record.bytes, record.length);
+            record.length = 0;
+        }
+
+        void finish() throws IOException {
+            byte[] trailer = new byte[TRAILER_BYTES];
+            putInt(trailer, 0, (int) crc.getValue());
+            out.write(trailer);
+            out.flush();
+        }
+
+        private void write(byte[] bytes, int length) throws IOException {
+            crc.update(bytes, 0, length);
+            out.write(bytes, 0, length);
+        }
+    }
+
+    private static final class Buffer {
+        byte[] bytes;
+        int length;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void putVarint(long value) {
+            ensureRoom(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void putString(String text) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            putVarint(utf8.length);
+            ensureRoom(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private void ensureRoom(int needed) {
+            if (length + needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + needed, bytes.length * 2));
+            }
+        }
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    // --- Reading ---
+
+    /**
+     * @return The items in file order.
+     * @throws IOException if the file is not an item snapshot, was written by a newer version, or fails its checksum.
+     */
+    public static List<Item> readItems(File file) throws IOException {
+        Decoder decoder = new Decoder(file, ITEMS);
+        List<Item> items = new ArrayList<>(decoder.recordCount);
+        for (int i = 0; i < decoder.recordCount; i++) {
+            int end = decoder.startRecord();
+            long pricePaisa = decoder.varint();
+            String id = decoder.string();
+            String name = decoder.string();
+            decoder.endRecord(end);
+            items.add(new Item(id, name, pricePaisa));
+        }
+        decoder.checkEnd();
+        return items;
+    }
+
+    /**
+     * @return The users in file order.
+     * @throws IOException if the file is not a user snapshot, was written by a newer version, or fails its checksum.
+     */
+    public static List<User> readUsers(File file) throws IOException {
+        Decoder decoder = new Decoder(file, USERS);
+        List<User> users = new ArrayList<>(decoder.recordCount);
+        for (int i = 0; i < decoder.recordCount; i++) {
+            int end = decoder.startRecord();
+            String username = decoder.string();
+            String role = decoder.string();
+            String credential = decoder.string();
+            decoder.endRecord(end);
+            users.add(new User(username, credential, role));
+        }
+        decoder.checkEnd();
+        return users;
+    }
+
+    /**
+     * Reads the whole file, checks its header and checksum, then decodes fields straight from the bytes.
+     */
+    private static final class Decoder {
+        private final File file;
+        private final byte[] data;
+        private final int limit; // Start of the trailer
+        final int recordCount;
+        private int position = HEADER_BYTES;
+
+        Decoder(File file, byte kind) throws IOException {
+            this.file = file;
+            data = Files.readAllBytes(file.toPath());
+            if (data.length < HEADER_BYTES + TRAILER_BYTES || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                throw corrupt("not a binary snapshot");
+            }
+            int version = (data[4] & 0xFF) << 8 | data[5] & 0xFF;
+            if (version > VERSION) {
+                throw new IOException(file.getPath() + " was written by a newer version (snapshot format " + version + ").");
+            }
+            if (data[6] != kind) {
+                throw corrupt("holds " + (data[6] == ITEMS ? "items" : data[6] == USERS ? "users" : "unknown records"));
+            }
+            limit = data.length - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, limit);
+            if ((int) crc.getValue() != getInt(limit)) {
+                throw corrupt("checksum mismatch");
+            }
+            recordCount = getInt(8);
+            if (recordCount < 0) {
+                throw corrupt("bad record count");
+            }
+        }
+
+        /**
+         * @return Where the record ends.
+         */
+        int startRecord() throws IOException {
+            int length = (int) varint();
+            if (length < 0 || length > limit - position) {
+                throw corrupt("bad record length");
+            }
+            return position + length;
+        }
+
+        void endRecord(int end) throws IOException {
+            if (position > end) {
+                throw corrupt("record overruns its length");
+            }
+            position = end; // Skips fields added by later versions
+        }
+
+        void checkEnd() throws IOException {
+            if (position != limit) {
+                throw corrupt("unexpected bytes after the last record");
+            }
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw corrupt("truncated record");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw corrupt("bad varint");
+        }
+
+        String string() throws IOException {
+            int length = (int) varint();
+            if (length < 0 || length > limit - position) {
+                throw corrupt("bad string length");
+            }
+            String text = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+
+        private int getInt(int offset) {
+            return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16
+                    | (data[offset + 2] & 0xFF) << 8 | data[offset + 3] & 0xFF;
+        }
+
+        private IOException corrupt(String reason) {
+            return new IOException(file.getPath() + " is corrupt: " + reason + ".");
+        }
+    }
+}
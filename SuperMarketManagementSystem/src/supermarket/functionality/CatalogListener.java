@@ -0,0 +1,25 @@
+package supermarket.functionality;
+
+/**
+ * Receives the changes made to an {@link ItemCatalog}, one item at a time, including changes made by
+ * other processes once the catalog picks them up (see {@link ItemCatalog#startWatching()}).
+ * Methods are called on the thread that made or detected the change while the catalog is locked,
+ * so they must return quickly; Swing listeners should hand the change to the EDT with invokeLater.
+ */
+public interface CatalogListener {
+    void itemAdded(Item item);
+
+    void itemRemoved(Item item);
+
+    /**
+     * The item with oldItem's ID was replaced by newItem (for example with a new price).
+     * Items are never modified in place, so bills already holding oldItem are unaffected.
+     */
+    void itemUpdated(Item oldItem, Item newItem);
+
+    /**
+     * The catalog was reloaded from disk as a whole (for example after another process compacted it);
+     * anything derived from it should be rebuilt.
+     */
+    void catalogReloaded();
+}
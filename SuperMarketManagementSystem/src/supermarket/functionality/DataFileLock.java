@@ -0,0 +1,70 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Cross-process lock on the data files (items.txt, users.txt, bills.dat and their journals) in a directory.
+ * Desktop tills take it shared, so several of them may run side by side as before; a till server
+ * takes it exclusive, because it must be the only process writing the files while it runs.
+ * The lock is held until {@link #close()} or until the process exits.
+ */
+public class DataFileLock implements AutoCloseable {
+    public static final String LOCK_FILE_NAME = "supermarket.lock";
+
+    private final RandomAccessFile file;
+    private final FileLock lock;
+
+    private DataFileLock(RandomAccessFile file, FileLock lock) {
+        this.file = file;
+        this.lock = lock;
+    }
+
+    /**
+     * Takes the lock for sole ownership of the data files, as a till server does.
+     * @return The lock, or null if another process (a desktop till or a server) is using the files.
+     */
+    public static DataFileLock tryAcquireExclusive(File directory) throws IOException {
+        return tryAcquire(directory, false);
+    }
+
+    /**
+     * Takes the lock for a desktop till, which may share the files with other desktop tills.
+     * @return The lock, or null if a till server owns the files.
+     */
+    public static DataFileLock tryAcquireShared(File directory) throws IOException {
+        return tryAcquire(directory, true);
+    }
+
+    private static DataFileLock tryAcquire(File directory, boolean shared) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+            if (lock == null) {
+                file.close();
+                return null;
+            }
+            return new DataFileLock(file, lock);
+        } catch (IOException | RuntimeException e) { // OverlappingFileLockException if this process holds it already
+            file.close();
+            throw e;
+        }
+    }
+
+    public boolean isShared() {
+        return lock.isShared();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            file.close();
+        }
+    }
+}
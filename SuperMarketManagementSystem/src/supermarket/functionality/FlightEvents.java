@@ -0,0 +1,150 @@
+package supermarket.functionality;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the bill lifecycle and the data files, so a recording of a shift
+ * (e.g. {@code java -XX:StartFlightRecording=duration=8h,filename=shift.jfr ...}) shows checkouts and disk
+ * writes next to GC pauses in JDK Mission Control. Events appear under the "Supermarket" category.
+ * <p>
+ * While no recording is running an event costs one enabled check: it is created, found disabled, and
+ * dropped, and the JIT removes the allocation. Hot paths guard the field work with {@link Event#isEnabled()}.
+ */
+final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("supermarket.BillOpened")
+    @Label("Bill Opened")
+    @Category({"Supermarket", "Billing"})
+    @Description("The first item of a customer's bill was added at a till")
+    @StackTrace(false)
+    static class BillOpened extends Event {
+        @Label("Seller")
+        String seller;
+    }
+
+    @Name("supermarket.BillLineAdded")
+    @Label("Bill Line Added")
+    @Category({"Supermarket", "Billing"})
+    @Description("An item was added to an open bill, as a new line or merged into an existing one")
+    @StackTrace(false)
+    static class BillLineAdded extends Event {
+        @Label("Item ID")
+        String itemId;
+
+        @Label("Quantity")
+        int quantity;
+
+        @Label("Line")
+        int line;
+
+        @Label("Lines in Bill")
+        int lineCount;
+    }
+
+    @Name("supermarket.BillCommitted")
+    @Label("Bill Committed")
+    @Category({"Supermarket", "Billing"})
+    @Description("A bill is durable in the bill ledger")
+    @StackTrace(false)
+    static class BillCommitted extends Event {
+        @Label("Bill ID")
+        long billId;
+
+        @Label("Seller")
+        String seller;
+
+        @Label("Lines")
+        int lineCount;
+
+        @Label("Total (paisa)")
+        long totalPaisa;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("supermarket.BillBatchWrite")
+    @Label("Bill Batch Write")
+    @Category({"Supermarket", "Billing"})
+    @Description("The bill writer appended and forced one group commit of bills to the ledger")
+    @StackTrace(false)
+    static class BillBatchWrite extends Event {
+        @Label("Bills")
+        int billCount;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("supermarket.CatalogLoad")
+    @Label("Catalog Load")
+    @Category({"Supermarket", "Files"})
+    @Description("items.txt was read and its journal replayed")
+    static class CatalogLoad extends Event {
+        @Label("Items")
+        int itemCount;
+
+        @Label("Snapshot Bytes")
+        @DataAmount
+        long snapshotBytes;
+
+        @Label("Journal Bytes")
+        @DataAmount
+        long journalBytes;
+    }
+
+    @Name("supermarket.CatalogSave")
+    @Label("Catalog Save")
+    @Category({"Supermarket", "Files"})
+    @Description("items.txt was rewritten from memory and its journal emptied")
+    static class CatalogSave extends Event {
+        @Label("Items")
+        int itemCount;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("supermarket.UserFileRead")
+    @Label("User File Read")
+    @Category({"Supermarket", "Files"})
+    @Description("users.txt was read and its journal replayed")
+    static class UserFileRead extends Event {
+        @Label("Users")
+        int userCount;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("supermarket.JournalAppend")
+    @Label("Journal Append")
+    @Category({"Supermarket", "Files"})
+    @Description("Records were appended to a data file journal and forced to disk")
+    static class JournalAppend extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Records")
+        int recordCount;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,177 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, Snowflake-style generator of 64-bit IDs for items and bills.
+ * <pre>
+ * bit 63      sign, always 0
+ * bits 62..22 milliseconds since {@link #EPOCH_MILLIS} (41 bits, about 69 years)
+ * bits 21..12 node (till) ID, 0 to 1023
+ * bits 11..0  sequence within the millisecond, 0 to 4095
+ * </pre>
+ * IDs from one generator strictly increase, and IDs from different generators never collide as long as
+ * every till sharing the data files runs with its own node ID. {@link #claim(File)} makes sure of that: it locks
+ * the till's node ID in {@value #NODE_LOCK_FILE_NAME} for the life of the process, taking the configured one
+ * (system property {@value #NODE_ID_PROPERTY} or environment variable {@value #NODE_ID_ENV}) or else a free one.
+ * Because the time is in the high bits, sorting IDs sorts them by creation time, across tills too.
+ */
+public final class IdGenerator {
+    /** 2024-01-01T00:00:00Z. */
+    public static final long EPOCH_MILLIS = 1704067200000L;
+    public static final String NODE_ID_PROPERTY = "supermarket.tillId";
+    public static final String NODE_ID_ENV = "SUPERMARKET_TILL_ID";
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+    public static final String NODE_LOCK_FILE_NAME = "supermarket.tills.lock";
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static IdGenerator sharedInstance;
+    private static RandomAccessFile nodeLockFile; // Kept open, so the node ID stays locked until the process exits
+
+    private final long nodeBits;
+    // Last issued (timestamp << SEQUENCE_BITS | sequence), advanced with compare-and-set
+    private final AtomicLong lastState = new AtomicLong();
+
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Returns the generator for this till: the one from {@link #claim(File)}, or else one configured from
+     * {@value #NODE_ID_PROPERTY} / {@value #NODE_ID_ENV} (default 0, with a warning, as it is not unique).
+     */
+    public static synchronized IdGenerator getInstance() {
+        if (sharedInstance == null) {
+            Integer configured = configuredNodeId();
+            if (configured == null) {
+                System.err.println("WARNING: no till ID was claimed or configured (" + NODE_ID_PROPERTY + "); using 0. "
+                        + "Bill and item IDs may collide with other tills sharing these data files.");
+            }
+            sharedInstance = new IdGenerator(configured == null ? 0 : configured);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Locks a node ID for this process among all processes using the data directory, and makes it the
+     * shared generator's. The configured ID is used if there is one; otherwise the highest free ID is taken
+     * (0 is left alone, as older versions default to it, and configured IDs tend to be small).
+     * Call once at startup, before {@link #getInstance()}.
+     * @throws IllegalStateException if the configured ID is in use by another process, or no ID is free.
+     */
+    public static synchronized IdGenerator claim(File dataDirectory) throws IOException {
+        if (sharedInstance != null) {
+            return sharedInstance;
+        }
+        Integer configured = configuredNodeId();
+        RandomAccessFile file = new RandomAccessFile(new File(dataDirectory, NODE_LOCK_FILE_NAME), "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            int nodeId = -1;
+            if (configured != null) {
+                if (channel.tryLock(configured, 1, false) == null) {
+                    throw new IllegalStateException("Till ID " + configured + " is already in use by another till on these data files.");
+                }
+                nodeId = configured;
+            } else {
+                for (int candidate = MAX_NODE_ID; candidate > 0 && nodeId < 0; candidate--) {
+                    FileLock lock = channel.tryLock(candidate, 1, false); // One byte per node ID
+                    if (lock != null) {
+                        nodeId = candidate;
+                    }
+                }
+                if (nodeId < 0) {
+                    throw new IllegalStateException("All " + MAX_NODE_ID + " till IDs are in use on these data files.");
+                }
+            }
+            sharedInstance = new IdGenerator(nodeId);
+            nodeLockFile = file;
+            return sharedInstance;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The node ID set by {@value #NODE_ID_PROPERTY} or {@value #NODE_ID_ENV}, or null if neither is set.
+     * @throws IllegalArgumentException if it is not a number from 0 to {@value #MAX_NODE_ID}.
+     */
+    private static Integer configuredNodeId() {
+        String configured = System.getProperty(NODE_ID_PROPERTY, System.getenv(NODE_ID_ENV));
+        if (configured == null || configured.trim().isEmpty()) {
+            return null;
+        }
+        int nodeId;
+        try {
+            nodeId = Integer.parseInt(configured.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Till ID must be a number: " + configured);
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Till ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        return nodeId;
+    }
+
+    public int getNodeId() {
+        return (int) (nodeBits >>> SEQUENCE_BITS);
+    }
+
+    /**
+     * @return A new ID, greater than every ID this generator returned before.
+     */
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long previous = lastState.get();
+            long previousTime = previous >>> SEQUENCE_BITS;
+            long next;
+            if (now > previousTime) {
+                next = now << SEQUENCE_BITS;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // Same millisecond, or the clock stepped back: keep counting from the last timestamp
+                next = previous + 1;
+            } else {
+                // Sequence exhausted: borrow the next millisecond instead of spinning
+                next = (previousTime + 1) << SEQUENCE_BITS;
+            }
+            if (lastState.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * @return The creation time (epoch millis) encoded in an ID.
+     */
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * @return The node (till) ID encoded in an ID.
+     */
+    public static int nodeId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    /**
+     * @return The smallest ID that could have been created at the given time, for ID range scans.
+     */
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS);
+    }
+}
@@ -0,0 +1,582 @@
+package supermarket.functionality;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Quantity on hand per item, with oversell protection at checkout.
+ * <p>
+ * Only items that have been stocked from the admin panel are tracked; others can be sold without limit,
+ * as before. Each tracked item has its own {@link AtomicLong}, so a checkout reserves its lines with one
+ * compare-and-set per line and no lock: tills selling different items never touch the same memory,
+ * and tills selling the same hot item retry a CAS instead of queueing on a lock. A line that would take
+ * the stock below zero fails the whole checkout and puts back what was already reserved.
+ * <p>
+ * Storage follows {@link ItemCatalog}: restocks are appended to stock.txt.journal and compacted into
+ * stock.txt. Sales are not written twice: stock.txt records how many {@link BillLedger} records it already
+ * accounts for, and sales after that are read from the ledger on load. While running, the ledger and journal
+ * are followed after every commit (see {@link #billsCommitted(List)}), which also picks up other tills'
+ * sales and restocks; bills reserved by this process are recognised by ID and not counted twice.
+ * Loads, follows and compactions hold the journal's cross-process lock (see {@link MutationJournal}).
+ * A reload after another process's compaction builds new levels off to the side and swaps them in whole,
+ * so checkouts meanwhile keep reserving against the old ones; reservations are then moved across (see
+ * {@link Reservation}). Oversell protection is strict within one process, such as the till server; separate
+ * desktop tills see each other's sales once they follow the ledger.
+ */
+public class Inventory implements BillCommitListener {
+    public static final String DEFAULT_STOCK_FILE_PATH = "stock.txt";
+    public static final long NOT_TRACKED = -1;
+    public static final long DEFAULT_LOW_STOCK_LEVEL = 5;
+    public static final int COMPACTION_THRESHOLD = 1000;
+    public static final long COMPACTION_INTERVAL_MILLIS = 30_000;
+
+    private static final String FORMAT_HEADER = "SMST,1";
+    // Journal records: +,<record id>,<tracked since bill id>,<delta>,<item id> and L,<record id>,<level>,<item id>
+    private static final String ADJUST_RECORD = "+";
+    private static final String LEVEL_RECORD = "L";
+
+    private final File stockFile;
+    private final MutationJournal journal;
+    private final BillLedger ledger;
+    private volatile Map<String, StockLevel> levels = new ConcurrentHashMap<>(); // Replaced whole on reload, never cleared
+    private final Map<Long, Reservation> reservedBills = new ConcurrentHashMap<>(); // Reserved here, not yet read back from the ledger
+    private final List<StockListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final SaleApplier saleApplier = new SaleApplier();
+    private final Set<Long> ownRecordIds = new HashSet<>(); // Our journal records not yet read back
+    private boolean loaded;
+    private long appliedRecords;             // Ledger records accounted for
+    private long journalOffset;
+    private String loadedSnapshotSignature;
+    private long lastCompactionMillis;
+
+    public Inventory(File stockFile, BillLedger ledger) {
+        this.stockFile = stockFile;
+        this.journal = new MutationJournal(new File(stockFile.getPath() + ".journal"));
+        this.ledger = ledger;
+    }
+
+    public File getStockFile() {
+        return stockFile;
+    }
+
+    public void addStockListener(StockListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStockListener(StockListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Loads stock.txt, its journal, and the sales recorded in the ledger since stock.txt was written.
+     */
+    public synchronized void ensureLoaded() throws IOException {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    // --- Reads ---
+
+    /**
+     * @return The quantity on hand, or {@link #NOT_TRACKED}. May be negative if separate processes oversold.
+     */
+    public long getOnHand(String itemId) {
+        StockLevel level = levels.get(itemId);
+        return level == null ? NOT_TRACKED : level.onHand.get();
+    }
+
+    public boolean isTracked(String itemId) {
+        return levels.containsKey(itemId);
+    }
+
+    /**
+     * @return The low-stock level of a tracked item, or {@link #NOT_TRACKED}.
+     */
+    public long getLowStockLevel(String itemId) {
+        StockLevel level = levels.get(itemId);
+        return level == null ? NOT_TRACKED : level.lowStockLevel;
+    }
+
+    public boolean isLow(String itemId) {
+        StockLevel level = levels.get(itemId);
+        return level != null && level.onHand.get() <= level.lowStockLevel;
+    }
+
+    /**
+     * @return The IDs of the tracked items at or below their low-stock level.
+     */
+    public List<String> getLowStockItemIds() {
+        List<String> low = new ArrayList<>();
+        levels.forEach((id, level) -> {
+            if (level.onHand.get() <= level.lowStockLevel) {
+                low.add(id);
+            }
+        });
+        return low;
+    }
+
+    // --- Checkout ---
+
+    /**
+     * Takes a bill's quantities out of stock before it is committed. Lock-free.
+     * @throws IllegalArgumentException if a tracked item does not have enough stock; nothing is taken then.
+     */
+    public void reserve(Bill bill) {
+        List<BillItem> lines = bill.getBillItems();
+        Map<String, StockLevel> current = levels;
+        boolean anyTracked = false;
+        // Low-stock alerts wait until the whole bill is reserved, so a failed checkout raises none
+        StockLevel[] reservedLevels = new StockLevel[lines.size()];
+        long[] leftByLine = new long[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            BillItem line = lines.get(i);
+            StockLevel level = current.get(line.getItem().getId());
+            if (level == null) {
+                continue;
+            }
+            long left = level.tryTake(line.getQuantity());
+            if (left < 0) {
+                putBack(lines, reservedLevels);
+                long onHand = Math.max(0, level.onHand.get());
+                throw new IllegalArgumentException(onHand == 0
+                        ? "'" + line.getItem().getName() + "' is out of stock."
+                        : "Only " + onHand + " of '" + line.getItem().getName() + "' left in stock.");
+            }
+            anyTracked = true;
+            reservedLevels[i] = level;
+            leftByLine[i] = left;
+        }
+        if (!anyTracked) {
+            return; // Not registered, so the sale is counted when the ledger is followed, whatever the levels are by then
+        }
+        Reservation reservation = new Reservation(bill, current, reservedLevels);
+        reservedBills.put(bill.getBillId(), reservation);
+        reservation.moveTo(levels); // In case a reload swapped the levels before it could see the reservation
+        for (int i = 0; i < lines.size(); i++) {
+            if (reservedLevels[i] != null) {
+                BillItem line = lines.get(i);
+                checkLow(line.getItem().getId(), reservedLevels[i], leftByLine[i] + line.getQuantity(), leftByLine[i]);
+            }
+        }
+    }
+
+    /**
+     * Puts back the stock reserved for a bill that could not be committed.
+     */
+    public void release(Bill bill) {
+        Reservation reservation = reservedBills.remove(bill.getBillId());
+        if (reservation != null) {
+            Taken taken = reservation.taken.getAndSet(null);
+            if (taken != null) {
+                putBack(bill.getBillItems(), taken.stockLevels);
+            }
+        }
+    }
+
+    private static void putBack(List<BillItem> lines, StockLevel[] stockLevels) {
+        for (int i = 0; i < stockLevels.length; i++) {
+            if (stockLevels[i] != null) {
+                stockLevels[i].onHand.addAndGet(lines.get(i).getQuantity());
+            }
+        }
+    }
+
+    // --- Admin ---
+
+    /**
+     * Adds (or, with a negative delta, removes) stock and journals the change. Starts tracking the item if needed.
+     * @return The new quantity on hand.
+     * @throws IllegalArgumentException if stock would go below zero.
+     */
+    public synchronized long adjustStock(String itemId, long delta) throws IOException {
+        followChanges();
+        StockLevel level = levels.get(itemId);
+        long current = level == null ? 0 : level.onHand.get();
+        if (current + delta < 0) {
+            throw new IllegalArgumentException("Stock cannot go below zero (" + current + " on hand).");
+        }
+        long recordId = ThreadLocalRandom.current().nextLong();
+        long trackedSince = level == null ? IdGenerator.firstIdAt(System.currentTimeMillis()) : level.trackedSinceBillId;
+        journal.append(ADJUST_RECORD + "," + recordId + "," + trackedSince + "," + delta + "," + itemId);
+        ownRecordIds.add(recordId);
+        long onHand = applyAdjustment(levels, itemId, trackedSince, delta);
+        compactIfNeeded();
+        return onHand;
+    }
+
+    /**
+     * Sets the quantity on hand, e.g. after a stock count. Sales made meanwhile still count against it.
+     * @return The new quantity on hand.
+     */
+    public synchronized long setStock(String itemId, long quantity) throws IOException {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative.");
+        }
+        followChanges();
+        long current = Math.max(0, getOnHand(itemId));
+        return adjustStock(itemId, quantity - current);
+    }
+
+    /**
+     * Sets the level at or below which the item is reported as low on stock. The item must be tracked.
+     */
+    public synchronized void setLowStockLevel(String itemId, long lowStockLevel) throws IOException {
+        if (lowStockLevel < 0) {
+            throw new IllegalArgumentException("Low-stock level cannot be negative.");
+        }
+        StockLevel level = levels.get(itemId);
+        if (level == null) {
+            throw new IllegalArgumentException("Stock is not tracked for this item yet; add stock first.");
+        }
+        long recordId = ThreadLocalRandom.current().nextLong();
+        journal.append(LEVEL_RECORD + "," + recordId + "," + lowStockLevel + "," + itemId);
+        ownRecordIds.add(recordId);
+        level.lowStockLevel = lowStockLevel;
+        checkLow(itemId, level, Long.MAX_VALUE, level.onHand.get());
+        compactIfNeeded();
+    }
+
+    // --- Following the ledger and journal ---
+
+    /**
+     * Accounts for newly committed sales. Called on the bill-writer thread; loads the inventory first if needed.
+     */
+    @Override
+    public synchronized void billsCommitted(List<Bill> bills) {
+        try {
+            if (!loaded) {
+                load();
+                return;
+            }
+            followChanges();
+            if (System.currentTimeMillis() - lastCompactionMillis >= COMPACTION_INTERVAL_MILLIS) {
+                compact(); // Bounds how much of the ledger the next load has to read
+            }
+        } catch (IOException e) {
+            // Not fatal: nothing is lost, the ledger and journal are read again on the next call
+            System.err.println("Error updating stock levels: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the restocks and sales other processes recorded since the last call, and the ledger records
+     * of our own bills (which were already reserved, so they only clear the reservation).
+     */
+    public synchronized void followChanges() throws IOException {
+        if (!loaded) {
+            return;
+        }
+        journal.lock();
+        try {
+            if (!snapshotSignature().equals(loadedSnapshotSignature) || journal.getJournalFile().length() < journalOffset) {
+                load(); // Another process compacted
+                return;
+            }
+            journalOffset = journal.readFrom(journalOffset, record -> applyRecord(levels, record));
+        } finally {
+            journal.unlock();
+        }
+        appliedRecords = ledger.scanLines(appliedRecords, ledger.getRecordCount(), saleApplier);
+    }
+
+    /**
+     * Writes the current levels to stock.txt, as of the last ledger record applied, and empties the journal.
+     */
+    public synchronized void compact() throws IOException {
+        journal.lock(); // Held from following the journal to the reset, so no other process can append in between
+        try {
+            followChanges();
+            Map<String, Long> inFlight = new HashMap<>(); // Reserved but not in the ledger yet, so not part of "as of"
+            for (Reservation reservation : reservedBills.values()) {
+                Taken taken = reservation.taken.get();
+                if (taken == null || taken.levels != levels) {
+                    continue;
+                }
+                List<BillItem> lines = reservation.bill.getBillItems();
+                for (int i = 0; i < lines.size(); i++) {
+                    if (taken.stockLevels[i] != null) {
+                        inFlight.merge(lines.get(i).getItem().getId(), (long) lines.get(i).getQuantity(), Long::sum);
+                    }
+                }
+            }
+            List<String> lines = new ArrayList<>(levels.size() + 2);
+            lines.add(FORMAT_HEADER);
+            lines.add("records," + appliedRecords);
+            // The item ID comes last so it may contain commas
+            levels.forEach((id, level) -> lines.add((level.onHand.get() + inFlight.getOrDefault(id, 0L)) + ","
+                    + level.lowStockLevel + "," + level.trackedSinceBillId + "," + id));
+            MutationJournal.writeSnapshot(stockFile, lines);
+            journal.reset();
+            journalOffset = 0;
+            ownRecordIds.clear();
+            loadedSnapshotSignature = snapshotSignature();
+            lastCompactionMillis = System.currentTimeMillis();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.getRecordCount() < COMPACTION_THRESHOLD) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Error compacting " + stockFile.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the levels from disk: stock.txt, then the journal, then the ledger records after the ones
+     * stock.txt accounts for. The new levels replace the old ones only once complete, and bills still reserved
+     * by this process are then moved across to them.
+     */
+    private void load() throws IOException {
+        journal.lock(); // stock.txt and the journal are read as a pair, never halfway through another process's compaction
+        try {
+            readSnapshotJournalAndLedger();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void readSnapshotJournalAndLedger() throws IOException {
+        loaded = false;
+        Map<String, StockLevel> loading = new ConcurrentHashMap<>();
+        loadedSnapshotSignature = snapshotSignature();
+        long records = readSnapshot(loading);
+        ownRecordIds.clear(); // On a full load our own records are applied like anyone else's
+        journalOffset = journal.replay(record -> applyRecord(loading, record));
+        if (loading.isEmpty()) {
+            records = ledger.getRecordCount(); // Nothing tracked, so no sale can matter
+        }
+
+        saleApplier.loadingInto = loading;
+        try {
+            records = ledger.scanLines(records, ledger.getRecordCount(), saleApplier);
+        } finally {
+            saleApplier.loadingInto = null;
+        }
+        appliedRecords = records;
+        levels = loading;
+        for (Reservation reservation : reservedBills.values()) { // Still on their way to the ledger
+            reservation.moveTo(loading);
+        }
+        loaded = true;
+        lastCompactionMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return The number of ledger records stock.txt accounts for; 0 without stock.txt, since items stocked
+     *         in the journal alone may already have sales in the ledger.
+     */
+    private long readSnapshot(Map<String, StockLevel> into) throws IOException {
+        if (!stockFile.exists()) {
+            return 0;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(stockFile), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            String records = reader.readLine();
+            if (!FORMAT_HEADER.equals(header) || records == null || !records.startsWith("records,")) {
+                throw new IOException(stockFile.getPath() + " is not a stock file.");
+            }
+            long recordsApplied = Long.parseLong(records.substring("records,".length()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",", 4);
+                if (parts.length != 4) {
+                    System.err.println("Invalid stock line: " + line);
+                    continue;
+                }
+                StockLevel level = into.computeIfAbsent(parts[3], id -> new StockLevel());
+                level.onHand.set(Long.parseLong(parts[0]));
+                level.lowStockLevel = Long.parseLong(parts[1]);
+                level.trackedSinceBillId = Long.parseLong(parts[2]);
+            }
+            return recordsApplied;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number in " + stockFile.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies one journal record to the given levels, unless it is one of ours that was applied when it was written.
+     */
+    private void applyRecord(Map<String, StockLevel> target, String record) {
+        String[] parts = record.split(",", 5);
+        try {
+            if (ownRecordIds.remove(Long.parseLong(parts[1]))) {
+                return;
+            }
+            if (ADJUST_RECORD.equals(parts[0]) && parts.length == 5) {
+                applyAdjustment(target, parts[4], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                return;
+            }
+            if (LEVEL_RECORD.equals(parts[0]) && parts.length == 4) {
+                StockLevel level = target.get(parts[3]);
+                if (level != null) {
+                    level.lowStockLevel = Long.parseLong(parts[2]);
+                }
+                return;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // Fall through to the error below
+        }
+        System.err.println("Invalid stock journal record: " + record);
+    }
+
+    private long applyAdjustment(Map<String, StockLevel> target, String itemId, long trackedSinceBillId, long delta) {
+        StockLevel level = target.computeIfAbsent(itemId, id -> {
+            StockLevel created = new StockLevel();
+            created.trackedSinceBillId = trackedSinceBillId;
+            return created;
+        });
+        long after = level.onHand.addAndGet(delta);
+        if (loaded) {
+            checkLow(itemId, level, after - delta, after);
+        }
+        return after;
+    }
+
+    // Alerts once, when the stock crosses the level, rather than on every sale below it
+    private void checkLow(String itemId, StockLevel level, long before, long after) {
+        if (before > level.lowStockLevel && after <= level.lowStockLevel) {
+            for (StockListener listener : listeners) {
+                try {
+                    listener.lowStock(itemId, after, level.lowStockLevel);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in stock listener: " + e);
+                }
+            }
+        }
+    }
+
+    private String snapshotSignature() {
+        return stockFile.length() + ":" + stockFile.lastModified();
+    }
+
+    private static final class StockLevel {
+        final AtomicLong onHand = new AtomicLong();
+        volatile long lowStockLevel = DEFAULT_LOW_STOCK_LEVEL;
+        volatile long trackedSinceBillId; // Bills with smaller IDs were sold before the item was stocked
+
+        /**
+         * @return The quantity left after taking, or -1 (taking nothing) if there is not enough.
+         */
+        long tryTake(int quantity) {
+            while (true) {
+                long current = onHand.get();
+                if (current < quantity) {
+                    return -1;
+                }
+                if (onHand.compareAndSet(current, current - quantity)) {
+                    return current - quantity;
+                }
+            }
+        }
+    }
+
+    /**
+     * What a reservation took out of stock: the levels it was taken from, and per line the level
+     * taken from, or null where the item was not tracked there.
+     */
+    private static final class Taken {
+        final Map<String, StockLevel> levels;
+        final StockLevel[] stockLevels;
+
+        Taken(Map<String, StockLevel> levels, StockLevel[] stockLevels) {
+            this.levels = levels;
+            this.stockLevels = stockLevels;
+        }
+    }
+
+    /**
+     * A bill reserved here and not yet read back from the ledger. Both a reload and the checkout that
+     * races it may move the reservation to the new levels; the compare-and-set lets only one of them
+     * take it out there, and {@link #release(Bill)} puts back exactly what was taken.
+     */
+    private static final class Reservation {
+        final Bill bill;
+        final AtomicReference<Taken> taken; // Null once released
+
+        Reservation(Bill bill, Map<String, StockLevel> levels, StockLevel[] stockLevels) {
+            this.bill = bill;
+            this.taken = new AtomicReference<>(new Taken(levels, stockLevels));
+        }
+
+        void moveTo(Map<String, StockLevel> target) {
+            List<BillItem> lines = bill.getBillItems();
+            while (true) {
+                Taken current = taken.get();
+                if (current == null || current.levels == target) {
+                    return;
+                }
+                StockLevel[] stockLevels = new StockLevel[lines.size()];
+                for (int i = 0; i < lines.size(); i++) {
+                    stockLevels[i] = target.get(lines.get(i).getItem().getId());
+                }
+                if (taken.compareAndSet(current, new Taken(target, stockLevels))) {
+                    for (int i = 0; i < stockLevels.length; i++) {
+                        if (stockLevels[i] != null) {
+                            stockLevels[i].onHand.addAndGet(-lines.get(i).getQuantity());
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes ledger sales out of stock. Bills this process reserved were taken out at checkout,
+     * except from levels being loaded, which start from disk.
+     */
+    private final class SaleApplier implements BillLedger.LineVisitor {
+        Map<String, StockLevel> loadingInto; // Null unless loading
+        private boolean skipBill;
+
+        @Override
+        public void visit(BillLedger.LineRecord line) {
+            if (line.getLineNumber() == 0) {
+                boolean reservedHere = reservedBills.remove(line.getBillId()) != null;
+                skipBill = reservedHere && loadingInto == null;
+            }
+            Map<String, StockLevel> target = loadingInto == null ? levels : loadingInto;
+            if (skipBill || target.isEmpty()) {
+                return;
+            }
+            String itemId = line.getItemId();
+            StockLevel level = target.get(itemId);
+            if (level == null || line.getBillId() < level.trackedSinceBillId) {
+                return;
+            }
+            long after = level.onHand.addAndGet(-line.getQuantity());
+            if (loaded) {
+                checkLow(itemId, level, after + line.getQuantity(), after);
+            }
+        }
+    }
+}
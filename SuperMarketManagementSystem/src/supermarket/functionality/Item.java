@@ -9,12 +9,12 @@ import java.util.Objects;
 public class Item {
     private String id;
     private String name;
-    private double price;
+    private long pricePaisa; // Exact price in paisa, see Money
 
-    public Item(String id, String name, double price) {
+    public Item(String id, String name, long pricePaisa) {
         this.id = id;
         this.name = name;
-        this.price = price;
+        this.pricePaisa = pricePaisa;
     }
 
     public String getId() {
@@ -25,20 +25,20 @@ public class Item {
         return name;
     }
 
-    public double getPrice() {
-        return price;
+    public long getPricePaisa() {
+        return pricePaisa;
     }
 
     public void setName(String name) {
         this.name = name;
     }
 
-    public void setPrice(double price) {
-        this.price = price;
+    public void setPricePaisa(long pricePaisa) {
+        this.pricePaisa = pricePaisa;
     }
 
     public String toCSVString() {
-        return id + "," + name + "," + price;
+        return id + "," + name + "," + Money.format(pricePaisa);
     }
 
     public static Item fromCSVString(String csvString) {
@@ -50,8 +50,8 @@ public class Item {
             try {
                 String id = parts[0].trim();
                 String name = parts[1].trim();
-                double price = Double.parseDouble(parts[2].trim());
-                return new Item(id, name, price);
+                long pricePaisa = Money.parse(parts[2].trim());
+                return new Item(id, name, pricePaisa);
             } catch (NumberFormatException e) {
                 System.err.println("Error parsing item price from CSV: " + csvString + " - " + e.getMessage());
                 return null;
@@ -63,7 +63,7 @@ public class Item {
 
     @Override
     public String toString() {
-        return name + " - PKR " + String.format("%.2f", price) + " (ID: " + id + ")";
+        return name + " - PKR " + Money.format(pricePaisa) + " (ID: " + id + ")";
     }
 
     @Override
@@ -0,0 +1,645 @@
+package supermarket.functionality;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared, memory-resident catalog of all items in items.txt.
+ * The file is read once; after that lookups by ID and duplicate-name checks
+ * are answered from hash indexes instead of rescanning the file or a list.
+ * Adds and deletes are appended to items.txt.journal rather than rewriting items.txt;
+ * the journal is replayed on load and compacted into items.txt every {@link #COMPACTION_THRESHOLD} records.
+ * items.txt holds either text lines or a {@link BinarySnapshot} (see {@link #convertSnapshot(boolean)});
+ * loads tell them apart by the first bytes and compactions keep the format the file is in.
+ * Changes are announced to {@link CatalogListener}s; {@link #startWatching()} also picks up the changes
+ * other processes append to the journal, so every open till sees them within milliseconds.
+ * Loads, refreshes and compactions hold the journal's cross-process lock (see {@link MutationJournal}).
+ * Items are immutable in practice: a price change replaces the Item instance.
+ * Items whose ID has a numeric {@link ItemCode} are also kept in a slot array indexed by a
+ * {@link LongIntHashMap}, so a barcode scan is resolved without boxing or String hashing.
+ * All methods are synchronized so AdminFrame and SellerFrame can share one instance.
+ */
+public class ItemCatalog {
+    public static final String DEFAULT_ITEMS_FILE_PATH = "items.txt";
+
+    public static final int COMPACTION_THRESHOLD = 1000;
+
+    public static final long WATCH_INTERVAL_MILLIS = 50;
+
+    // Items passed to a LoadProgress at a time when loading a binary snapshot
+    private static final int BINARY_PROGRESS_CHUNK_ITEMS = 32768;
+
+    // Journal record formats. The name comes last so it may contain commas.
+    private static final String ADD_RECORD = "+";
+    private static final String REMOVE_RECORD = "-";
+
+    private static ItemCatalog sharedInstance;
+
+    private final File itemsFile;
+    private final MutationJournal journal;
+    private final Map<String, Item> itemsById = new LinkedHashMap<>(); // Keeps file order for display
+    private final Map<String, Item> itemsByName = new HashMap<>();     // Keyed by normalized name
+    private final ItemSearchIndex searchIndex = new ItemSearchIndex();  // Word prefixes of names and IDs
+    private final LongIntHashMap slotByCode = new LongIntHashMap();     // Item code -> index into itemSlots
+    private Item[] itemSlots = new Item[16];
+    private int slotsUsed;
+    private int[] freeSlots = new int[16];                             // Slots emptied by removals, reused first
+    private int freeSlotCount;
+    private boolean loaded;
+    private long journalOffset;          // Journal bytes applied so far, by us or by other processes
+    private String loadedSnapshotSignature; // Size and time of items.txt as of our last read or write
+    private boolean binarySnapshot;         // items.txt is a BinarySnapshot, so compactions write one too
+    private final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+    private Thread watcherThread;
+
+    public ItemCatalog(File itemsFile) {
+        this.itemsFile = itemsFile;
+        this.journal = new MutationJournal(new File(itemsFile.getPath() + ".journal"));
+    }
+
+    /**
+     * Returns the catalog backed by the default items.txt, shared by every frame in this process.
+     */
+    public static synchronized ItemCatalog getInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new ItemCatalog(new File(DEFAULT_ITEMS_FILE_PATH));
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Normalizes an item name for duplicate detection (case-insensitive, surrounding spaces ignored).
+     */
+    public static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public File getItemsFile() {
+        return itemsFile;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public void addCatalogListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeCatalogListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Loads items.txt if it has not been loaded yet. Creates an empty file if none exists.
+     */
+    public synchronized void ensureLoaded() throws IOException {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Like {@link #ensureLoaded()}, passing the items of items.txt to progress in chunks as they are read.
+     * Nothing is passed if the catalog was already loaded. The journal is replayed after the last chunk,
+     * so take the final state from the catalog once this returns.
+     * @throws java.io.InterruptedIOException if progress was cancelled; the catalog then stays unloaded.
+     */
+    public synchronized void ensureLoaded(LoadProgress<Item> progress) throws IOException {
+        if (!loaded) {
+            load(progress);
+        }
+    }
+
+    /**
+     * Discards the in-memory state, reads the items.txt snapshot (memory-mapped, see {@link MappedItemLoader})
+     * and replays the journal on top of it.
+     */
+    public synchronized void reload() throws IOException {
+        load(null);
+    }
+
+    private void load(LoadProgress<Item> progress) throws IOException {
+        journal.lock(); // The snapshot and journal are read as a pair, never halfway through another process's compaction
+        try {
+            readSnapshotAndJournal(progress);
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void readSnapshotAndJournal(LoadProgress<Item> progress) throws IOException {
+        itemsById.clear();
+        itemsByName.clear();
+        searchIndex.clear();
+        slotByCode.clear();
+        itemSlots = new Item[16];
+        slotsUsed = 0;
+        freeSlotCount = 0;
+        loaded = false;
+        if (!itemsFile.exists()) {
+            if (itemsFile.createNewFile()) { System.out.println(itemsFile.getPath() + " created."); }
+        }
+        FlightEvents.CatalogLoad event = new FlightEvents.CatalogLoad();
+        event.begin();
+        loadedSnapshotSignature = snapshotSignature();
+        binarySnapshot = BinarySnapshot.isBinarySnapshot(itemsFile);
+        if (binarySnapshot) {
+            indexBinarySnapshot(progress);
+        } else if (progress == null) {
+            for (Item item : MappedItemLoader.load(itemsFile)) {
+                index(item);
+            }
+        } else {
+            MappedItemLoader.load(itemsFile, new LoadProgress<Item>() {
+                @Override
+                public void chunkLoaded(List<Item> chunk, long bytesDone, long bytesTotal) {
+                    for (Item item : chunk) {
+                        index(item);
+                    }
+                    progress.chunkLoaded(chunk, bytesDone, bytesTotal);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return progress.isCancelled();
+                }
+            });
+        }
+        journalOffset = journal.replay(this::applyRecord);
+        event.itemCount = itemsById.size();
+        event.snapshotBytes = itemsFile.length();
+        event.journalBytes = journalOffset;
+        event.commit();
+        loaded = true;
+        compactIfNeeded();
+        for (CatalogListener listener : listeners) {
+            notifyListener(() -> listener.catalogReloaded());
+        }
+    }
+
+    private void indexBinarySnapshot(LoadProgress<Item> progress) throws IOException {
+        List<Item> items = BinarySnapshot.readItems(itemsFile);
+        if (progress == null) {
+            for (Item item : items) {
+                index(item);
+            }
+            return;
+        }
+        long fileBytes = itemsFile.length();
+        for (int start = 0; start < items.size(); start += BINARY_PROGRESS_CHUNK_ITEMS) {
+            if (progress.isCancelled()) {
+                throw new InterruptedIOException("Loading " + itemsFile.getPath() + " was cancelled.");
+            }
+            int end = Math.min(start + BINARY_PROGRESS_CHUNK_ITEMS, items.size());
+            List<Item> chunk = new ArrayList<>(items.subList(start, end));
+            for (Item item : chunk) {
+                index(item);
+            }
+            progress.chunkLoaded(chunk, fileBytes * end / items.size(), fileBytes);
+        }
+    }
+
+    /**
+     * Applies the changes other processes made since the last call: new journal records are applied
+     * one by one (and announced to listeners); a snapshot rewritten by another process's compaction
+     * causes a full reload. Costs a couple of file stat calls when nothing changed.
+     */
+    public synchronized void refreshFromDisk() throws IOException {
+        if (!loaded) {
+            return;
+        }
+        journal.lock();
+        try {
+            if (!snapshotSignature().equals(loadedSnapshotSignature) || journal.getJournalFile().length() < journalOffset) {
+                load(null);
+                return;
+            }
+            journalOffset = journal.readFrom(journalOffset, this::applyRecord);
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    /**
+     * Starts a daemon thread that calls {@link #refreshFromDisk()} every {@value #WATCH_INTERVAL_MILLIS} ms,
+     * so changes made by other tills reach this one's listeners. Does nothing if already started.
+     */
+    public synchronized void startWatching() {
+        if (watcherThread != null) {
+            return;
+        }
+        watcherThread = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(WATCH_INTERVAL_MILLIS);
+                    refreshFromDisk();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error checking " + itemsFile.getPath() + " for changes: " + e.getMessage());
+                }
+            }
+        }, "catalog-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private String snapshotSignature() {
+        return itemsFile.length() + ":" + itemsFile.lastModified();
+    }
+
+    public synchronized int size() {
+        return itemsById.size();
+    }
+
+    /**
+     * @return A snapshot copy of all items in catalog order.
+     */
+    public synchronized List<Item> getAllItems() {
+        return new ArrayList<>(itemsById.values());
+    }
+
+    /**
+     * @return All items in catalog order, as a new array of the catalog's own Item instances.
+     */
+    public synchronized Item[] toItemArray() {
+        return itemsById.values().toArray(new Item[0]);
+    }
+
+    public synchronized Item findById(String id) {
+        return id == null ? null : itemsById.get(id);
+    }
+
+    /**
+     * Looks up an item by its numeric {@link ItemCode}; allocation-free.
+     * @return The item, or null if no item has that code.
+     */
+    public synchronized Item findByCode(long code) {
+        if (code == ItemCode.NO_CODE) {
+            return null;
+        }
+        int slot = slotByCode.get(code, -1);
+        return slot < 0 ? null : itemSlots[slot];
+    }
+
+    /**
+     * Resolves a scanned barcode (an item ID). IDs with a numeric code take the allocation-free path;
+     * any other ID falls back to the String index.
+     * @return The item, or null if the barcode is unknown.
+     */
+    public synchronized Item findByScan(CharSequence barcode) {
+        long code = ItemCode.parse(barcode);
+        return code != ItemCode.NO_CODE ? findByCode(code) : findById(barcode.toString());
+    }
+
+    public synchronized Item findByName(String name) {
+        return name == null ? null : itemsByName.get(normalizeName(name));
+    }
+
+    public synchronized boolean containsName(String name) {
+        return findByName(name) != null;
+    }
+
+    /**
+     * Type-ahead search by name or ID word prefixes (see {@link ItemSearchIndex}).
+     * An empty query returns the first items in catalog order.
+     * @return At most limit matching items.
+     */
+    public synchronized List<Item> search(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            List<Item> firstItems = new ArrayList<>(Math.min(limit, itemsById.size()));
+            for (Item item : itemsById.values()) {
+                if (firstItems.size() >= limit) {
+                    break;
+                }
+                firstItems.add(item);
+            }
+            return firstItems;
+        }
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Adds an item and appends it to the journal. Nothing changes in memory if the append fails.
+     * @return false if an item with the same ID or name already exists.
+     * @throws IllegalArgumentException if the name has a comma and items.txt is a text file.
+     */
+    public synchronized boolean addItem(Item item) throws IOException {
+        journal.lock(); // Refreshed and appended as a pair, so the name is checked against the format it will be compacted into
+        try {
+            refreshFromDisk();
+            if (!commasAllowed() && item.getName().indexOf(',') >= 0) {
+                throw new IllegalArgumentException("Item Name cannot contain commas while items.txt is a text file.");
+            }
+            if (itemsById.containsKey(item.getId()) || containsName(item.getName())) {
+                return false;
+            }
+            journalOffset = journal.append(addRecord(item)); // Not re-read: everything before it was read by the refresh
+            index(item);
+            fireItemAdded(item);
+            compactIfNeeded();
+            return true;
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    /**
+     * Adds many items with a single journal write, e.g. for an import. Items whose ID or name is already taken
+     * (in the catalog or earlier in the list) are skipped. Listeners get one {@link CatalogListener#catalogReloaded()}
+     * rather than an event per item, and at most one compaction follows. Names with a comma are skipped too
+     * while items.txt is a text file.
+     * @return The items that were skipped.
+     */
+    public synchronized List<Item> addItems(List<Item> items) throws IOException {
+        journal.lock(); // As in addItem
+        try {
+            refreshFromDisk();
+            boolean commasAllowed = commasAllowed();
+            List<Item> added = new ArrayList<>(items.size());
+            List<Item> skipped = new ArrayList<>();
+            Set<String> batchIds = new HashSet<>();
+            Set<String> batchNames = new HashSet<>();
+            for (Item item : items) {
+                String name = normalizeName(item.getName());
+                if (itemsById.containsKey(item.getId()) || itemsByName.containsKey(name)
+                        || batchIds.contains(item.getId()) || batchNames.contains(name)
+                        || (!commasAllowed && name.indexOf(',') >= 0)) {
+                    skipped.add(item);
+                } else {
+                    batchIds.add(item.getId());
+                    batchNames.add(name);
+                    added.add(item);
+                }
+            }
+            List<String> records = new ArrayList<>(added.size());
+            for (Item item : added) {
+                records.add(addRecord(item));
+            }
+            journalOffset = journal.appendAll(records);
+            for (Item item : added) {
+                index(item);
+            }
+            if (loaded && !added.isEmpty()) {
+                for (CatalogListener listener : listeners) {
+                    notifyListener(() -> listener.catalogReloaded());
+                }
+            }
+            compactIfNeeded();
+            return skipped;
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    /**
+     * Replaces an item's price and appends the change to the journal. The catalog gets a new Item instance,
+     * so bills that already hold the old one keep the price they were rung up with.
+     * @return The updated item, or null if no item has that ID.
+     */
+    public synchronized Item updatePrice(String id, long newPricePaisa) throws IOException {
+        journal.lock(); // As in addItem
+        try {
+            refreshFromDisk();
+            Item existing = itemsById.get(id);
+            if (existing == null) {
+                return null;
+            }
+            if (existing.getPricePaisa() == newPricePaisa) {
+                return existing;
+            }
+            Item updated = new Item(id, existing.getName(), newPricePaisa);
+            journalOffset = journal.append(addRecord(updated)); // Add records are upserts on replay
+            unindex(existing);
+            index(updated);
+            fireItemUpdated(existing, updated);
+            compactIfNeeded();
+            return updated;
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    /**
+     * Removes the item with the given ID and appends the deletion to the journal.
+     * @return The removed item, or null if no item has that ID.
+     */
+    public synchronized Item removeItem(String id) throws IOException {
+        journal.lock(); // As in addItem
+        try {
+            refreshFromDisk();
+            Item removed = itemsById.get(id);
+            if (removed == null) {
+                return null;
+            }
+            journalOffset = journal.append(REMOVE_RECORD + "," + id);
+            unindex(removed);
+            fireItemRemoved(removed);
+            compactIfNeeded();
+            return removed;
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    /**
+     * Rewrites items.txt as a {@link BinarySnapshot}, or as text lines, folding in the journal. Later compactions,
+     * by this or any other process, keep that format.
+     * @throws IllegalArgumentException if converting to text while an item name contains a comma, which the
+     *         text format cannot hold; nothing is written then.
+     */
+    public synchronized void convertSnapshot(boolean binary) throws IOException {
+        ensureLoaded();
+        journal.lock(); // So no other process can add a name with a comma after the check
+        try {
+            refreshFromDisk(); // Now, so a reload during the compaction cannot reset the format
+            if (!binary) {
+                for (Item item : itemsById.values()) {
+                    if (item.getName().indexOf(',') >= 0) {
+                        throw new IllegalArgumentException("Item " + item.getId() + " ('" + item.getName()
+                                + "') has a comma in its name, which a text items.txt cannot hold. Delete it or keep items.txt binary.");
+                    }
+                }
+            }
+            binarySnapshot = binary;
+            compact();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    public synchronized boolean isBinarySnapshot() {
+        return binarySnapshot;
+    }
+
+    // Called with the journal lock held, after refreshFromDisk, so a conversion to text by another process is seen
+    private boolean commasAllowed() throws IOException {
+        return loaded ? binarySnapshot : BinarySnapshot.isBinarySnapshot(itemsFile);
+    }
+
+    /**
+     * Writes the current state to items.txt (in its current format) and empties the journal.
+     */
+    public synchronized void compact() throws IOException {
+        journal.lock(); // Held from the refresh to the reset, so no other process can append in between
+        try {
+            if (loaded) {
+                refreshFromDisk(); // Fold in what other processes appended, or the reset would discard it
+            }
+            FlightEvents.CatalogSave event = new FlightEvents.CatalogSave();
+            event.begin();
+            if (binarySnapshot) {
+                BinarySnapshot.writeItems(itemsFile, itemsById.values());
+            } else {
+                List<String> lines = new ArrayList<>(itemsById.size());
+                for (Item item : itemsById.values()) {
+                    lines.add(item.toCSVString());
+                }
+                MutationJournal.writeSnapshot(itemsFile, lines);
+            }
+            event.itemCount = itemsById.size();
+            event.bytes = itemsFile.length();
+            event.commit();
+            journal.reset();
+            journalOffset = 0;
+            loadedSnapshotSignature = snapshotSignature();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.getRecordCount() < COMPACTION_THRESHOLD) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            // Not fatal: every mutation is still in the journal, so compaction is retried on the next one
+            System.err.println("Error compacting " + itemsFile.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private static String addRecord(Item item) {
+        return ADD_RECORD + "," + item.getId() + "," + Money.format(item.getPricePaisa()) + "," + item.getName();
+    }
+
+    /**
+     * Applies one journal record. Records are idempotent, so replaying a journal that was already
+     * folded into the snapshot (crash between snapshot rename and journal reset) is harmless. Our own
+     * records are never re-read while following the journal: each change refreshes and appends under
+     * the journal lock, then moves {@code journalOffset} past its record.
+     */
+    private void applyRecord(String record) {
+        String[] parts = record.split(",", 4);
+        try {
+            if (ADD_RECORD.equals(parts[0]) && parts.length == 4) {
+                Item item = new Item(parts[1], parts[3], Money.parse(parts[2]));
+                Item existing = itemsById.get(item.getId());
+                if (existing == null) {
+                    index(item);
+                    fireItemAdded(item);
+                } else if (existing.getPricePaisa() != item.getPricePaisa() || !existing.getName().equals(item.getName())) {
+                    unindex(existing);
+                    index(item);
+                    fireItemUpdated(existing, item);
+                }
+                return;
+            }
+            if (REMOVE_RECORD.equals(parts[0]) && parts.length == 2) {
+                Item existing = itemsById.get(parts[1]);
+                if (existing != null) {
+                    unindex(existing);
+                    fireItemRemoved(existing);
+                }
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        System.err.println("Invalid item journal record: " + record);
+    }
+
+    // Per-item events are only sent once loaded; a load announces itself with catalogReloaded
+    private void fireItemAdded(Item item) {
+        if (loaded) {
+            for (CatalogListener listener : listeners) {
+                notifyListener(() -> listener.itemAdded(item));
+            }
+        }
+    }
+
+    private void fireItemRemoved(Item item) {
+        if (loaded) {
+            for (CatalogListener listener : listeners) {
+                notifyListener(() -> listener.itemRemoved(item));
+            }
+        }
+    }
+
+    private void fireItemUpdated(Item oldItem, Item newItem) {
+        if (loaded) {
+            for (CatalogListener listener : listeners) {
+                notifyListener(() -> listener.itemUpdated(oldItem, newItem));
+            }
+        }
+    }
+
+    // A failing listener must not undo or block a change that is already in the journal
+    private void notifyListener(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error in catalog listener: " + e);
+        }
+    }
+
+    private void index(Item item) {
+        itemsById.put(item.getId(), item);
+        itemsByName.put(normalizeName(item.getName()), item);
+        searchIndex.add(item);
+        long code = ItemCode.parse(item.getId());
+        if (code != ItemCode.NO_CODE) {
+            int slot = allocateSlot();
+            itemSlots[slot] = item;
+            slotByCode.put(code, slot);
+        }
+    }
+
+    private void unindex(Item item) {
+        itemsById.remove(item.getId());
+        itemsByName.remove(normalizeName(item.getName()));
+        searchIndex.remove(item);
+        long code = ItemCode.parse(item.getId());
+        if (code != ItemCode.NO_CODE) {
+            int slot = slotByCode.remove(code, -1);
+            if (slot >= 0) {
+                itemSlots[slot] = null;
+                if (freeSlotCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+                }
+                freeSlots[freeSlotCount++] = slot;
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotsUsed == itemSlots.length) {
+            itemSlots = Arrays.copyOf(itemSlots, slotsUsed * 2);
+        }
+        return slotsUsed++;
+    }
+}
@@ -0,0 +1,67 @@
+package supermarket.functionality;
+
+/**
+ * Numeric item codes, as printed on barcodes: the item ID read as a number, so a scan can be
+ * looked up in a primitive map without building or hashing a String.
+ * <ul>
+ * <li>IDs from {@link IdGenerator} (all digits, no leading zero) are their own code.</li>
+ * <li>Legacy IDs of the form {@code <millis>-<random>} (up to 15 and 3 digits) are encoded
+ *     as {@code millis * 1000 + random} with the sign bit set, so they never clash with the above.</li>
+ * </ul>
+ * Any other ID has no code ({@link #NO_CODE}) and is looked up by its String instead.
+ */
+public final class ItemCode {
+    public static final long NO_CODE = LongIntHashMap.NO_KEY;
+
+    private static final int MAX_LEGACY_MILLIS_DIGITS = 15;
+    private static final int MAX_LEGACY_RANDOM_DIGITS = 3;
+
+    private ItemCode() {
+    }
+
+    /**
+     * Parses an item ID or scanned barcode without allocating.
+     * @return The item code, or {@link #NO_CODE} if the text is not in a form that has one.
+     */
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        int dash = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '-' && dash < 0) {
+                dash = i;
+            } else if (c < '0' || c > '9') {
+                return NO_CODE;
+            }
+        }
+        if (dash < 0) {
+            return parseDigits(text, 0, length);
+        }
+        int randomDigits = length - dash - 1;
+        if (dash == 0 || dash > MAX_LEGACY_MILLIS_DIGITS || randomDigits == 0 || randomDigits > MAX_LEGACY_RANDOM_DIGITS) {
+            return NO_CODE;
+        }
+        long millis = parseDigits(text, 0, dash);
+        long random = parseDigits(text, dash + 1, length);
+        if (millis == NO_CODE || random == NO_CODE) {
+            return NO_CODE;
+        }
+        return Long.MIN_VALUE | (millis * 1000 + random);
+    }
+
+    // Canonical decimal only (no leading zeros), so every code comes from exactly one ID
+    private static long parseDigits(CharSequence text, int start, int end) {
+        if (start == end || (text.charAt(start) == '0' && end - start > 1)) {
+            return NO_CODE;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return NO_CODE; // Too large for a long
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,333 @@
+package supermarket.functionality;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk import of new items from a supplier's CSV file, and the matching export.
+ * <p>
+ * The file is streamed in chunks of {@link #CHUNK_LINES} lines. Each chunk's rows are parsed and validated in
+ * parallel, then checked in order for names repeated within the file (a hash map) and names already in the
+ * catalog (its name index), and given fresh IDs. Accepted items are committed with a single
+ * {@link ItemCatalog#addItems(List)} call, i.e. one journal write, so a 50k-row price list costs one append
+ * and one compaction instead of a file rewrite per row. Every rejected row is written to a reject report
+ * with its line number and reason.
+ * <p>
+ * The CSV has a header row naming its columns: name and price are required, id is optional (an export has all
+ * three, so an export of one catalog can be imported into another). Fields may be quoted as in RFC 4180.
+ */
+public class ItemImporter {
+    public static final int CHUNK_LINES = 8192;
+    public static final String REJECT_FILE_SUFFIX = ".rejects.csv";
+
+    private final ItemCatalog catalog;
+    private final IdGenerator ids;
+
+    public ItemImporter(ItemCatalog catalog, IdGenerator ids) {
+        this.catalog = catalog;
+        this.ids = ids;
+    }
+
+    /**
+     * @return Where the reject report for an import of this file goes, e.g. prices.csv.rejects.csv.
+     */
+    public static File rejectFileFor(File csvFile) {
+        return new File(csvFile.getPath() + REJECT_FILE_SUFFIX);
+    }
+
+    /**
+     * Counts of one import.
+     */
+    public static final class Result {
+        private final int rowsRead;
+        private final int imported;
+        private final int rejected;
+        private final File rejectFile;
+
+        Result(int rowsRead, int imported, int rejected, File rejectFile) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.rejectFile = rejectFile;
+        }
+
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return The reject report, or null if no row was rejected (no report is left behind then).
+         */
+        public File getRejectFile() {
+            return rejected == 0 ? null : rejectFile;
+        }
+    }
+
+    /**
+     * Imports the new items of a CSV file. Nothing is added to the catalog unless the whole file could be read.
+     * @throws IllegalArgumentException if the header row lacks a name or price column.
+     */
+    public Result importCsv(File csvFile, File rejectFile) throws IOException {
+        List<Item> accepted = new ArrayList<>();
+        Map<String, Integer> lineByName = new HashMap<>(); // Normalized names accepted so far -> line
+        Map<String, Integer> lineById = new HashMap<>();
+        int rowsRead = 0;
+        int rejected = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8));
+             Writer rejects = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejectFile), StandardCharsets.UTF_8))) {
+            rejects.write("line,reason,row\n");
+            catalog.ensureLoaded();
+            Columns columns = Columns.of(reader.readLine(), catalog.isBinarySnapshot());
+            int lineNumber = 1;
+            String[] lines = new String[CHUNK_LINES];
+            Row[] rows = new Row[CHUNK_LINES];
+            while (true) {
+                int count = 0;
+                String line;
+                while (count < CHUNK_LINES && (line = reader.readLine()) != null) {
+                    lines[count++] = line;
+                }
+                if (count == 0) {
+                    break;
+                }
+                int chunkSize = count;
+                IntStream.range(0, chunkSize).parallel().forEach(i -> rows[i] = columns.parse(lines[i]));
+
+                for (int i = 0; i < chunkSize; i++) { // In file order, so the first of two duplicates wins
+                    lineNumber++;
+                    Row row = rows[i];
+                    if (row == null) {
+                        continue; // Blank line
+                    }
+                    rowsRead++;
+                    String reason = row.rejectReason;
+                    if (reason == null) {
+                        reason = checkUnique(row, lineNumber, lineByName, lineById);
+                    }
+                    if (reason != null) {
+                        writeReject(rejects, lineNumber, reason, lines[i]);
+                        rejected++;
+                        continue;
+                    }
+                    String id = row.id != null ? row.id : Long.toString(ids.nextId());
+                    accepted.add(new Item(id, row.name, row.pricePaisa));
+                    lineByName.put(ItemCatalog.normalizeName(row.name), lineNumber);
+                    lineById.put(id, lineNumber);
+                }
+            }
+
+            // Only items added to the catalog, or a conversion of items.txt to text, since the checks above can skip items here
+            List<Item> skipped = catalog.addItems(accepted);
+            for (Item item : skipped) {
+                String reason = item.getName().indexOf(',') >= 0 && !catalog.isBinarySnapshot()
+                        ? "Item Name cannot contain commas while items.txt is a text file."
+                        : "Item with this Name or ID was added meanwhile.";
+                writeReject(rejects, lineById.get(item.getId()), reason, item.getName() + "," + Money.format(item.getPricePaisa()));
+            }
+            rejected += skipped.size();
+            accepted.removeAll(skipped);
+        }
+        if (rejected == 0) {
+            rejectFile.delete();
+        }
+        return new Result(rowsRead, accepted.size(), rejected, rejectFile);
+    }
+
+    private String checkUnique(Row row, int lineNumber, Map<String, Integer> lineByName, Map<String, Integer> lineById) {
+        String name = ItemCatalog.normalizeName(row.name);
+        Integer earlierLine = lineByName.get(name);
+        if (earlierLine != null) {
+            return "Same name as line " + earlierLine + ".";
+        }
+        if (catalog.containsName(row.name)) {
+            return "Item with this Name already exists.";
+        }
+        if (row.id != null) {
+            earlierLine = lineById.get(row.id);
+            if (earlierLine != null) {
+                return "Same ID as line " + earlierLine + ".";
+            }
+            if (catalog.findById(row.id) != null) {
+                return "Item with this ID already exists.";
+            }
+        }
+        return null;
+    }
+
+    private static void writeReject(Writer rejects, int lineNumber, String reason, String line) throws IOException {
+        rejects.write(lineNumber + "," + quote(reason) + "," + quote(line) + "\n");
+    }
+
+    /**
+     * Writes every item to a CSV file with an id,name,price header, streaming from a snapshot of the catalog.
+     * @return The number of items written.
+     */
+    public int exportCsv(File csvFile) throws IOException {
+        Item[] items = catalog.toItemArray();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8))) {
+            out.write("id,name,price\n");
+            for (Item item : items) {
+                out.write(quote(item.getId()));
+                out.write(',');
+                out.write(quote(item.getName()));
+                out.write(',');
+                out.write(Money.format(item.getPricePaisa()));
+                out.write('\n');
+            }
+        }
+        return items.length;
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Splits one CSV line, honouring quoted fields with "" escapes.
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * One parsed row: either a valid item without its uniqueness checked yet, or a reason for rejecting it.
+     */
+    private static final class Row {
+        String id;
+        String name;
+        long pricePaisa;
+        String rejectReason;
+    }
+
+    /**
+     * Column positions, from the header row, and whether names may contain commas (see {@link PosEngine#validateNewItem}).
+     */
+    private static final class Columns {
+        final int id;
+        final int name;
+        final int price;
+        final boolean commasAllowed;
+
+        Columns(int id, int name, int price, boolean commasAllowed) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.commasAllowed = commasAllowed;
+        }
+
+        static Columns of(String header, boolean commasAllowed) {
+            if (header == null) {
+                throw new IllegalArgumentException("The file is empty.");
+            }
+            if (header.startsWith("\uFEFF")) { // Byte order mark written by spreadsheet programs
+                header = header.substring(1);
+            }
+            List<String> names = splitCsvLine(header);
+            int id = -1, name = -1, price = -1;
+            for (int i = 0; i < names.size(); i++) {
+                switch (names.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "id": case "item id": id = i; break;
+                    case "name": case "item name": name = i; break;
+                    case "price": case "price (pkr)": price = i; break;
+                    default: break; // Other supplier columns are ignored
+                }
+            }
+            if (name < 0 || price < 0) {
+                throw new IllegalArgumentException("The first row must name the columns, including name and price.");
+            }
+            return new Columns(id, name, price, commasAllowed);
+        }
+
+        /**
+         * @return The parsed row, or null for a blank line. Called from several threads at once.
+         */
+        Row parse(String line) {
+            if (line.trim().isEmpty()) {
+                return null;
+            }
+            Row row = new Row();
+            List<String> fields = splitCsvLine(line);
+            if (fields.size() <= Math.max(id, Math.max(name, price))) {
+                row.rejectReason = "Missing columns.";
+                return row;
+            }
+            row.name = fields.get(name).trim();
+            try {
+                row.pricePaisa = PosEngine.validateNewItem(row.name, fields.get(price).trim(), commasAllowed);
+            } catch (IllegalArgumentException e) {
+                row.rejectReason = e.getMessage();
+                return row;
+            }
+            if (id >= 0 && !fields.get(id).trim().isEmpty()) {
+                row.id = fields.get(id).trim();
+                row.rejectReason = checkId(row.id);
+            }
+            return row;
+        }
+
+        // A supplier ID must fit the bill ledger, or every checkout with the item would be refused, and be one word for SCAN
+        private static String checkId(String id) {
+            if (id.indexOf(',') >= 0) {
+                return "Item ID cannot contain commas.";
+            }
+            if (id.getBytes(StandardCharsets.UTF_8).length > BillLedger.MAX_ITEM_ID_BYTES) {
+                return "Item ID is longer than " + BillLedger.MAX_ITEM_ID_BYTES + " bytes.";
+            }
+            for (int i = 0; i < id.length(); i++) {
+                if (Character.isWhitespace(id.charAt(i))) {
+                    return "Item ID cannot contain spaces.";
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package supermarket.functionality;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Word-prefix index over item names and IDs for type-ahead search.
+ * Every word of a name and ID (split on anything that is not a letter or digit) and the whole ID are kept
+ * in a sorted map, so all items having a word that starts with a prefix form one contiguous range,
+ * found in O(log n). A query matches an item when each query word is a prefix of one of its words,
+ * e.g. "bro br" finds "Brown Bread".
+ * <p>
+ * Not thread-safe; {@link ItemCatalog} updates it under its own lock as items are added and removed.
+ */
+public class ItemSearchIndex {
+    /**
+     * Upper bound on candidates examined per query, so a query whose words rarely occur together
+     * still answers in bounded time. Results may then be incomplete, never wrong.
+     */
+    public static final int MAX_CANDIDATES_EXAMINED = 20_000;
+
+    private final NavigableMap<String, List<Item>> itemsByWord = new TreeMap<>();
+
+    public void add(Item item) {
+        for (String word : wordsOf(item)) {
+            itemsByWord.computeIfAbsent(word, w -> new ArrayList<>(1)).add(item);
+        }
+    }
+
+    public void remove(Item item) {
+        for (String word : wordsOf(item)) {
+            List<Item> items = itemsByWord.get(word);
+            if (items != null) {
+                items.remove(item);
+                if (items.isEmpty()) {
+                    itemsByWord.remove(word);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        itemsByWord.clear();
+    }
+
+    /**
+     * @return Up to limit items matching every word of the query, ordered by their matching word.
+     */
+    public List<Item> search(String query, int limit) {
+        List<String> queryWords = split(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Scan the range of the most selective word; counting stops once a word is known to be no better
+        String scanWord = null;
+        int scanCount = Integer.MAX_VALUE;
+        for (String word : queryWords) {
+            int count = countCandidates(word, Math.min(scanCount, MAX_CANDIDATES_EXAMINED));
+            if (count < scanCount) {
+                scanWord = word;
+                scanCount = count;
+            }
+        }
+
+        Set<Item> results = new LinkedHashSet<>();
+        int examined = 0;
+        for (Map.Entry<String, List<Item>> entry : range(scanWord).entrySet()) {
+            for (Item item : entry.getValue()) {
+                if (++examined > MAX_CANDIDATES_EXAMINED) {
+                    return new ArrayList<>(results);
+                }
+                if (queryWords.size() == 1 || matchesAll(item, queryWords)) {
+                    results.add(item);
+                    if (results.size() >= limit) {
+                        return new ArrayList<>(results);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    private NavigableMap<String, List<Item>> range(String prefix) {
+        return itemsByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * @return The number of items having a word with this prefix, or cap if there are at least that many.
+     */
+    private int countCandidates(String prefix, int cap) {
+        int count = 0;
+        for (List<Item> items : range(prefix).values()) {
+            count += items.size();
+            if (count >= cap) {
+                return cap;
+            }
+        }
+        return count;
+    }
+
+    private static boolean matchesAll(Item item, List<String> queryWords) {
+        Set<String> itemWords = wordsOf(item);
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String itemWord : itemWords) {
+                if (itemWord.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The distinct words of the name and ID, plus the whole ID (IDs such as "1700000000000-12" contain separators).
+     */
+    private static Set<String> wordsOf(Item item) {
+        Set<String> words = new LinkedHashSet<>(split(item.getName()));
+        words.addAll(split(item.getId()));
+        words.add(item.getId().toLowerCase(Locale.ROOT));
+        return words;
+    }
+
+    /**
+     * Lower-cases the text and splits it into words of letters and digits.
+     */
+    private static List<String> split(String text) {
+        List<String> words = new ArrayList<>(4);
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
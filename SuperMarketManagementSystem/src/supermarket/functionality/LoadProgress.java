@@ -0,0 +1,25 @@
+package supermarket.functionality;
+
+import java.util.List;
+
+/**
+ * Receives the records of a data file in chunks as they are read, so a window can show them and a progress bar
+ * long before a large file is loaded. Called on the loading thread, possibly while the store being loaded is
+ * locked, so implementations must return quickly (Swing ones hand the chunk to the EDT).
+ */
+public interface LoadProgress<T> {
+    /**
+     * @param chunk The records just read, in file order. The loader keeps no reference to the list.
+     * @param bytesDone How far into the file the load is.
+     * @param bytesTotal The size of the file.
+     */
+    void chunkLoaded(List<T> chunk, long bytesDone, long bytesTotal);
+
+    /**
+     * Checked between chunks: once true, the load stops with an {@link java.io.InterruptedIOException}
+     * and the store stays unloaded.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
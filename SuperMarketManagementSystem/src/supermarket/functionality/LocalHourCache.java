@@ -0,0 +1,50 @@
+package supermarket.functionality;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Maps bill times to local calendar days and hours of the day. Bills are read in time order,
+ * so the hour of the previous lookup almost always applies again and is checked first.
+ * Not thread-safe.
+ */
+final class LocalHourCache {
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final ZoneId zone;
+    private long hourStart = Long.MAX_VALUE;
+    private long hourEnd = Long.MIN_VALUE;
+    private LocalDate day;
+    private int hour;
+
+    LocalHourCache(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Moves to the hour containing the given time.
+     * @return true if that is a different hour than before, i.e. {@link #getDay()} may have changed.
+     */
+    boolean moveTo(long epochMillis) {
+        if (epochMillis >= hourStart && epochMillis < hourEnd) {
+            return false;
+        }
+        ZonedDateTime time = Instant.ofEpochMilli(epochMillis).atZone(zone);
+        hourStart = time.truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+        hourEnd = hourStart + HOUR_MILLIS;
+        day = time.toLocalDate();
+        hour = time.getHour();
+        return true;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    int getHour() {
+        return hour;
+    }
+}
@@ -0,0 +1,153 @@
+package supermarket.functionality;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values, with linear probing.
+ * Keys and values live in two primitive arrays, so lookups never box and never allocate.
+ * The key {@link #NO_KEY} is reserved to mark empty buckets and cannot be stored.
+ * Not thread-safe.
+ */
+public class LongIntHashMap {
+    public static final long NO_KEY = -1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The value for the key, or missingValue if the key is not present (always for {@link #NO_KEY}).
+     */
+    public int get(long key, int missingValue) {
+        if (key == NO_KEY) {
+            return missingValue; // It would match an empty bucket
+        }
+        int bucket = bucketOf(key);
+        while (true) {
+            long candidate = keys[bucket];
+            if (candidate == key) {
+                return values[bucket];
+            }
+            if (candidate == NO_KEY) {
+                return missingValue;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     */
+    public void put(long key, int value) {
+        if (key == NO_KEY) {
+            throw new IllegalArgumentException("Key " + NO_KEY + " is reserved");
+        }
+        int bucket = bucketOf(key);
+        while (keys[bucket] != NO_KEY) {
+            if (keys[bucket] == key) {
+                values[bucket] = value;
+                return;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        keys[bucket] = key;
+        values[bucket] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the key. Later entries of the probe run are shifted back instead of leaving tombstones,
+     * so lookups stay short however many removals there have been.
+     * @return The removed value, or missingValue if the key was not present (always for {@link #NO_KEY}).
+     */
+    public int remove(long key, int missingValue) {
+        if (key == NO_KEY) {
+            return missingValue;
+        }
+        int bucket = bucketOf(key);
+        while (keys[bucket] != key) {
+            if (keys[bucket] == NO_KEY) {
+                return missingValue;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        int removed = values[bucket];
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (keys[next] != NO_KEY) {
+            int home = bucketOf(keys[next]);
+            // Move the entry into the gap unless its home bucket lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = NO_KEY;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, NO_KEY);
+        size = 0;
+    }
+
+    private int bucketOf(long key) {
+        // MurmurHash3 finalizer: sequential IDs would otherwise fill neighbouring buckets
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 <= expectedSize) { // Load factor at most 0.75
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, NO_KEY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
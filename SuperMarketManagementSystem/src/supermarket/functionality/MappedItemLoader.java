@@ -0,0 +1,314 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk loader for items.txt that memory-maps the file and parses the bytes directly.
+ * Accepts the same format as {@link Item#fromCSVString(String)} (id,name,price with optional
+ * surrounding spaces) but finds delimiters by scanning bytes, so no line String, split array
+ * or trimmed copies are created; only the id and name Strings of each item are allocated.
+ * In parallel mode the file is cut into chunks on newline boundaries and parsed on all cores.
+ * {@link #load(File, LoadProgress)} hands the items over chunk by chunk as they are parsed.
+ */
+public final class MappedItemLoader {
+    /** Files at least this large are parsed in parallel by {@link #load(File)}. */
+    public static final long PARALLEL_THRESHOLD_BYTES = 8L * 1024 * 1024;
+
+    // Keep every mapped chunk well below the 2 GB limit of a single MappedByteBuffer
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    /** Size of the chunks passed to a {@link LoadProgress}, about 30,000 items. */
+    public static final long PROGRESS_CHUNK_BYTES = 1L << 20;
+
+    private static final long INVALID_PRICE = Long.MIN_VALUE;
+
+    private MappedItemLoader() {
+    }
+
+    /**
+     * Loads all items, choosing parallel parsing for large files.
+     */
+    public static List<Item> load(File file) throws IOException {
+        return load(file, file.length() >= PARALLEL_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Loads all items in file order.
+     * @param parallel Whether to parse newline-aligned chunks on the common fork-join pool.
+     */
+    public static List<Item> load(File file, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+            int chunkCount = (int) Math.max((size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES,
+                    parallel ? Runtime.getRuntime().availableProcessors() * 4L : 1L);
+            long[] bounds = chunkBounds(channel, size, chunkCount);
+            List<List<Item>> parsedChunks = parseChunks(channel, bounds, 0, bounds.length - 1, parallel);
+
+            int total = 0;
+            for (List<Item> chunk : parsedChunks) {
+                total += chunk.size();
+            }
+            List<Item> items = new ArrayList<>(total);
+            for (List<Item> chunk : parsedChunks) {
+                items.addAll(chunk);
+            }
+            return items;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Loads all items in file order, passing them to progress in chunks of about {@link #PROGRESS_CHUNK_BYTES}
+     * as soon as each is parsed. Large files are parsed one chunk per core at a time.
+     * @throws InterruptedIOException if progress was cancelled; the chunks passed so far are all that was read.
+     */
+    public static void load(File file, LoadProgress<Item> progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            boolean parallel = size >= PARALLEL_THRESHOLD_BYTES;
+            int chunkCount = (int) ((size + PROGRESS_CHUNK_BYTES - 1) / PROGRESS_CHUNK_BYTES);
+            long[] bounds = chunkBounds(channel, size, chunkCount);
+            int chunksAtATime = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+            for (int first = 0; first < bounds.length - 1; first += chunksAtATime) {
+                if (progress.isCancelled()) {
+                    throw new InterruptedIOException("Loading " + file.getPath() + " was cancelled.");
+                }
+                int end = Math.min(first + chunksAtATime, bounds.length - 1);
+                List<List<Item>> parsedChunks = parseChunks(channel, bounds, first, end, parallel);
+                for (int i = first; i < end; i++) {
+                    progress.chunkLoaded(parsedChunks.get(i - first), bounds[i + 1], size);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses the ranges [bounds[first], bounds[end]), one list of items per range.
+     */
+    private static List<List<Item>> parseChunks(FileChannel channel, long[] bounds, int first, int end, boolean parallel) {
+        if (parallel && end - first > 1) {
+            return IntStream.range(first, end).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toList();
+        }
+        List<List<Item>> parsedChunks = new ArrayList<>();
+        for (int i = first; i < end; i++) {
+            parsedChunks.add(parseChunk(channel, bounds[i], bounds[i + 1]));
+        }
+        return parsedChunks;
+    }
+
+    /**
+     * Splits [0, size) into roughly equal ranges whose boundaries fall just after a newline.
+     * @return Ascending boundaries, first is 0 and last is size; empty ranges are dropped.
+     */
+    private static long[] chunkBounds(FileChannel channel, long size, int chunkCount) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long target = size / chunkCount;
+        long previous = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunkCount; i++) {
+            long position = Math.max(previous, i * target);
+            long boundary = size;
+            // Advance to the byte after the next newline
+            while (position < size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) {
+                    break;
+                }
+                int newline = -1;
+                for (int j = 0; j < read; j++) {
+                    if (probe.get(j) == '\n') {
+                        newline = j;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    boundary = position + newline + 1;
+                    break;
+                }
+                position += read;
+            }
+            if (boundary > previous && boundary < size) {
+                bounds.add(boundary);
+                previous = boundary;
+            }
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static List<Item> parseChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Item> items = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, (end - start) / 32 + 1));
+        byte[] scratch = new byte[256];
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd - lineStart > scratch.length) {
+                scratch = new byte[Math.max(lineEnd - lineStart, scratch.length * 2)];
+            }
+            Item item = parseLine(buffer, lineStart, lineEnd, scratch);
+            if (item != null) {
+                items.add(item);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return items;
+    }
+
+    /**
+     * Parses one line [start, end) of the mapped buffer. Invalid lines are reported and skipped
+     * exactly like {@link Item#fromCSVString(String)}; blank lines are skipped silently.
+     */
+    private static Item parseLine(MappedByteBuffer buffer, int start, int end, byte[] scratch) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int firstComma = -1;
+        int secondComma = -1;
+        int commas = 0;
+        boolean blank = true;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                if (commas == 0) {
+                    firstComma = i;
+                } else if (commas == 1) {
+                    secondComma = i;
+                }
+                commas++;
+            } else if ((b & 0xFF) > ' ') {
+                blank = false;
+            }
+        }
+        if (blank && commas == 0) {
+            return null;
+        }
+        if (commas != 2) {
+            System.err.println("Invalid CSV string for Item (expected 3 parts): " + lineString(buffer, start, end, scratch));
+            return null;
+        }
+        // split(",") drops trailing empty fields, so a missing price is a wrong part count, not a bad number
+        int priceStart = trimStart(buffer, secondComma + 1, end);
+        int priceEnd = trimEnd(buffer, priceStart, end);
+        if (priceStart == priceEnd && end == secondComma + 1) {
+            System.err.println("Invalid CSV string for Item (expected 3 parts): " + lineString(buffer, start, end, scratch));
+            return null;
+        }
+
+        long pricePaisa = parsePricePaisa(buffer, priceStart, priceEnd, scratch);
+        if (pricePaisa == INVALID_PRICE) {
+            System.err.println("Error parsing item price from CSV: " + lineString(buffer, start, end, scratch));
+            return null;
+        }
+        String id = field(buffer, start, firstComma, scratch);
+        String name = field(buffer, firstComma + 1, secondComma, scratch);
+        return new Item(id, name, pricePaisa);
+    }
+
+    /**
+     * Parses a plain decimal ([-+]digits[.d[d]]) straight to paisa without creating a String.
+     * Anything else (more decimals, exponents, very long numbers) goes through {@link Money#parse(String)}.
+     * @return The price in paisa, or {@link #INVALID_PRICE} if the text is not a number.
+     */
+    private static long parsePricePaisa(MappedByteBuffer buffer, int start, int end, byte[] scratch) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long rupees = 0;
+        int integerDigits = 0;
+        while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+            rupees = rupees * 10 + (buffer.get(i) - '0');
+            integerDigits++;
+            i++;
+        }
+        long paisa = 0;
+        int fractionDigits = 0;
+        if (i < end && buffer.get(i) == '.') {
+            i++;
+            while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                paisa = paisa * 10 + (buffer.get(i) - '0');
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (i == end && integerDigits + fractionDigits > 0 && integerDigits <= 16 && fractionDigits <= 2) {
+            long amount = rupees * Money.PAISA_PER_RUPEE + (fractionDigits == 1 ? paisa * 10 : paisa);
+            return negative ? -amount : amount;
+        }
+        try {
+            return Money.parse(field(buffer, start, end, scratch));
+        } catch (NumberFormatException e) {
+            return INVALID_PRICE;
+        }
+    }
+
+    /**
+     * @return The trimmed UTF-8 text of [start, end).
+     */
+    private static String field(MappedByteBuffer buffer, int start, int end, byte[] scratch) {
+        start = trimStart(buffer, start, end);
+        end = trimEnd(buffer, start, end);
+        return lineString(buffer, start, end, scratch);
+    }
+
+    private static String lineString(MappedByteBuffer buffer, int start, int end, byte[] scratch) {
+        int length = end - start;
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Same whitespace rule as String.trim(): any byte <= ' '
+    private static int trimStart(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(MappedByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
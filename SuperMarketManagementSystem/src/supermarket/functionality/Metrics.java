@@ -0,0 +1,189 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms and counters for the hot paths of a till (login, catalog load, adding to a bill, checkout).
+ * Recording is allocation-free and lock-free: callers keep the {@link LatencyHistogram} they record into,
+ * and counters are {@link LongAdder}s. The metrics are published through JMX (see {@link MetricsMXBean}) and
+ * written every {@link #DUMP_INTERVAL_PROPERTY} seconds to metrics-till&lt;till ID&gt;.txt in the working directory,
+ * so p99 checkout latency can be compared per till without attaching anything.
+ */
+public final class Metrics implements MetricsMXBean {
+    // Latencies
+    public static final String LOGIN = "login";
+    public static final String CATALOG_LOAD = "catalog.load";
+    public static final String ADD_TO_BILL = "bill.addItem";
+    public static final String CHECKOUT = "bill.checkout";
+    // Counters
+    public static final String LOGINS_FAILED = "login.failed";
+    public static final String CATALOG_LOADS_FAILED = "catalog.loadFailed";
+    public static final String UNKNOWN_SCANS = "bill.unknownScan";
+    public static final String BILLS_SAVED = "bill.saved";
+    public static final String BILLS_REFUSED = "bill.refused";
+    public static final String BILL_SAVES_FAILED = "bill.saveFailed";
+
+    public static final String DUMP_INTERVAL_PROPERTY = "supermarket.metrics.dumpSeconds";
+    public static final int DEFAULT_DUMP_INTERVAL_SECONDS = 60;
+
+    private static Metrics sharedInstance;
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final File dumpFile;
+    private final long startMillis = System.currentTimeMillis();
+
+    public Metrics(File dumpFile) {
+        this.dumpFile = dumpFile;
+    }
+
+    /**
+     * Returns this process's metrics, registering them with JMX and starting the periodic dump on first use.
+     */
+    public static synchronized Metrics getInstance() {
+        if (sharedInstance == null) {
+            int tillId = IdGenerator.getInstance().getNodeId();
+            sharedInstance = new Metrics(new File("metrics-till" + tillId + ".txt"));
+            sharedInstance.registerMBean("supermarket:type=Metrics,till=" + tillId);
+            sharedInstance.startDumping(Integer.getInteger(DUMP_INTERVAL_PROPERTY, DEFAULT_DUMP_INTERVAL_SECONDS));
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * @return The histogram for a name, created on first use. Keep it in a field on hot paths.
+     */
+    public LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public void increment(String counterName) {
+        counter(counterName).increment();
+    }
+
+    public long getCount(String counterName) {
+        LongAdder counter = counters.get(counterName);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    private void registerMBean(String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+        } catch (JMException e) {
+            // Not fatal: the dump file still has the metrics
+            System.err.println("Could not register metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    private void startDumping(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        Thread dumper = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalSeconds * 1000L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                dump();
+            }
+        }, "metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::dump, "metrics-final-dump"));
+    }
+
+    /**
+     * Writes all metrics to the dump file (atomically replacing the previous dump).
+     */
+    @Override
+    public void dump() {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + Instant.now() + ", up " + (System.currentTimeMillis() - startMillis) / 1000 + " s");
+        lines.add("latency,name,count,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            lines.add("latency," + entry.getKey() + "," + snapshot.getCount() + "," + millis(snapshot.getMeanNanos())
+                    + "," + millis(snapshot.getValueAtPercentile(50)) + "," + millis(snapshot.getValueAtPercentile(90))
+                    + "," + millis(snapshot.getValueAtPercentile(99)) + "," + millis(snapshot.getValueAtPercentile(99.9))
+                    + "," + millis(snapshot.getMaxNanos()));
+        }
+        lines.add("counter,name,value");
+        getCounters().forEach((name, value) -> lines.add("counter," + name + "," + value));
+        try {
+            MutationJournal.writeSnapshot(dumpFile, lines);
+        } catch (IOException e) {
+            System.err.println("Error writing " + dumpFile.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private Map<String, LatencyHistogram.Snapshot> snapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        latencies.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    private Map<String, Double> latencyMillis(ToDoubleFunction<LatencyHistogram.Snapshot> nanos) {
+        Map<String, Double> values = new TreeMap<>();
+        snapshots().forEach((name, snapshot) -> values.put(name, nanos.applyAsDouble(snapshot) / 1e6));
+        return values;
+    }
+
+    // --- MetricsMXBean ---
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyCounts() {
+        Map<String, Long> values = new TreeMap<>();
+        snapshots().forEach((name, snapshot) -> values.put(name, snapshot.getCount()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMeanMillis() {
+        return latencyMillis(LatencyHistogram.Snapshot::getMeanNanos);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Millis() {
+        return latencyMillis(snapshot -> snapshot.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        return latencyMillis(snapshot -> snapshot.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMaxMillis() {
+        return latencyMillis(LatencyHistogram.Snapshot::getMaxNanos);
+    }
+}
@@ -0,0 +1,26 @@
+package supermarket.functionality;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, registered as supermarket:type=Metrics,till=&lt;till ID&gt;.
+ * Latencies are in milliseconds, keyed by metric name, and cover everything since the process started.
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getLatencyCounts();
+
+    Map<String, Double> getLatencyMeanMillis();
+
+    Map<String, Double> getLatencyP50Millis();
+
+    Map<String, Double> getLatencyP99Millis();
+
+    Map<String, Double> getLatencyMaxMillis();
+
+    /**
+     * Writes the metrics dump file now rather than at the next interval.
+     */
+    void dump();
+}
@@ -0,0 +1,90 @@
+package supermarket.functionality;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for amounts of money held as a primitive {@code long} number of paisa (1/100 PKR).
+ * Using whole paisa keeps prices, subtotals and totals exact and lets the checkout path
+ * do plain integer arithmetic with no allocation.
+ */
+public final class Money {
+    public static final long PAISA_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Parses a PKR amount such as "12", "12.5" or "12.50" into paisa.
+     * Amounts with more than two decimals (or in exponent form, as older files may contain)
+     * are rounded half-up to the nearest paisa.
+     * @throws NumberFormatException if the text is not a number or does not fit in a long.
+     */
+    public static long parse(String text) {
+        long fast = parsePlain(text);
+        if (fast != Long.MIN_VALUE) {
+            return fast;
+        }
+        try {
+            return new BigDecimal(text).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Fast path for [-+]digits[.d[d]] with at most 16 integer digits.
+     * @return The amount in paisa, or Long.MIN_VALUE if the text needs the general parser.
+     */
+    private static long parsePlain(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long rupees = 0;
+        int integerDigits = 0;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            rupees = rupees * 10 + (text.charAt(i) - '0');
+            integerDigits++;
+            i++;
+        }
+        long paisa = 0;
+        int fractionDigits = 0;
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                paisa = paisa * 10 + (text.charAt(i) - '0');
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (i != length || integerDigits + fractionDigits == 0 || integerDigits > 16 || fractionDigits > 2) {
+            return Long.MIN_VALUE;
+        }
+        if (fractionDigits == 1) {
+            paisa *= 10;
+        }
+        long amount = rupees * PAISA_PER_RUPEE + paisa;
+        return negative ? -amount : amount;
+    }
+
+    /**
+     * Formats paisa as a plain PKR amount with two decimals, e.g. 1250 as "12.50".
+     */
+    public static String format(long paisa) {
+        long abs = Math.abs(paisa);
+        long fraction = abs % PAISA_PER_RUPEE;
+        return (paisa < 0 ? "-" : "") + (abs / PAISA_PER_RUPEE) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /**
+     * @return unitPaisa * quantity.
+     * @throws ArithmeticException if the result overflows.
+     */
+    public static long multiply(long unitPaisa, int quantity) {
+        return Math.multiplyExact(unitPaisa, (long) quantity);
+    }
+}
@@ -0,0 +1,368 @@
+package supermarket.functionality;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of store mutations (one text record per line).
+ * Every record is written with a CRC32 prefix and forced to disk before append returns,
+ * so a crash can at worst leave one torn record at the tail, which replay skips.
+ * The owning store periodically writes a full snapshot and then resets the journal (compaction).
+ * <p>
+ * Several processes may share a journal (desktop tills on the same data files), so every operation runs
+ * under an exclusive lock on the journal file, and a store holds it across a compaction (refresh, snapshot,
+ * reset) or a load (snapshot, replay) with {@link #lock()}. Appends therefore never interleave with another
+ * process's compaction, and a torn tail found under the lock is always left by a crash, never an append in
+ * progress, so it can be cut off. All access goes through one channel: on some systems closing any other
+ * channel to the file would drop this process's lock.
+ */
+public class MutationJournal implements Closeable {
+    private final File journalFile;
+    private final ReentrantLock processLock = new ReentrantLock(); // Orders this process's threads; the file lock orders processes
+    private FileChannel channel; // Guarded by processLock
+    private FileLock fileLock;   // Held while processLock is
+    private volatile int recordCount; // Records since the last compaction
+
+    public MutationJournal(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * @return Number of records appended (or replayed) since the last compaction.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Takes the journal lock, waiting for other threads and processes. Reentrant; every call must be
+     * matched by {@link #unlock()}, in a finally block.
+     */
+    public void lock() throws IOException {
+        processLock.lock();
+        if (processLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            fileLock = channel().lock();
+        } catch (IOException | RuntimeException e) {
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    public void unlock() throws IOException {
+        try {
+            if (processLock.getHoldCount() == 1 && fileLock != null) {
+                if (fileLock.isValid()) { // Not if the channel was closed by an interrupt
+                    fileLock.release();
+                }
+                fileLock = null;
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Feeds every intact record, in order, to the given consumer.
+     * A torn or corrupt record ends the replay and is cut off so later appends start on a clean line.
+     * @return The length of the journal in bytes after replay, for {@link #readFrom(long, Consumer)}.
+     */
+    public long replay(Consumer<String> recordConsumer) throws IOException {
+        if (!journalFile.exists()) {
+            recordCount = 0;
+            return 0;
+        }
+        lock();
+        try {
+            recordCount = 0;
+            byte[] data = readAfter(0);
+            int lineStart = 0;
+            long validLength = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String record = decode(data, lineStart, i);
+                if (record == null) {
+                    System.err.println("Corrupt record in " + journalFile.getPath() + " at byte " + lineStart + ", ignoring the rest.");
+                    break;
+                }
+                recordConsumer.accept(record);
+                recordCount++;
+                lineStart = i + 1;
+                validLength = lineStart;
+            }
+            if (validLength < data.length) {
+                truncate(validLength);
+            }
+            return validLength;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Feeds the records appended after the given byte offset, by this or another process, to the consumer.
+     * Unlike {@link #replay(Consumer)} this never modifies the file; reading stops at a corrupt record.
+     * @return The offset after the last record read, to pass to the next call.
+     */
+    public long readFrom(long offset, Consumer<String> recordConsumer) throws IOException {
+        if (!journalFile.exists()) {
+            return offset;
+        }
+        lock();
+        try {
+            byte[] data = readAfter(offset);
+            int lineStart = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String record = decode(data, lineStart, i);
+                if (record == null) {
+                    break;
+                }
+                recordConsumer.accept(record);
+                lineStart = i + 1;
+            }
+            return offset + lineStart;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Appends one record and forces it to disk.
+     * @return The length of the journal after the record; see {@link #appendAll(List)}.
+     */
+    public long append(String record) throws IOException {
+        return appendAll(List.of(record));
+    }
+
+    /**
+     * Appends several records with a single write and a single force.
+     * @return The length of the journal after the records. A caller that has read the journal up to where
+     *         they start, under the same {@link #lock()}, can pass this to {@link #readFrom(long, Consumer)}
+     *         to skip re-reading them.
+     */
+    public long appendAll(List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            lock();
+            try {
+                return cutTornTail(channel());
+            } finally {
+                unlock();
+            }
+        }
+        FlightEvents.JournalAppend event = new FlightEvents.JournalAppend();
+        event.begin();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(records.size() * 48);
+        for (String record : records) {
+            buffer.write(encode(record));
+        }
+        long position;
+        lock();
+        try {
+            FileChannel out = channel();
+            position = cutTornTail(out);
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                position += out.write(bytes, position);
+            }
+            out.force(false);
+            recordCount += records.size();
+        } finally {
+            unlock();
+        }
+        if (event.shouldCommit()) {
+            event.file = journalFile.getName();
+            event.recordCount = records.size();
+            event.bytes = buffer.size();
+            event.commit();
+        }
+        return position;
+    }
+
+    /**
+     * Empties the journal. Call only with the lock held, after a snapshot containing every record
+     * (including other processes' records, read under the same lock) has been written.
+     */
+    public void reset() throws IOException {
+        if (!processLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The journal must be locked while it is reset.");
+        }
+        truncate(0);
+        recordCount = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        processLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                fileLock = null;
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the given lines to a temporary file, forces it, and atomically renames it over the target,
+     * so readers never observe a half-written snapshot.
+     */
+    public static void writeSnapshot(File target, Iterable<String> lines) throws IOException {
+        writeSnapshot(target, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+        });
+    }
+
+    /**
+     * Writes a snapshot's bytes to a file; must flush what it buffers.
+     */
+    interface SnapshotContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Like {@link #writeSnapshot(File, Iterable)}, for snapshots that are not lines of text.
+     */
+    static void writeSnapshot(File target, SnapshotContent content) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(target.getName(), ".tmp", parent);
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            content.writeTo(fileOut);
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(journalFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    // Called with the lock held
+    private byte[] readAfter(long offset) throws IOException {
+        FileChannel in = channel();
+        long available = in.size() - offset;
+        if (available <= 0) {
+            return new byte[0];
+        }
+        byte[] data = new byte[(int) Math.min(available, Integer.MAX_VALUE - 8)];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining() && in.read(buffer, offset + buffer.position()) >= 0) {
+            // Keep reading until the buffer is full or the end of the file
+        }
+        return data;
+    }
+
+    /**
+     * Cuts off a record left half-written by a process that crashed, so the next record starts on its own line.
+     * Called with the lock held.
+     * @return The new end of the journal.
+     */
+    private long cutTornTail(FileChannel ch) throws IOException {
+        long size = ch.size();
+        ByteBuffer block = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - block.capacity());
+            block.clear().limit((int) (end - start));
+            while (block.hasRemaining() && ch.read(block, start + block.position()) >= 0) {
+                // Fill the block
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    long validLength = start + i + 1;
+                    if (validLength < size) {
+                        System.err.println("Torn record at the end of " + journalFile.getPath() + ", cutting it off.");
+                        truncate(validLength);
+                    }
+                    return validLength;
+                }
+            }
+            end = start;
+        }
+        if (size > 0) {
+            truncate(0);
+        }
+        return 0;
+    }
+
+    // Called with the lock held
+    private void truncate(long length) throws IOException {
+        FileChannel ch = channel();
+        ch.truncate(length);
+        ch.force(true);
+    }
+
+    private static byte[] encode(String record) {
+        if (record.indexOf('\n') >= 0 || record.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Journal records cannot contain line breaks: " + record);
+        }
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] line = new byte[9 + payload.length + 1];
+        long value = crc.getValue();
+        for (int i = 7; i >= 0; i--) { // "%08x " without String.format, which dominated batch appends
+            line[i] = (byte) Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+        line[8] = ' ';
+        System.arraycopy(payload, 0, line, 9, payload.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    /**
+     * @return The record payload, or null if the CRC does not match.
+     */
+    private static String decode(byte[] data, int start, int end) {
+        if (end - start < 9 || data[start + 8] != ' ') {
+            return null;
+        }
+        long expected;
+        try {
+            expected = Long.parseLong(new String(data, start, 8, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, start + 9, end - start - 9);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+        return new String(data, start + 9, end - start - 9, StandardCharsets.UTF_8);
+    }
+}
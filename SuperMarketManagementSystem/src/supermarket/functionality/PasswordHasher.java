@@ -0,0 +1,115 @@
+package supermarket.functionality;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Salted, deliberately slow password hashing with the JDK's PBKDF2 (HMAC-SHA256).
+ * Stored form: {@code pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>}. The format contains
+ * no commas, so it fits in users.txt. Hashing takes a noticeable fraction of a second by design:
+ * never call these methods on the Swing Event Dispatch Thread.
+ */
+public final class PasswordHasher {
+    public static final int ITERATIONS = 310_000;
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * @return The stored form of a new salted hash of the password.
+     */
+    public static String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, ITERATIONS);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + ITERATIONS + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored credential in constant time.
+     * Credentials from before hashing was introduced (plain text) are still accepted;
+     * use {@link #needsRehash(String)} to upgrade them.
+     */
+    public static boolean verify(char[] password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(new String(password).getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the credential is plain text or was hashed with fewer iterations than today's setting.
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * Trims a typed password as {@link String#trim()} would, without making a String of it.
+     * The given array is cleared; clear the returned copy once it has been used.
+     */
+    public static char[] trim(char[] password) {
+        int start = 0;
+        int end = password.length;
+        while (start < end && password[start] <= ' ') {
+            start++;
+        }
+        while (end > start && password[end - 1] <= ' ') {
+            end--;
+        }
+        char[] trimmed = Arrays.copyOfRange(password, start, end);
+        Arrays.fill(password, '\0');
+        return trimmed;
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available in this JDK", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Headless point-of-sale operations: logging in, catalog and seller management, and billing.
+ * The Swing frames are thin clients of this class; load tests and server processes can call it
+ * directly from any number of threads, since everything it uses is thread-safe.
+ * <p>
+ * Invalid input is reported with an {@link IllegalArgumentException} whose message can be shown
+ * to the user as is; I/O failures are reported with an {@link IOException}.
+ */
+public class PosEngine {
+    public static final String ADMIN_ROLE = "admin";
+    public static final String SELLER_ROLE = "seller";
+
+    private static final String DEFAULT_ADMIN_USERNAME = "admin";
+    private static final String DEFAULT_ADMIN_PASSWORD = "password123";
+
+    private static PosEngine sharedInstance;
+
+    private final ItemCatalog catalog;
+    private final UserRepository users;
+    private final BillWriter billWriter;
+    private final IdGenerator ids;
+    private SalesAggregates salesAggregates; // Created on first use
+    private Inventory inventory;             // Created on first use
+
+    public PosEngine(ItemCatalog catalog, UserRepository users, BillWriter billWriter, IdGenerator ids) {
+        this.catalog = catalog;
+        this.users = users;
+        this.billWriter = billWriter;
+        this.ids = ids;
+    }
+
+    /**
+     * Returns the engine over the shared catalog, users, bill writer and ID generator of this process.
+     */
+    public static synchronized PosEngine getInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new PosEngine(ItemCatalog.getInstance(), UserRepository.getInstance(),
+                    BillWriter.getInstance(), IdGenerator.getInstance());
+        }
+        return sharedInstance;
+    }
+
+    public ItemCatalog getCatalog() {
+        return catalog;
+    }
+
+    public UserRepository getUserRepository() {
+        return users;
+    }
+
+    /**
+     * Starts reading the catalog and the stock levels on a background thread, so a till is ready to scan
+     * as soon as its seller panel opens. Errors are only logged: the panel reports them when it loads the items.
+     */
+    public void prefetchCatalog() {
+        Thread prefetcher = new Thread(() -> {
+            try {
+                catalog.ensureLoaded();
+                getInventory().ensureLoaded();
+            } catch (IOException e) {
+                System.err.println("Error prefetching the catalog: " + e.getMessage());
+            }
+        }, "catalog-prefetch");
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+    // --- Users ---
+
+    /**
+     * Creates users.txt with the default admin account if the file does not exist yet.
+     * @return true if the file was created.
+     */
+    public boolean createDefaultAdminIfMissing() throws IOException {
+        File usersFile = users.getUsersFile();
+        if (usersFile.exists()) {
+            return false;
+        }
+        User defaultAdmin = new User(DEFAULT_ADMIN_USERNAME, PasswordHasher.hash(DEFAULT_ADMIN_PASSWORD.toCharArray()), ADMIN_ROLE);
+        MutationJournal.writeSnapshot(usersFile, Collections.singletonList(defaultAdmin.toCSVString()));
+        System.out.println(usersFile.getPath() + " not found. Created with default admin (" + DEFAULT_ADMIN_USERNAME + "/" + DEFAULT_ADMIN_PASSWORD + ").");
+        return true;
+    }
+
+    /**
+     * Checks a username and password, rereading the users first if another process changed them.
+     * Slow by design (see {@link PasswordHasher}): never call this on the Swing Event Dispatch Thread.
+     * The password array is cleared before returning.
+     * @return The user, or null if the username is unknown or the password is wrong.
+     * @throws java.io.FileNotFoundException if users.txt does not exist.
+     */
+    public User login(String username, char[] password) throws IOException {
+        try {
+            if (username == null || username.isEmpty() || password.length == 0) {
+                throw new IllegalArgumentException("Username and Password cannot be empty.");
+            }
+            users.reloadIfChanged(); // Loads once; rereads only if another process changed the files
+            return users.authenticate(username, password);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Adds a seller account. Hashes the password, so never call this on the Event Dispatch Thread.
+     * The password array is cleared before returning.
+     * @return The new seller.
+     */
+    public User addSeller(String username, char[] password) throws IOException {
+        try {
+            if (username == null || username.isEmpty() || password.length == 0) {
+                throw new IllegalArgumentException("Seller Username and Password cannot be empty.");
+            }
+            if (username.indexOf(',') >= 0) { // users.txt is comma-separated
+                throw new IllegalArgumentException("Seller Username cannot contain commas.");
+            }
+            if (username.getBytes(StandardCharsets.UTF_8).length > BillLedger.MAX_SELLER_BYTES) { // Stored in each ledger record
+                throw new IllegalArgumentException("Seller Username is too long: at most " + BillLedger.MAX_SELLER_BYTES
+                        + " bytes of UTF-8 (" + BillLedger.MAX_SELLER_BYTES + " English letters).");
+            }
+            users.ensureLoaded();
+            if (users.findByUsername(username) != null) { // Checked before the slow hash; usernames are unique ignoring case
+                throw new IllegalArgumentException("Username '" + username + "' is already taken.");
+            }
+            User seller = new User(username, PasswordHasher.hash(password), SELLER_ROLE);
+            if (!users.addUser(seller)) {
+                throw new IllegalArgumentException("Username '" + username + "' is already taken.");
+            }
+            return seller;
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Deletes a seller account on behalf of an admin. Admins (including the acting one) cannot be deleted this way.
+     * @return The removed seller, or null if there is no such user.
+     */
+    public User removeSeller(User actingAdmin, String username) throws IOException {
+        if (actingAdmin.getUsername().equals(username)) {
+            throw new IllegalArgumentException("You cannot delete your own account from this interface.");
+        }
+        users.ensureLoaded();
+        User existing = users.findByUsername(username);
+        if (existing != null && ADMIN_ROLE.equalsIgnoreCase(existing.getRole())) {
+            throw new IllegalArgumentException("Admin accounts cannot be deleted from this interface.");
+        }
+        return users.removeUser(username);
+    }
+
+    // --- Catalog ---
+
+    /**
+     * Validates and adds a new item with a fresh ID.
+     * @param priceText The price in rupees as typed, e.g. "12.50".
+     * @return The new item.
+     */
+    public Item addItem(String name, String priceText) throws IOException {
+        name = name == null ? "" : name.trim();
+        priceText = priceText == null ? "" : priceText.trim();
+        catalog.ensureLoaded();
+        long pricePaisa = validateNewItem(name, priceText, catalog.isBinarySnapshot());
+        Item item = new Item(Long.toString(ids.nextId()), name, pricePaisa);
+        if (!catalog.addItem(item)) {
+            throw new IllegalArgumentException("Item with this Name already exists.");
+        }
+        return item;
+    }
+
+    /**
+     * Changes an item's price. Open tills see the change through their {@link CatalogListener}s.
+     * @param priceText The new price in rupees as typed, e.g. "12.50".
+     * @return The updated item, or null if no item has that ID.
+     */
+    public Item updateItemPrice(String itemId, String priceText) throws IOException {
+        priceText = priceText == null ? "" : priceText.trim();
+        if (priceText.isEmpty()) {
+            throw new IllegalArgumentException("Price cannot be empty.");
+        }
+        long pricePaisa = parsePrice(priceText);
+        catalog.ensureLoaded();
+        return catalog.updatePrice(itemId, pricePaisa);
+    }
+
+    /**
+     * Checks the (trimmed) name and price of a new item; shared by {@link #addItem} and {@link ItemImporter}.
+     * @param commasAllowed Whether items.txt is a {@link BinarySnapshot}; a text items.txt is comma-separated.
+     * @return The price in paisa.
+     */
+    static long validateNewItem(String name, String priceText, boolean commasAllowed) {
+        if (name.isEmpty() || priceText.isEmpty()) {
+            throw new IllegalArgumentException("Item Name and Price cannot be empty.");
+        }
+        if (!commasAllowed && name.indexOf(',') >= 0) {
+            throw new IllegalArgumentException("Item Name cannot contain commas while items.txt is a text file.");
+        }
+        return parsePrice(priceText);
+    }
+
+    private static long parsePrice(String priceText) {
+        long pricePaisa;
+        try {
+            pricePaisa = Money.parse(priceText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price format.");
+        }
+        if (pricePaisa <= 0) {
+            throw new IllegalArgumentException("Price must be a positive number.");
+        }
+        return pricePaisa;
+    }
+
+    /**
+     * @return The removed item, or null if no item has that ID.
+     */
+    public Item removeItem(String itemId) throws IOException {
+        catalog.ensureLoaded();
+        return catalog.removeItem(itemId);
+    }
+
+    /**
+     * Imports a supplier CSV file of new items in one catalog write (see {@link ItemImporter}).
+     * Rows that cannot be imported are listed in a reject report next to the file.
+     * Reads the whole file, so never call this on the Event Dispatch Thread.
+     */
+    public ItemImporter.Result importItems(File csvFile) throws IOException {
+        catalog.ensureLoaded();
+        return new ItemImporter(catalog, ids).importCsv(csvFile, ItemImporter.rejectFileFor(csvFile));
+    }
+
+    /**
+     * Writes every item to a CSV file that {@link #importItems(File)} can read back.
+     * @return The number of items written.
+     */
+    public int exportItems(File csvFile) throws IOException {
+        catalog.ensureLoaded();
+        return new ItemImporter(catalog, ids).exportCsv(csvFile);
+    }
+
+    // --- Billing ---
+
+    /**
+     * Starts an empty bill for a seller at one till.
+     */
+    public BillSession openBill(User seller) {
+        return new BillSession(seller);
+    }
+
+    /**
+     * Turns the session's lines into a bill with a new ID, takes its items out of stock, and empties the
+     * session for the next customer. Pass the bill to {@link #commit(Bill)}; if that fails,
+     * {@link #reopen(BillSession, Bill)} puts the stock and the lines back.
+     * @throws IllegalArgumentException if the bill is empty or an item does not have enough stock;
+     *         the session is left as it was.
+     */
+    public Bill checkout(BillSession session) {
+        if (session.isEmpty()) {
+            throw new IllegalArgumentException("Cannot generate an empty bill.");
+        }
+        long billId = ids.nextId(); // Time-ordered, unique across tills
+        Bill bill = new Bill(billId, session.getSeller().getUsername(), System.currentTimeMillis(), session.takeLines());
+        try {
+            getInventory().reserve(bill);
+        } catch (IllegalArgumentException e) {
+            session.restore(bill);
+            throw e;
+        }
+        return bill;
+    }
+
+    /**
+     * Undoes {@link #checkout(BillSession)} for a bill that could not be saved, so the seller can retry,
+     * provided nothing has been added to the session since. Otherwise the bill stays reserved, to be
+     * committed again or voided with {@link #voidUnsaved(Bill)}.
+     * @return Whether the bill was reopened.
+     */
+    public boolean reopen(BillSession session, Bill unsavedBill) {
+        if (!session.restoreIfEmpty(unsavedBill)) {
+            return false;
+        }
+        getInventory().release(unsavedBill);
+        return true;
+    }
+
+    /**
+     * Gives up on a bill that could not be saved, putting its stock back; its lines are dropped.
+     */
+    public void voidUnsaved(Bill unsavedBill) {
+        getInventory().release(unsavedBill);
+    }
+
+    /**
+     * Queues a bill for saving on the bill-writer thread. Never blocks.
+     * @return A future completed with the bill once it is durable, or exceptionally if it could not be saved.
+     */
+    public CompletableFuture<Bill> commit(Bill bill) {
+        return billWriter.submit(bill);
+    }
+
+    /**
+     * {@link #checkout(BillSession)} followed by {@link #commit(Bill)}. If saving fails, the bill is
+     * reopened before the returned future completes; if the session has new lines by then, the future
+     * fails with an {@link UnsavedBillException} instead, carrying the bill for the caller to retry or void.
+     */
+    public CompletableFuture<Bill> finalizeBill(BillSession session) {
+        Bill bill = checkout(session);
+        CompletableFuture<Bill> result = new CompletableFuture<>();
+        commit(bill).whenComplete((savedBill, error) -> {
+            if (error == null) {
+                result.complete(savedBill);
+            } else if (reopen(session, bill)) {
+                result.completeExceptionally(error);
+            } else {
+                result.completeExceptionally(new UnsavedBillException(bill, error));
+            }
+        });
+        return result;
+    }
+
+    // --- Stock ---
+
+    /**
+     * Returns the stock levels, which follow every bill this engine commits. Until
+     * {@link Inventory#ensureLoaded()} has been called (off the Event Dispatch Thread for large ledgers),
+     * checkouts are not limited by stock; the first commit loads it otherwise.
+     */
+    public synchronized Inventory getInventory() {
+        if (inventory == null) {
+            File dataDirectory = catalog.getItemsFile().getAbsoluteFile().getParentFile();
+            inventory = new Inventory(new File(dataDirectory, Inventory.DEFAULT_STOCK_FILE_PATH), billWriter.getLedger());
+            billWriter.addCommitListener(inventory);
+        }
+        return inventory;
+    }
+
+    /**
+     * Receives stock for an item, starting to track its stock if it was not tracked yet.
+     * @param quantityText The quantity received as typed; negative to write stock off.
+     * @return The new quantity on hand.
+     */
+    public long addStock(String itemId, String quantityText) throws IOException {
+        long delta = parseQuantity(quantityText);
+        if (delta == 0) {
+            throw new IllegalArgumentException("Quantity cannot be zero.");
+        }
+        requireItem(itemId);
+        Inventory stock = getInventory();
+        stock.ensureLoaded();
+        return stock.adjustStock(itemId, delta);
+    }
+
+    /**
+     * Sets an item's stock after a count and, if given, its low-stock level.
+     * @param lowStockText The new low-stock level as typed, or empty to keep the current one.
+     * @return The new quantity on hand.
+     */
+    public long setStock(String itemId, String quantityText, String lowStockText) throws IOException {
+        long quantity = parseQuantity(quantityText);
+        boolean setLowLevel = lowStockText != null && !lowStockText.trim().isEmpty();
+        long lowStockLevel = setLowLevel ? parseQuantity(lowStockText) : 0;
+        if (quantity < 0 || lowStockLevel < 0) {
+            throw new IllegalArgumentException("Quantities cannot be negative.");
+        }
+        requireItem(itemId);
+        Inventory stock = getInventory();
+        stock.ensureLoaded();
+        long onHand = stock.setStock(itemId, quantity);
+        if (setLowLevel) {
+            stock.setLowStockLevel(itemId, lowStockLevel);
+        }
+        return onHand;
+    }
+
+    private void requireItem(String itemId) throws IOException {
+        catalog.ensureLoaded();
+        if (catalog.findById(itemId) == null) {
+            throw new IllegalArgumentException("Item not found.");
+        }
+    }
+
+    private static long parseQuantity(String quantityText) {
+        quantityText = quantityText == null ? "" : quantityText.trim();
+        if (quantityText.isEmpty()) {
+            throw new IllegalArgumentException("Quantity cannot be empty.");
+        }
+        try {
+            return Long.parseLong(quantityText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Quantity must be a whole number.");
+        }
+    }
+
+    // --- Reports ---
+
+    /**
+     * Returns the running sales totals, which follow every bill this engine commits.
+     * Call {@link SalesAggregates#ensureLoaded()} (off the Event Dispatch Thread) before reading them.
+     */
+    public synchronized SalesAggregates getSalesAggregates() {
+        if (salesAggregates == null) {
+            salesAggregates = new SalesAggregates(billWriter.getLedger());
+            billWriter.addCommitListener(salesAggregates);
+        }
+        return salesAggregates;
+    }
+
+    /**
+     * Summarizes the bills created in [fromMillis, toMillis). Reads the whole period from disk,
+     * so never call this on the Event Dispatch Thread.
+     */
+    public SalesReport salesReport(long fromMillis, long toMillis, int topItems) throws IOException {
+        return new SalesAnalyzer(billWriter.getLedger()).analyze(fromMillis, toMillis, topItems);
+    }
+}
@@ -0,0 +1,398 @@
+package supermarket.functionality;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Running sales totals (overall, per day, per hour of day, per seller and per item), kept up to date as bills
+ * are committed, so the admin dashboard reads current figures in O(1) instead of rescanning the ledger.
+ * <p>
+ * The totals follow the {@link BillLedger} itself: after every batch the {@link BillWriter} commits, the
+ * records appended since the last update are applied (see {@link #billsCommitted(List)}). Reading the
+ * records back rather than applying the Bill objects keeps the totals exact when several tills share
+ * bills.dat, and costs one read of data that is still in the page cache.
+ * <p>
+ * The totals and the ledger record count they cover are checkpointed to {@code bills.dat.totals} at most every
+ * {@value #CHECKPOINT_INTERVAL_MILLIS} ms. After a restart the checkpoint is loaded and only the records
+ * appended since then are read. Counters are {@link LongAdder}s in concurrent maps, so readers never block
+ * the bill-writer thread.
+ */
+public class SalesAggregates implements BillCommitListener {
+    public static final String CHECKPOINT_SUFFIX = ".totals";
+    public static final long CHECKPOINT_INTERVAL_MILLIS = 30_000;
+
+    private static final String FORMAT_HEADER = "SMSA,1";
+
+    private final BillLedger ledger;
+    private final File checkpointFile;
+
+    private final LongAdder billCount = new LongAdder();
+    private final LongAdder lineCount = new LongAdder();
+    private final LongAdder quantitySold = new LongAdder();
+    private final LongAdder revenuePaisa = new LongAdder();
+    private final Map<LocalDate, Totals> byDay = new ConcurrentHashMap<>();
+    private final LongAdder[] revenueByHour = new LongAdder[24];
+    private final Map<String, Totals> bySeller = new ConcurrentHashMap<>();
+    private final Map<String, ItemTotals> byItem = new ConcurrentHashMap<>();
+
+    // Only touched while holding this object's lock, by the thread applying ledger records
+    private final LineApplier applier;
+    private boolean loaded;
+    private long appliedRecords;  // Ledger records covered by the totals
+    private long lastCheckpointMillis;
+
+    public SalesAggregates(BillLedger ledger) {
+        this(ledger, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param zone Time zone that days and hours are counted in.
+     */
+    public SalesAggregates(BillLedger ledger, ZoneId zone) {
+        this.ledger = ledger;
+        this.checkpointFile = new File(ledger.getLedgerFile().getPath() + CHECKPOINT_SUFFIX);
+        for (int hour = 0; hour < revenueByHour.length; hour++) {
+            revenueByHour[hour] = new LongAdder();
+        }
+        this.applier = new LineApplier(zone);
+    }
+
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Loads the last checkpoint (if any) and applies the ledger records appended since. The first load
+     * without a checkpoint reads the whole ledger, so never call this on the Event Dispatch Thread.
+     */
+    public synchronized void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        if (!readCheckpoint()) {
+            clear();
+        }
+        catchUp();
+        loaded = true;
+        checkpoint();
+    }
+
+    /**
+     * Applies the newly committed records. Called on the bill-writer thread; loads the totals first if needed.
+     */
+    @Override
+    public synchronized void billsCommitted(List<Bill> bills) {
+        try {
+            if (!loaded) {
+                ensureLoaded();
+                return;
+            }
+            catchUp();
+            if (System.currentTimeMillis() - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            // Not fatal: the records stay in the ledger and are applied on the next call
+            System.err.println("Error updating sales totals: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the ledger records appended since the last update, by this or any other process.
+     */
+    public synchronized void catchUp() throws IOException {
+        long recordCount = ledger.getRecordCount();
+        if (recordCount < appliedRecords) {
+            System.err.println(ledger.getLedgerFile().getPath() + " is shorter than the sales totals; recounting.");
+            clear();
+        }
+        appliedRecords = ledger.scanLines(appliedRecords, recordCount, applier);
+    }
+
+    /**
+     * Writes the totals and the ledger position they cover to the checkpoint file (atomically).
+     */
+    public synchronized void checkpoint() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(FORMAT_HEADER);
+        lines.add("records," + appliedRecords);
+        lines.add("total," + billCount.sum() + "," + lineCount.sum() + "," + quantitySold.sum() + "," + revenuePaisa.sum());
+        for (int hour = 0; hour < revenueByHour.length; hour++) {
+            lines.add("hour," + hour + "," + revenueByHour[hour].sum());
+        }
+        byDay.forEach((day, totals) -> lines.add("day," + day + "," + totals.bills.sum() + "," + totals.revenuePaisa.sum()));
+        // Names come last so they may contain commas
+        bySeller.forEach((seller, totals) -> lines.add("seller," + totals.bills.sum() + "," + totals.revenuePaisa.sum() + "," + seller));
+        byItem.forEach((id, totals) -> lines.add("item," + id + "," + totals.quantity.sum() + "," + totals.revenuePaisa.sum() + "," + totals.name));
+        MutationJournal.writeSnapshot(checkpointFile, lines);
+        lastCheckpointMillis = System.currentTimeMillis();
+    }
+
+    // --- O(1) reads ---
+
+    public long getBillCount() {
+        return billCount.sum();
+    }
+
+    public long getLineCount() {
+        return lineCount.sum();
+    }
+
+    public long getQuantitySold() {
+        return quantitySold.sum();
+    }
+
+    public long getRevenuePaisa() {
+        return revenuePaisa.sum();
+    }
+
+    public long getBillCountForDay(LocalDate day) {
+        Totals totals = byDay.get(day);
+        return totals == null ? 0 : totals.bills.sum();
+    }
+
+    public long getRevenueForDay(LocalDate day) {
+        Totals totals = byDay.get(day);
+        return totals == null ? 0 : totals.revenuePaisa.sum();
+    }
+
+    /**
+     * @return Revenue in the given hour of the day (0 to 23), summed over all days.
+     */
+    public long getRevenueForHour(int hour) {
+        return revenueByHour[hour].sum();
+    }
+
+    public long getRevenueForSeller(String sellerUsername) {
+        Totals totals = bySeller.get(sellerUsername);
+        return totals == null ? 0 : totals.revenuePaisa.sum();
+    }
+
+    public long getQuantitySoldOf(String itemId) {
+        ItemTotals totals = byItem.get(itemId);
+        return totals == null ? 0 : totals.quantity.sum();
+    }
+
+    public long getRevenueOf(String itemId) {
+        ItemTotals totals = byItem.get(itemId);
+        return totals == null ? 0 : totals.revenuePaisa.sum();
+    }
+
+    /**
+     * @return An all-time report built from the totals, without reading the ledger.
+     *         Costs O(days + sellers + items); the ranking of items is the only sort.
+     */
+    public SalesReport toReport(int topItems) {
+        long started = System.nanoTime();
+        TreeMap<LocalDate, Long> revenueByDay = new TreeMap<>();
+        byDay.forEach((day, totals) -> revenueByDay.put(day, totals.revenuePaisa.sum()));
+        long[] hours = new long[revenueByHour.length];
+        for (int hour = 0; hour < hours.length; hour++) {
+            hours[hour] = revenueByHour[hour].sum();
+        }
+        Map<String, Long> revenueBySeller = new LinkedHashMap<>();
+        bySeller.entrySet().stream()
+                .map(e -> Map.entry(e.getKey(), e.getValue().revenuePaisa.sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> revenueBySeller.put(e.getKey(), e.getValue()));
+
+        List<SalesReport.ItemSales> items = new ArrayList<>(byItem.size());
+        byItem.forEach((id, totals) -> items.add(new SalesReport.ItemSales(id, totals.name, totals.quantity.sum(), totals.revenuePaisa.sum())));
+        return new SalesReport(Long.MIN_VALUE, Long.MAX_VALUE, billCount.sum(), lineCount.sum(), quantitySold.sum(), revenuePaisa.sum(),
+                revenueByDay, hours, revenueBySeller,
+                top(items, topItems, SalesReport.ItemSales::getQuantity), top(items, topItems, SalesReport.ItemSales::getRevenuePaisa),
+                System.nanoTime() - started);
+    }
+
+    private static List<SalesReport.ItemSales> top(List<SalesReport.ItemSales> items, int limit, ToLongFunction<SalesReport.ItemSales> rankBy) {
+        List<SalesReport.ItemSales> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingLong(rankBy).reversed());
+        return new ArrayList<>(sorted.subList(0, Math.min(limit, sorted.size())));
+    }
+
+    private void clear() {
+        billCount.reset();
+        lineCount.reset();
+        quantitySold.reset();
+        revenuePaisa.reset();
+        byDay.clear();
+        for (LongAdder hour : revenueByHour) {
+            hour.reset();
+        }
+        bySeller.clear();
+        byItem.clear();
+        applier.forgetItems();
+        appliedRecords = 0;
+    }
+
+    /**
+     * @return false if there is no usable checkpoint (missing, unreadable, or ahead of the ledger).
+     */
+    private boolean readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return false;
+        }
+        clear();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8))) {
+            if (!FORMAT_HEADER.equals(reader.readLine())) {
+                throw new IOException("unknown format");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                applyCheckpointLine(line);
+            }
+            if (appliedRecords > ledger.getRecordCount()) {
+                throw new IOException("it covers more bills than " + ledger.getLedgerFile().getPath() + " holds");
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring sales totals checkpoint " + checkpointFile.getPath() + " (" + e.getMessage() + "); recounting.");
+            return false;
+        }
+    }
+
+    private void applyCheckpointLine(String line) throws IOException {
+        String[] parts = line.split(",", 5);
+        switch (parts[0]) {
+            case "records":
+                appliedRecords = Long.parseLong(parts[1]);
+                break;
+            case "total":
+                billCount.add(Long.parseLong(parts[1]));
+                lineCount.add(Long.parseLong(parts[2]));
+                quantitySold.add(Long.parseLong(parts[3]));
+                revenuePaisa.add(Long.parseLong(parts[4]));
+                break;
+            case "hour":
+                revenueByHour[Integer.parseInt(parts[1])].add(Long.parseLong(parts[2]));
+                break;
+            case "day": {
+                Totals totals = byDay.computeIfAbsent(LocalDate.parse(parts[1]), day -> new Totals());
+                totals.bills.add(Long.parseLong(parts[2]));
+                totals.revenuePaisa.add(Long.parseLong(parts[3]));
+                break;
+            }
+            case "seller": {
+                String[] sellerParts = line.split(",", 4);
+                Totals totals = bySeller.computeIfAbsent(sellerParts[3], seller -> new Totals());
+                totals.bills.add(Long.parseLong(sellerParts[1]));
+                totals.revenuePaisa.add(Long.parseLong(sellerParts[2]));
+                break;
+            }
+            case "item": {
+                ItemTotals totals = byItem.computeIfAbsent(parts[1], id -> new ItemTotals(parts[4]));
+                totals.quantity.add(Long.parseLong(parts[2]));
+                totals.revenuePaisa.add(Long.parseLong(parts[3]));
+                break;
+            }
+            default:
+                throw new IOException("unknown line: " + line);
+        }
+    }
+
+    private static final class Totals {
+        final LongAdder bills = new LongAdder();
+        final LongAdder revenuePaisa = new LongAdder();
+    }
+
+    private static final class ItemTotals {
+        final LongAdder quantity = new LongAdder();
+        final LongAdder revenuePaisa = new LongAdder();
+        volatile String name; // From its bills, not the current catalog
+
+        ItemTotals(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Adds ledger lines to the totals. Items with an {@link ItemCode} are found through a primitive map,
+     * so applying a line allocates nothing unless it starts a bill or is the item's first sale.
+     */
+    private final class LineApplier implements BillLedger.LineVisitor {
+        private final LocalHourCache hours;
+        private final LongIntHashMap itemByCode = new LongIntHashMap();
+        private ItemTotals[] itemsByIndex = new ItemTotals[64];
+        private int itemCount;
+
+        // The bill being applied; a bill's lines always arrive together
+        private Totals billDay;
+        private Totals billSeller;
+        private LongAdder billHour;
+
+        LineApplier(ZoneId zone) {
+            this.hours = new LocalHourCache(zone);
+        }
+
+        @Override
+        public void visit(BillLedger.LineRecord line) {
+            if (line.getLineNumber() == 0) {
+                hours.moveTo(line.getEpochMillis());
+                billDay = byDay.computeIfAbsent(hours.getDay(), day -> new Totals());
+                billHour = revenueByHour[hours.getHour()];
+                billSeller = bySeller.computeIfAbsent(line.getSellerUsername(), seller -> new Totals());
+                billDay.bills.increment();
+                billSeller.bills.increment();
+                billCount.increment();
+            }
+            long subtotal = line.getSubtotalPaisa();
+            int quantity = line.getQuantity();
+            lineCount.increment();
+            quantitySold.add(quantity);
+            revenuePaisa.add(subtotal);
+            billDay.revenuePaisa.add(subtotal);
+            billHour.add(subtotal);
+            billSeller.revenuePaisa.add(subtotal);
+            ItemTotals item = findItem(line);
+            item.quantity.add(quantity);
+            item.revenuePaisa.add(subtotal);
+        }
+
+        private ItemTotals findItem(BillLedger.LineRecord line) {
+            long code = line.getItemCode();
+            if (code != ItemCode.NO_CODE) {
+                int index = itemByCode.get(code, -1);
+                if (index >= 0) {
+                    return itemsByIndex[index];
+                }
+            }
+            String itemName = line.getItemName();
+            ItemTotals item = byItem.computeIfAbsent(line.getItemId(), id -> new ItemTotals(itemName));
+            item.name = itemName;
+            if (code != ItemCode.NO_CODE) {
+                if (itemCount == itemsByIndex.length) {
+                    itemsByIndex = Arrays.copyOf(itemsByIndex, itemCount * 2);
+                }
+                itemsByIndex[itemCount] = item;
+                itemByCode.put(code, itemCount++);
+            }
+            return item;
+        }
+
+        void forgetItems() {
+            itemByCode.clear();
+            Arrays.fill(itemsByIndex, 0, itemCount, null);
+            itemCount = 0;
+        }
+    }
+}
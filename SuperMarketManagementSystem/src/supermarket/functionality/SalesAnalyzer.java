@@ -0,0 +1,333 @@
+package supermarket.functionality;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes {@link SalesReport}s by streaming the {@link BillLedger} once.
+ * <p>
+ * The ledger's fixed-size records are split into chunks that are scanned in parallel, each into its own
+ * totals, which are merged at the end. Lines are read straight from the scan buffer
+ * ({@link BillLedger#scanLines}) and items are keyed by their numeric {@link ItemCode}, so the scan
+ * allocates next to nothing per line. Memory is bounded by the number of distinct days, sellers and items,
+ * never by the number of bills. A period is located by binary search, so recent periods are cheap
+ * however long the history is.
+ */
+public class SalesAnalyzer {
+    public static final int DEFAULT_TOP_ITEMS = 10;
+
+    private static final long MIN_CHUNK_RECORDS = 64 * 1024; // 10 MB; smaller chunks cost more than they save
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final BillLedger ledger;
+    private final ZoneId zone;
+    private final int parallelism;
+
+    public SalesAnalyzer(BillLedger ledger) {
+        this(ledger, ZoneId.systemDefault(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param zone Time zone that days and hours are counted in.
+     * @param parallelism Number of chunks scanned at once.
+     */
+    public SalesAnalyzer(BillLedger ledger, ZoneId zone, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.ledger = ledger;
+        this.zone = zone;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Summarizes every bill in the ledger.
+     */
+    public SalesReport analyzeAll(int topItems) throws IOException {
+        return analyze(Long.MIN_VALUE, Long.MAX_VALUE, topItems);
+    }
+
+    /**
+     * Summarizes the bills created in [fromMillis, toMillis).
+     * @param topItems How many items to list by quantity and by revenue.
+     */
+    public SalesReport analyze(long fromMillis, long toMillis, int topItems) throws IOException {
+        long started = System.nanoTime();
+        long fromId = fromMillis == Long.MIN_VALUE ? Long.MIN_VALUE : IdGenerator.firstIdAt(fromMillis);
+        long toId = toMillis == Long.MAX_VALUE ? Long.MAX_VALUE : IdGenerator.firstIdAt(toMillis);
+        // Bills from other tills may be slightly out of order, so the record range is widened (see BillLedger)
+        long startRecord = fromMillis == Long.MIN_VALUE ? 0
+                : ledger.findFirstRecordAt(fromMillis - BillLedger.MAX_CLOCK_SKEW_MILLIS);
+        long endRecord = toMillis > Long.MAX_VALUE - BillLedger.MAX_CLOCK_SKEW_MILLIS ? ledger.getRecordCount()
+                : ledger.findFirstRecordAt(toMillis + BillLedger.MAX_CLOCK_SKEW_MILLIS);
+
+        long records = Math.max(0, endRecord - startRecord);
+        int chunks = (int) Math.max(1, Math.min(parallelism * 4L, records / MIN_CHUNK_RECORDS));
+        List<SalesTotals> chunkTotals;
+        if (chunks == 1) {
+            SalesTotals totals = new SalesTotals(fromId, toId, zone);
+            ledger.scanLines(startRecord, endRecord, totals);
+            chunkTotals = List.of(totals);
+        } else {
+            chunkTotals = scanInParallel(startRecord, endRecord, chunks, fromId, toId);
+        }
+
+        SalesTotals merged = new SalesTotals(fromId, toId, zone);
+        for (SalesTotals totals : chunkTotals) { // In ledger order, so later item names win
+            merged.mergeFrom(totals);
+        }
+        return merged.toReport(fromMillis, toMillis, topItems, System.nanoTime() - started);
+    }
+
+    /**
+     * Prints a sales report.
+     * Usage: SalesAnalyzer [ledger-file [days]] - covers the last given number of days, or all bills.
+     */
+    public static void main(String[] args) throws IOException {
+        BillLedger ledger = new BillLedger(new File(args.length > 0 ? args[0] : BillLedger.DEFAULT_LEDGER_FILE_PATH));
+        SalesAnalyzer analyzer = new SalesAnalyzer(ledger);
+        SalesReport report;
+        if (args.length > 1) {
+            long now = System.currentTimeMillis();
+            report = analyzer.analyze(now - Long.parseLong(args[1]) * 24 * HOUR_MILLIS, now, DEFAULT_TOP_ITEMS);
+        } else {
+            report = analyzer.analyzeAll(DEFAULT_TOP_ITEMS);
+        }
+        System.out.printf("%d bills, %d lines, %d units, revenue PKR %s (read in %.1f ms)%n", report.getBillCount(),
+                report.getLineCount(), report.getQuantitySold(), Money.format(report.getRevenuePaisa()), report.getScanNanos() / 1e6);
+        System.out.println("By day:");
+        report.getRevenueByDay().forEach((day, revenue) -> System.out.println("  " + day + "  " + Money.format(revenue)));
+        System.out.println("By hour:");
+        for (int hour = 0; hour < 24; hour++) {
+            if (report.getRevenueForHour(hour) != 0) {
+                System.out.printf("  %02d:00  %s%n", hour, Money.format(report.getRevenueForHour(hour)));
+            }
+        }
+        System.out.println("By seller:");
+        report.getRevenueBySeller().forEach((seller, revenue) -> System.out.println("  " + seller + "  " + Money.format(revenue)));
+        System.out.println("Top items by quantity:");
+        for (SalesReport.ItemSales item : report.getTopItemsByQuantity()) {
+            System.out.println("  " + item.getItemName() + " (" + item.getItemId() + ")  " + item.getQuantity());
+        }
+        System.out.println("Top items by revenue:");
+        for (SalesReport.ItemSales item : report.getTopItemsByRevenue()) {
+            System.out.println("  " + item.getItemName() + " (" + item.getItemId() + ")  " + Money.format(item.getRevenuePaisa()));
+        }
+    }
+
+    private List<SalesTotals> scanInParallel(long startRecord, long endRecord, int chunks,
+                                             long fromId, long toId) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks), task -> {
+            Thread thread = new Thread(task, "sales-report-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<SalesTotals>> futures = new ArrayList<>(chunks);
+            long records = endRecord - startRecord;
+            for (int i = 0; i < chunks; i++) {
+                long chunkStart = startRecord + records * i / chunks;
+                long chunkEnd = startRecord + records * (i + 1) / chunks;
+                futures.add(executor.submit(() -> {
+                    SalesTotals totals = new SalesTotals(fromId, toId, zone);
+                    ledger.scanLines(chunkStart, chunkEnd, totals);
+                    return totals;
+                }));
+            }
+            List<SalesTotals> results = new ArrayList<>(chunks);
+            for (Future<SalesTotals> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error reading " + ledger.getLedgerFile().getPath(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + ledger.getLedgerFile().getPath(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Running totals of one chunk of the ledger. Not thread-safe: every chunk has its own.
+     */
+    private static class SalesTotals implements BillLedger.LineVisitor {
+        private final long fromId;
+        private final long toId;
+
+        private long billCount;
+        private long lineCount;
+        private long quantitySold;
+        private long revenuePaisa;
+        private final Map<LocalDate, long[]> revenueByDay = new HashMap<>();
+        private final long[] revenueByHour = new long[24];
+        private final Map<String, long[]> revenueBySeller = new HashMap<>();
+
+        // Items by code (allocation-free) or, for IDs without one, by ID; both point into the arrays below
+        private final LongIntHashMap itemByCode = new LongIntHashMap();
+        private final Map<String, Integer> itemById = new HashMap<>();
+        private String[] itemIds = new String[64];
+        private String[] itemNames = new String[64];
+        private long[] itemQuantities = new long[64];
+        private long[] itemRevenues = new long[64];
+        private int itemCount;
+
+        // State of the bill being read; a bill's lines always arrive together
+        private boolean billInPeriod;
+        private long[] billDayTotal;
+        private int billHour;
+        private long[] billSellerTotal;
+
+        private final LocalHourCache hours;
+        private long[] cachedDayTotal; // Total of hours.getDay()
+
+        SalesTotals(long fromId, long toId, ZoneId zone) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.hours = new LocalHourCache(zone);
+        }
+
+        @Override
+        public void visit(BillLedger.LineRecord line) {
+            if (line.getLineNumber() == 0) {
+                startBill(line);
+            }
+            if (!billInPeriod) {
+                return;
+            }
+            long subtotal = line.getSubtotalPaisa();
+            int quantity = line.getQuantity();
+            lineCount++;
+            quantitySold += quantity;
+            revenuePaisa += subtotal;
+            billDayTotal[0] += subtotal;
+            revenueByHour[billHour] += subtotal;
+            billSellerTotal[0] += subtotal;
+
+            int item = findItem(line);
+            itemQuantities[item] += quantity;
+            itemRevenues[item] += subtotal;
+        }
+
+        private void startBill(BillLedger.LineRecord line) {
+            long billId = line.getBillId();
+            billInPeriod = billId >= fromId && billId < toId;
+            if (!billInPeriod) {
+                return;
+            }
+            billCount++;
+            if (hours.moveTo(line.getEpochMillis())) {
+                cachedDayTotal = revenueByDay.computeIfAbsent(hours.getDay(), day -> new long[1]);
+            }
+            billDayTotal = cachedDayTotal;
+            billHour = hours.getHour();
+            billSellerTotal = revenueBySeller.computeIfAbsent(line.getSellerUsername(), seller -> new long[1]);
+        }
+
+        private int findItem(BillLedger.LineRecord line) {
+            long code = line.getItemCode();
+            if (code != ItemCode.NO_CODE) {
+                int item = itemByCode.get(code, -1);
+                if (item < 0) {
+                    item = addItem(line.getItemId(), line.getItemName());
+                    itemByCode.put(code, item);
+                }
+                return item;
+            }
+            String itemId = line.getItemId();
+            Integer item = itemById.get(itemId);
+            if (item == null) {
+                item = addItem(itemId, line.getItemName());
+                itemById.put(itemId, item);
+            }
+            return item;
+        }
+
+        private int addItem(String itemId, String itemName) {
+            if (itemCount == itemIds.length) {
+                int capacity = itemCount * 2;
+                itemIds = Arrays.copyOf(itemIds, capacity);
+                itemNames = Arrays.copyOf(itemNames, capacity);
+                itemQuantities = Arrays.copyOf(itemQuantities, capacity);
+                itemRevenues = Arrays.copyOf(itemRevenues, capacity);
+            }
+            itemIds[itemCount] = itemId;
+            itemNames[itemCount] = itemName;
+            return itemCount++;
+        }
+
+        /**
+         * Adds another chunk's totals to these. Called once per chunk, so it may allocate freely.
+         */
+        void mergeFrom(SalesTotals other) {
+            billCount += other.billCount;
+            lineCount += other.lineCount;
+            quantitySold += other.quantitySold;
+            revenuePaisa += other.revenuePaisa;
+            other.revenueByDay.forEach((day, total) -> revenueByDay.computeIfAbsent(day, d -> new long[1])[0] += total[0]);
+            for (int hour = 0; hour < revenueByHour.length; hour++) {
+                revenueByHour[hour] += other.revenueByHour[hour];
+            }
+            other.revenueBySeller.forEach((seller, total) -> revenueBySeller.computeIfAbsent(seller, s -> new long[1])[0] += total[0]);
+            for (int i = 0; i < other.itemCount; i++) {
+                Integer item = itemById.get(other.itemIds[i]);
+                if (item == null) {
+                    item = addItem(other.itemIds[i], other.itemNames[i]);
+                    itemById.put(other.itemIds[i], item);
+                } else {
+                    itemNames[item] = other.itemNames[i];
+                }
+                itemQuantities[item] += other.itemQuantities[i];
+                itemRevenues[item] += other.itemRevenues[i];
+            }
+        }
+
+        SalesReport toReport(long fromMillis, long toMillis, int topItems, long scanNanos) {
+            TreeMap<LocalDate, Long> byDay = new TreeMap<>();
+            revenueByDay.forEach((day, total) -> byDay.put(day, total[0]));
+
+            Map<String, Long> bySeller = new LinkedHashMap<>();
+            revenueBySeller.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed())
+                    .forEach(e -> bySeller.put(e.getKey(), e.getValue()[0]));
+
+            return new SalesReport(fromMillis, toMillis, billCount, lineCount, quantitySold, revenuePaisa,
+                    byDay, revenueByHour, bySeller,
+                    topItems(topItems, itemQuantities), topItems(topItems, itemRevenues), scanNanos);
+        }
+
+        private List<SalesReport.ItemSales> topItems(int limit, long[] rankBy) {
+            Integer[] order = new Integer[itemCount];
+            for (int i = 0; i < itemCount; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(rankBy[b], rankBy[a]));
+            List<SalesReport.ItemSales> top = new ArrayList<>(Math.min(limit, itemCount));
+            for (int i = 0; i < itemCount && i < limit; i++) {
+                int item = order[i];
+                top.add(new SalesReport.ItemSales(itemIds[item], itemNames[item], itemQuantities[item], itemRevenues[item]));
+            }
+            return top;
+        }
+    }
+}
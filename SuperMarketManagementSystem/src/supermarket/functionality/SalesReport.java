@@ -0,0 +1,141 @@
+package supermarket.functionality;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Sales totals for a period, as computed by {@link SalesAnalyzer}. All amounts are in paisa.
+ */
+public class SalesReport {
+    private final long fromMillis;
+    private final long toMillis;
+    private final long billCount;
+    private final long lineCount;
+    private final long quantitySold;
+    private final long revenuePaisa;
+    private final SortedMap<LocalDate, Long> revenueByDay;
+    private final long[] revenueByHour;
+    private final Map<String, Long> revenueBySeller;
+    private final List<ItemSales> topItemsByQuantity;
+    private final List<ItemSales> topItemsByRevenue;
+    private final long scanNanos;
+
+    SalesReport(long fromMillis, long toMillis, long billCount, long lineCount, long quantitySold, long revenuePaisa,
+                SortedMap<LocalDate, Long> revenueByDay, long[] revenueByHour, Map<String, Long> revenueBySeller,
+                List<ItemSales> topItemsByQuantity, List<ItemSales> topItemsByRevenue, long scanNanos) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.billCount = billCount;
+        this.lineCount = lineCount;
+        this.quantitySold = quantitySold;
+        this.revenuePaisa = revenuePaisa;
+        this.revenueByDay = Collections.unmodifiableSortedMap(revenueByDay);
+        this.revenueByHour = revenueByHour.clone();
+        this.revenueBySeller = Collections.unmodifiableMap(revenueBySeller);
+        this.topItemsByQuantity = Collections.unmodifiableList(topItemsByQuantity);
+        this.topItemsByRevenue = Collections.unmodifiableList(topItemsByRevenue);
+        this.scanNanos = scanNanos;
+    }
+
+    /**
+     * @return Start of the period (inclusive), epoch millis.
+     */
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    /**
+     * @return End of the period (exclusive), epoch millis.
+     */
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    public long getBillCount() {
+        return billCount;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getQuantitySold() {
+        return quantitySold;
+    }
+
+    public long getRevenuePaisa() {
+        return revenuePaisa;
+    }
+
+    /**
+     * @return Revenue per calendar day (in the analyzer's time zone), oldest first. Days without sales are absent.
+     */
+    public SortedMap<LocalDate, Long> getRevenueByDay() {
+        return revenueByDay;
+    }
+
+    /**
+     * @return Revenue per hour of the day, 0 to 23, summed over every day in the period.
+     */
+    public long getRevenueForHour(int hour) {
+        return revenueByHour[hour];
+    }
+
+    /**
+     * @return Revenue per seller username, highest first.
+     */
+    public Map<String, Long> getRevenueBySeller() {
+        return revenueBySeller;
+    }
+
+    public List<ItemSales> getTopItemsByQuantity() {
+        return topItemsByQuantity;
+    }
+
+    public List<ItemSales> getTopItemsByRevenue() {
+        return topItemsByRevenue;
+    }
+
+    /**
+     * @return How long reading the ledger took, in nanoseconds.
+     */
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    /**
+     * Units sold and revenue of one item over the period. The name is taken from its bills, not the current catalog.
+     */
+    public static class ItemSales {
+        private final String itemId;
+        private final String itemName;
+        private final long quantity;
+        private final long revenuePaisa;
+
+        ItemSales(String itemId, String itemName, long quantity, long revenuePaisa) {
+            this.itemId = itemId;
+            this.itemName = itemName;
+            this.quantity = quantity;
+            this.revenuePaisa = revenuePaisa;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public long getRevenuePaisa() {
+            return revenuePaisa;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package supermarket.functionality;
+
+/**
+ * Receives low-stock alerts from an {@link Inventory}.
+ * Called on the thread whose sale or adjustment caused the change (a till's thread, the bill writer,
+ * or an admin action), so implementations must return quickly; Swing listeners should use invokeLater.
+ */
+public interface StockListener {
+    /**
+     * An item's stock fell to or below its low-stock level.
+     * @param onHand The quantity left; 0 means the item is sold out.
+     */
+    void lowStock(String itemId, long onHand, long lowStockLevel);
+}
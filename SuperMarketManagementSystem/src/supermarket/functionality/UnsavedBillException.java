@@ -0,0 +1,21 @@
+package supermarket.functionality;
+
+import java.io.IOException;
+
+/**
+ * A bill could not be saved and could not be put back on its till, because the next customer's
+ * lines were already there. The bill's stock is still reserved: commit it again, or void it with
+ * {@link PosEngine#voidUnsaved(Bill)}.
+ */
+public class UnsavedBillException extends IOException {
+    private final transient Bill bill;
+
+    public UnsavedBillException(Bill bill, Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.bill = bill;
+    }
+
+    public Bill getBill() {
+        return bill;
+    }
+}
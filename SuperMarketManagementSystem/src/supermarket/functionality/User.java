@@ -6,12 +6,12 @@ package supermarket.functionality; // Moved to functionality package
  */
 public class User {
     private String username;
-    private String password;
+    private String passwordHash; // Stored credential from PasswordHasher (older files may still hold plain text)
     private String role;
 
-    public User(String username, String password, String role) {
+    public User(String username, String passwordHash, String role) {
         this.username = username;
-        this.password = password;
+        this.passwordHash = passwordHash;
         this.role = role;
     }
 
@@ -19,8 +19,8 @@ public class User {
         return username;
     }
 
-    public String getPassword() {
-        return password;
+    public String getPasswordHash() {
+        return passwordHash;
     }
 
     public String getRole() {
@@ -28,7 +28,7 @@ public class User {
     }
 
     public String toCSVString() {
-        return username + "," + password + "," + role;
+        return username + "," + passwordHash + "," + role;
     }
 
     public static User fromCSVString(String csvString) {
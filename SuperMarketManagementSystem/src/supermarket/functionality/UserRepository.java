@@ -0,0 +1,389 @@
+package supermarket.functionality;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Memory-resident store of the users in users.txt, indexed by username.
+ * Like {@link ItemCatalog}, adds and deletes are appended to users.txt.journal,
+ * replayed on load and periodically compacted back into users.txt.
+ * users.txt holds either text lines or a {@link BinarySnapshot} (see {@link #convertSnapshot(boolean)});
+ * loads tell them apart by the first bytes and compactions keep the format the file is in.
+ * Loads, changes and compactions hold the journal's cross-process lock (see {@link MutationJournal}), and
+ * changes and compactions first reload if another process changed the files, so none of its records is lost.
+ * Credentials are stored as {@link PasswordHasher} hashes; plain-text ones left by older
+ * versions are upgraded on the next successful login or by {@link #hashLegacyPasswords()}.
+ */
+public class UserRepository {
+    public static final String DEFAULT_USERS_FILE_PATH = "users.txt";
+
+    public static final int COMPACTION_THRESHOLD = 200;
+
+    /** Number of users passed to a {@link LoadProgress} at a time. */
+    public static final int PROGRESS_CHUNK_USERS = 1000;
+
+    // Journal record formats. The credential comes last so it may contain commas.
+    private static final String ADD_RECORD = "+";
+    private static final String REMOVE_RECORD = "-";
+
+    private static UserRepository sharedInstance;
+
+    private final File usersFile;
+    private final MutationJournal journal;
+    private final Map<String, User> usersByName = new LinkedHashMap<>(); // Keyed by lower-cased username
+    private boolean loaded;
+    private String loadedFilesSignature; // Sizes and times of the files as of our last read or write
+    private boolean binarySnapshot;      // users.txt is a BinarySnapshot, so compactions write one too
+
+    public UserRepository(File usersFile) {
+        this.usersFile = usersFile;
+        this.journal = new MutationJournal(new File(usersFile.getPath() + ".journal"));
+    }
+
+    /**
+     * Returns the repository backed by the default users.txt, shared by every frame in this process.
+     */
+    public static synchronized UserRepository getInstance() {
+        if (sharedInstance == null) {
+            sharedInstance = new UserRepository(new File(DEFAULT_USERS_FILE_PATH));
+        }
+        return sharedInstance;
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    public File getUsersFile() {
+        return usersFile;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void ensureLoaded() throws IOException {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Like {@link #ensureLoaded()}, passing the users of users.txt to progress in chunks as they are read.
+     * Nothing is passed if the users were already loaded. The journal is replayed after the last chunk,
+     * so take the final state from the repository once this returns.
+     * @throws java.io.InterruptedIOException if progress was cancelled; the repository then stays unloaded.
+     */
+    public synchronized void ensureLoaded(LoadProgress<User> progress) throws IOException {
+        if (!loaded) {
+            reload(progress);
+        }
+    }
+
+    /**
+     * Discards the in-memory state, reads the users.txt snapshot and replays the journal on top of it.
+     * @throws FileNotFoundException if users.txt does not exist.
+     */
+    public synchronized void reload() throws IOException {
+        reload(null);
+    }
+
+    private void reload(LoadProgress<User> progress) throws IOException {
+        journal.lock(); // The snapshot and journal are read as a pair, never halfway through another process's compaction
+        try {
+            readSnapshotAndJournal(progress);
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void readSnapshotAndJournal(LoadProgress<User> progress) throws IOException {
+        usersByName.clear();
+        loaded = false;
+        FlightEvents.UserFileRead event = new FlightEvents.UserFileRead();
+        event.begin();
+        binarySnapshot = BinarySnapshot.isBinarySnapshot(usersFile);
+        if (binarySnapshot) {
+            readBinarySnapshot(progress);
+        } else {
+            readTextSnapshot(progress);
+        }
+        long journalBytes = journal.replay(this::applyRecord);
+        event.userCount = usersByName.size();
+        event.bytes = usersFile.length() + journalBytes;
+        event.commit();
+        loaded = true;
+        loadedFilesSignature = filesSignature(); // Before compacting, which reloads if the files changed since
+        compactIfNeeded();
+    }
+
+    private void readBinarySnapshot(LoadProgress<User> progress) throws IOException {
+        List<User> users = BinarySnapshot.readUsers(usersFile);
+        for (User user : users) {
+            usersByName.put(key(user.getUsername()), user);
+        }
+        if (progress != null && !users.isEmpty()) {
+            progress.chunkLoaded(users, usersFile.length(), usersFile.length());
+        }
+    }
+
+    private void readTextSnapshot(LoadProgress<User> progress) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(usersFile), StandardCharsets.UTF_8))) {
+            long fileBytes = usersFile.length();
+            long bytesRead = 0; // Approximate: users.txt is almost always ASCII
+            List<User> chunk = progress == null ? null : new ArrayList<>(PROGRESS_CHUNK_USERS);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                User user = User.fromCSVString(line);
+                if (user != null) {
+                    usersByName.put(key(user.getUsername()), user);
+                }
+                if (progress == null) {
+                    continue;
+                }
+                bytesRead += line.length() + 1;
+                if (user != null) {
+                    chunk.add(user);
+                }
+                if (chunk.size() == PROGRESS_CHUNK_USERS) {
+                    if (progress.isCancelled()) {
+                        throw new InterruptedIOException("Loading " + usersFile.getPath() + " was cancelled.");
+                    }
+                    progress.chunkLoaded(chunk, Math.min(bytesRead, fileBytes), fileBytes);
+                    chunk = new ArrayList<>(PROGRESS_CHUNK_USERS);
+                }
+            }
+            if (progress != null && !chunk.isEmpty()) {
+                progress.chunkLoaded(chunk, fileBytes, fileBytes);
+            }
+        }
+    }
+
+    /**
+     * Loads the users if needed, and reloads them if users.txt or its journal was changed by another process.
+     * Costs only a few file stat calls when nothing changed.
+     */
+    public synchronized void reloadIfChanged() throws IOException {
+        journal.lock();
+        try {
+            if (!loaded || !filesSignature().equals(loadedFilesSignature)) {
+                reload();
+            }
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private String filesSignature() {
+        File journalFile = journal.getJournalFile();
+        return usersFile.length() + ":" + usersFile.lastModified() + ":" + journalFile.length() + ":" + journalFile.lastModified();
+    }
+
+    /**
+     * Checks a username and password. The slow hash runs outside the repository lock, so call this
+     * from a background thread, never the EDT. A plain-text or outdated credential is re-hashed on success.
+     * @return The user, or null if the username is unknown or the password is wrong.
+     */
+    public User authenticate(String username, char[] password) {
+        User user;
+        synchronized (this) {
+            user = findByUsername(username);
+        }
+        if (user == null || !user.getUsername().equals(username)) {
+            PasswordHasher.verify(password, DummyCredential.HASH); // Same cost as a real check, so timing does not reveal usernames
+            return null;
+        }
+        if (!PasswordHasher.verify(password, user.getPasswordHash())) {
+            return null;
+        }
+        if (PasswordHasher.needsRehash(user.getPasswordHash())) {
+            user = replaceCredential(user, PasswordHasher.hash(password));
+        }
+        return user;
+    }
+
+    /**
+     * Hashes every remaining plain-text credential. Each hash is computed outside the lock,
+     * so this can run in the background while users log in.
+     * @return Number of credentials upgraded.
+     */
+    public int hashLegacyPasswords() {
+        int upgraded = 0;
+        for (User user : getAllUsers()) {
+            if (!PasswordHasher.isHashed(user.getPasswordHash())) {
+                User replaced = replaceCredential(user, PasswordHasher.hash(user.getPasswordHash().toCharArray()));
+                if (replaced != user) {
+                    upgraded++;
+                }
+            }
+        }
+        return upgraded;
+    }
+
+    /**
+     * Stores a new credential for a user, unless the user was changed or removed in the meantime.
+     * Failures are logged, not thrown: the old credential keeps working.
+     * @return The user now in the repository (the original one if nothing was replaced).
+     */
+    private synchronized User replaceCredential(User expected, String newHash) {
+        User updated = new User(expected.getUsername(), newHash, expected.getRole());
+        try {
+            journal.lock();
+            try {
+                reloadIfChanged();
+                if (!sameUser(usersByName.get(key(expected.getUsername())), expected)) {
+                    return expected;
+                }
+                journal.append(ADD_RECORD + "," + updated.getUsername() + "," + updated.getRole() + "," + updated.getPasswordHash());
+                usersByName.put(key(updated.getUsername()), updated);
+                loadedFilesSignature = filesSignature();
+            } finally {
+                journal.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Error upgrading credential of " + expected.getUsername() + ": " + e.getMessage());
+            return expected;
+        }
+        compactIfNeeded();
+        return updated;
+    }
+
+    // A reload makes new instances, so compare by value
+    private static boolean sameUser(User current, User expected) {
+        return current != null && current.getUsername().equals(expected.getUsername())
+                && current.getRole().equals(expected.getRole()) && current.getPasswordHash().equals(expected.getPasswordHash());
+    }
+
+    /**
+     * @return A snapshot copy of all users in file order.
+     */
+    public synchronized List<User> getAllUsers() {
+        return new ArrayList<>(usersByName.values());
+    }
+
+    /**
+     * Case-insensitive lookup, matching the rule that usernames must be unique ignoring case.
+     */
+    public synchronized User findByUsername(String username) {
+        return username == null ? null : usersByName.get(key(username));
+    }
+
+    /**
+     * Adds a user and appends it to the journal. The user's credential must already be hashed.
+     * @return false if the username is already taken (ignoring case).
+     */
+    public synchronized boolean addUser(User user) throws IOException {
+        journal.lock();
+        try {
+            reloadIfChanged(); // Another till may have taken the username meanwhile
+            if (usersByName.containsKey(key(user.getUsername()))) {
+                return false;
+            }
+            journal.append(ADD_RECORD + "," + user.getUsername() + "," + user.getRole() + "," + user.getPasswordHash());
+            usersByName.put(key(user.getUsername()), user);
+            loadedFilesSignature = filesSignature();
+        } finally {
+            journal.unlock();
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Removes the user with exactly this username and appends the deletion to the journal.
+     * @return The removed user, or null if there is no such user.
+     */
+    public synchronized User removeUser(String username) throws IOException {
+        User existing;
+        journal.lock();
+        try {
+            reloadIfChanged();
+            existing = usersByName.get(key(username));
+            if (existing == null || !existing.getUsername().equals(username)) {
+                return null;
+            }
+            journal.append(REMOVE_RECORD + "," + username);
+            usersByName.remove(key(username));
+            loadedFilesSignature = filesSignature();
+        } finally {
+            journal.unlock();
+        }
+        compactIfNeeded();
+        return existing;
+    }
+
+    /**
+     * Rewrites users.txt as a {@link BinarySnapshot}, or as text lines, folding in the journal.
+     * Later compactions, by this or any other process, keep that format.
+     */
+    public synchronized void convertSnapshot(boolean binary) throws IOException {
+        journal.lock();
+        try {
+            reloadIfChanged();
+            binarySnapshot = binary;
+            compact();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    public synchronized boolean isBinarySnapshot() {
+        return binarySnapshot;
+    }
+
+    /**
+     * Writes the current state to users.txt (in its current format) and empties the journal,
+     * first reloading if another process changed the files.
+     */
+    public synchronized void compact() throws IOException {
+        journal.lock(); // Held from the reload to the reset, so no other process can append in between
+        try {
+            reloadIfChanged();
+            if (binarySnapshot) {
+                BinarySnapshot.writeUsers(usersFile, usersByName.values());
+            } else {
+                List<String> lines = new ArrayList<>(usersByName.size());
+                for (User user : usersByName.values()) {
+                    lines.add(user.toCSVString());
+                }
+                MutationJournal.writeSnapshot(usersFile, lines);
+            }
+            journal.reset();
+            loadedFilesSignature = filesSignature();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.getRecordCount() < COMPACTION_THRESHOLD) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Error compacting " + usersFile.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private void applyRecord(String record) {
+        String[] parts = record.split(",", 4);
+        if (ADD_RECORD.equals(parts[0]) && parts.length == 4) {
+            usersByName.put(key(parts[1]), new User(parts[1], parts[3], parts[2]));
+        } else if (REMOVE_RECORD.equals(parts[0]) && parts.length == 2) {
+            usersByName.remove(key(parts[1]));
+        } else {
+            System.err.println("Invalid user journal record: " + record);
+        }
+    }
+
+    // Created on first use: hashing it takes as long as a login
+    private static final class DummyCredential {
+        static final String HASH = PasswordHasher.hash("not-a-real-password".toCharArray());
+    }
+}
@@ -0,0 +1,230 @@
+package supermarket.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import supermarket.functionality.Bill;
+import supermarket.functionality.BillSession;
+import supermarket.functionality.CatalogListener;
+import supermarket.functionality.Item;
+import supermarket.functionality.LatencyHistogram;
+import supermarket.functionality.Metrics;
+import supermarket.functionality.Money;
+import supermarket.functionality.PosEngine;
+import supermarket.functionality.User;
+
+/**
+ * One till's session on the {@link TillServer}: reads requests from the socket and answers them
+ * until the till quits or disconnects. Runs on its own thread and blocks freely while a bill is saved.
+ * While connected, catalog changes are applied to the open bill as they happen: a deleted item's line is
+ * dropped and a re-priced item's line is charged at the new price.
+ */
+class TillConnection implements Runnable {
+    private static final int MAX_SEARCH_RESULTS = 1000;
+
+    private final PosEngine engine;
+    private final Socket socket;
+    private final Metrics metrics = Metrics.getInstance();
+    private final LatencyHistogram addToBillLatency = metrics.latency(Metrics.ADD_TO_BILL);
+    private final LatencyHistogram checkoutLatency = metrics.latency(Metrics.CHECKOUT);
+    private User user;
+    private volatile BillSession session; // Also read by catalog listener calls on other threads
+
+    TillConnection(PosEngine engine, Socket socket) {
+        this.engine = engine;
+        this.socket = socket;
+    }
+
+    @Override
+    public void run() {
+        CatalogListener listener = new SessionUpdater();
+        engine.getCatalog().addCatalogListener(listener);
+        try {
+            socket.setTcpNoDelay(true); // Answers are small and the till waits for each one
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean keepOpen = handle(line.trim(), writer);
+                writer.flush();
+                if (!keepOpen) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The till disconnected; its unfinished bill is simply dropped
+        } finally {
+            engine.getCatalog().removeCatalogListener(listener);
+        }
+    }
+
+    /**
+     * Answers one request.
+     * @return false once the till has quit.
+     */
+    private boolean handle(String request, Writer out) throws IOException {
+        String[] parts = request.split(" ", 3);
+        String command = parts[0].toUpperCase();
+        try {
+            switch (command) {
+                case "LOGIN":
+                    login(parts, out);
+                    break;
+                case "SEARCH":
+                    search(parts, out);
+                    break;
+                case "SCAN":
+                    scan(parts, out);
+                    break;
+                case "TOTAL":
+                    requireSession();
+                    out.write("OK " + session.getLineCount() + " " + Money.format(session.getTotalPaisa()) + "\n");
+                    break;
+                case "CLEAR":
+                    requireSession();
+                    session.clear();
+                    out.write("OK\n");
+                    break;
+                case "CHECKOUT":
+                    checkout(out);
+                    break;
+                case "QUIT":
+                    out.write("BYE\n");
+                    return false;
+                default:
+                    out.write("ERR Unknown command: " + command + "\n");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) { // Includes NumberFormatException
+            out.write("ERR " + e.getMessage() + "\n");
+        }
+        return true;
+    }
+
+    private void login(String[] parts, Writer out) throws IOException {
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Usage: LOGIN <username> <password>");
+        }
+        char[] password = parts[2].toCharArray();
+        long start = System.nanoTime();
+        User authenticated = engine.login(parts[1], password); // Clears the password
+        metrics.latency(Metrics.LOGIN).recordSince(start);
+        Arrays.fill(password, '\0');
+        if (authenticated == null) {
+            metrics.increment(Metrics.LOGINS_FAILED);
+            out.write("ERR Invalid username or password.\n");
+            return;
+        }
+        user = authenticated;
+        session = PosEngine.SELLER_ROLE.equalsIgnoreCase(user.getRole()) ? engine.openBill(user) : null;
+        out.write("OK " + user.getRole() + "\n");
+    }
+
+    private void search(String[] parts, Writer out) throws IOException {
+        if (user == null) {
+            throw new IllegalStateException("Please log in first.");
+        }
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Usage: SEARCH <limit> [query]");
+        }
+        int limit = Math.min(Integer.parseInt(parts[1]), MAX_SEARCH_RESULTS);
+        List<Item> matches = engine.getCatalog().search(parts.length > 2 ? parts[2] : "", limit);
+        StringBuilder response = new StringBuilder("OK ").append(matches.size()).append('\n');
+        for (Item item : matches) {
+            response.append(item.getId()).append('\t').append(Money.format(item.getPricePaisa())).append('\t').append(item.getName()).append('\n');
+        }
+        out.write(response.toString());
+    }
+
+    private void scan(String[] parts, Writer out) throws IOException {
+        requireSession();
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Usage: SCAN <item id> [quantity]");
+        }
+        long start = System.nanoTime();
+        int quantity = parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 1;
+        Item item = engine.getCatalog().findByScan(parts[1]);
+        if (item == null) {
+            metrics.increment(Metrics.UNKNOWN_SCANS);
+            throw new IllegalArgumentException("Unknown item: " + parts[1]);
+        }
+        int line = session.addItem(item, quantity);
+        addToBillLatency.recordSince(start);
+        out.write("OK " + line + " " + Money.format(session.getTotalPaisa()) + "\n");
+    }
+
+    private void checkout(Writer out) throws IOException {
+        requireSession();
+        long start = System.nanoTime();
+        Bill saved;
+        try {
+            saved = engine.finalizeBill(session).get(); // Blocks only this till's thread until the bill is durable
+        } catch (IllegalArgumentException e) { // Empty bill or not enough stock; reported by the command loop
+            metrics.increment(Metrics.BILLS_REFUSED);
+            throw e;
+        } catch (ExecutionException e) {
+            checkoutLatency.recordSince(start);
+            metrics.increment(Metrics.BILL_SAVES_FAILED);
+            out.write("ERR " + e.getCause().getMessage() + "\n"); // The lines are back in the session; the till may retry
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving the bill", e);
+        }
+        checkoutLatency.recordSince(start);
+        metrics.increment(Metrics.BILLS_SAVED);
+        out.write("OK " + saved.getBillId() + " " + Money.format(saved.getTotal()) + "\n");
+    }
+
+    private void requireSession() {
+        if (user == null) {
+            throw new IllegalStateException("Please log in first.");
+        }
+        if (session == null) {
+            throw new IllegalStateException("Only sellers can create bills.");
+        }
+    }
+
+    /**
+     * Applies catalog changes to this till's open bill. Called on the thread that changed the catalog;
+     * BillSession is thread-safe, and the till sees the new total on its next request.
+     */
+    private class SessionUpdater implements CatalogListener {
+        @Override
+        public void itemAdded(Item item) {
+            // New items do not affect an open bill
+        }
+
+        @Override
+        public void itemRemoved(Item item) {
+            BillSession current = session;
+            if (current != null) {
+                current.removeItem(item.getId());
+            }
+        }
+
+        @Override
+        public void itemUpdated(Item oldItem, Item newItem) {
+            BillSession current = session;
+            if (current != null) {
+                current.updateItem(newItem);
+            }
+        }
+
+        @Override
+        public void catalogReloaded() {
+            BillSession current = session;
+            if (current != null) {
+                current.resync(engine.getCatalog());
+            }
+        }
+    }
+}
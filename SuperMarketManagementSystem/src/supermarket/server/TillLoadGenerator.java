@@ -0,0 +1,263 @@
+package supermarket.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import supermarket.functionality.BillLedger;
+import supermarket.functionality.BillWriter;
+import supermarket.functionality.IdGenerator;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.PosEngine;
+import supermarket.functionality.UserRepository;
+
+/**
+ * Drives a {@link TillServer} with many simulated tills to measure checkout throughput and latency.
+ * Each till logs in, then scans a few random items and checks out, over and over, until the time is up.
+ * Runs one round per till count, so it shows how throughput scales as tills are added.
+ * <p>
+ * Usage: {@code TillLoadGenerator [--tills 1,10,100,1000] [--seconds 20] [--items-per-bill 5]
+ * [--host localhost --port 7070 --user <seller> --password <password>]}
+ * Without --port, an embedded server is started on a fresh set of data files in a temporary directory,
+ * seeded with {@value #EMBEDDED_ITEMS} items and a seller account.
+ */
+public class TillLoadGenerator {
+    private static final int EMBEDDED_ITEMS = 1000;
+    private static final String EMBEDDED_SELLER = "loadtest";
+    private static final String EMBEDDED_PASSWORD = "loadtest";
+    private static final long BUSY_RETRY_MILLIS = 5;
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int itemsPerBill;
+
+    public TillLoadGenerator(String host, int port, String username, String password, int itemsPerBill) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.itemsPerBill = itemsPerBill;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] tillCounts = {1, 10, 100, 1000};
+        int seconds = 20;
+        int itemsPerBill = 5;
+        String host = "localhost";
+        int port = -1;
+        String user = EMBEDDED_SELLER;
+        String password = EMBEDDED_PASSWORD;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--tills": tillCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                case "--items-per-bill": itemsPerBill = Integer.parseInt(value); break;
+                case "--host": host = value; break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--user": user = value; break;
+                case "--password": password = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        TillServer embeddedServer = null;
+        BillWriter embeddedWriter = null;
+        File dataDirectory = null;
+        if (port < 0) {
+            dataDirectory = Files.createTempDirectory("till-load").toFile();
+            embeddedWriter = new BillWriter(new BillLedger(new File(dataDirectory, BillLedger.DEFAULT_LEDGER_FILE_PATH)), BillWriter.DEFAULT_QUEUE_CAPACITY);
+            PosEngine engine = new PosEngine(new ItemCatalog(new File(dataDirectory, ItemCatalog.DEFAULT_ITEMS_FILE_PATH)),
+                    new UserRepository(new File(dataDirectory, UserRepository.DEFAULT_USERS_FILE_PATH)), embeddedWriter, new IdGenerator(0));
+            seed(engine);
+            embeddedServer = new TillServer(engine, 0);
+            port = embeddedServer.getPort();
+            System.out.println("Embedded till server on port " + port + ", data in " + dataDirectory);
+        }
+        System.out.println("Till threads: " + (TillServer.VIRTUAL_THREADS ? "virtual" : "platform")
+                + ", CPUs: " + Runtime.getRuntime().availableProcessors());
+
+        try {
+            TillLoadGenerator generator = new TillLoadGenerator(host, port, user, password, itemsPerBill);
+            for (int tills : tillCounts) {
+                System.out.println(generator.runRound(tills, seconds));
+            }
+        } finally {
+            if (embeddedServer != null) {
+                embeddedServer.close();
+                embeddedWriter.close();
+                for (File file : dataDirectory.listFiles()) {
+                    file.delete();
+                }
+                dataDirectory.delete();
+            }
+        }
+    }
+
+    private static void seed(PosEngine engine) throws IOException {
+        engine.createDefaultAdminIfMissing();
+        engine.addSeller(EMBEDDED_SELLER, EMBEDDED_PASSWORD.toCharArray());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < EMBEDDED_ITEMS; i++) {
+            engine.addItem("Load Test Item " + i, (10 + random.nextInt(5000)) + "." + random.nextInt(10) + "0");
+        }
+    }
+
+    /**
+     * Connects and logs in the given number of tills, then lets them check out for the given time.
+     */
+    public RoundResult runRound(int tills, int seconds) throws Exception {
+        ExecutorService executor = TillServer.newThreadPerTaskExecutor("load-till-");
+        LongAdder bills = new LongAdder();
+        LongAdder busyRetries = new LongAdder();
+        List<Future<long[]>> latencies = new ArrayList<>(tills);
+        // Tills log in first; checkouts only start once every till is ready, so logins do not skew the timing
+        CountDownLatch ready = new CountDownLatch(tills);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1]; // Written before start opens, which publishes it to the tills
+        long loginStart = System.nanoTime();
+        for (int i = 0; i < tills; i++) {
+            latencies.add(executor.submit(() -> runTill(ready, start, deadline, bills, busyRetries)));
+        }
+        ready.await();
+        long checkoutStart = System.nanoTime();
+        long loginNanos = checkoutStart - loginStart;
+        deadline[0] = checkoutStart + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+
+        List<Long> allLatencies = new ArrayList<>();
+        for (Future<long[]> future : latencies) {
+            for (long latency : future.get()) {
+                allLatencies.add(latency);
+            }
+        }
+        long elapsed = System.nanoTime() - checkoutStart;
+        executor.shutdown();
+        return new RoundResult(tills, loginNanos, elapsed, bills.sum(), busyRetries.sum(), allLatencies);
+    }
+
+    /**
+     * @return The checkout latencies of this till, in nanoseconds.
+     */
+    private long[] runTill(CountDownLatch ready, CountDownLatch start, long[] deadline,
+                           LongAdder bills, LongAdder busyRetries) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getByName(host), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            List<String> itemIds;
+            try {
+                expectOk(request(in, out, "LOGIN " + username + " " + password));
+                int count = Integer.parseInt(expectOk(request(in, out, "SEARCH 200")));
+                itemIds = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    itemIds.add(in.readLine().split("\t", 2)[0]);
+                }
+            } finally {
+                ready.countDown();
+            }
+            start.await();
+
+            long[] latencies = new long[1024];
+            int latencyCount = 0;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline[0]) {
+                for (int i = 0; i < itemsPerBill; i++) {
+                    expectOk(request(in, out, "SCAN " + itemIds.get(random.nextInt(itemIds.size())) + " " + (1 + random.nextInt(3))));
+                }
+                long checkoutStart = System.nanoTime();
+                String response;
+                while ((response = request(in, out, "CHECKOUT")).startsWith("ERR Too many bills")) {
+                    busyRetries.increment(); // The writer's queue is full: back off, the lines are still in the session
+                    Thread.sleep(BUSY_RETRY_MILLIS);
+                }
+                expectOk(response);
+                if (latencyCount == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencyCount * 2);
+                }
+                latencies[latencyCount++] = System.nanoTime() - checkoutStart;
+                bills.increment();
+            }
+            request(in, out, "QUIT");
+            return Arrays.copyOf(latencies, latencyCount);
+        }
+    }
+
+    private static String request(BufferedReader in, Writer out, String request) throws IOException {
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String response = in.readLine();
+        if (response == null) {
+            throw new IOException("Server closed the connection");
+        }
+        return response;
+    }
+
+    private static String expectOk(String response) throws IOException {
+        if (!response.startsWith("OK")) {
+            throw new IOException("Unexpected response: " + response);
+        }
+        return response.length() > 3 ? response.substring(3) : "";
+    }
+
+    /**
+     * Throughput and checkout latency of one round.
+     */
+    public static class RoundResult {
+        public final int tills;
+        public final long loginNanos;
+        public final long elapsedNanos;
+        public final long bills;
+        public final long busyRetries;
+        private final long[] sortedLatencies;
+
+        RoundResult(int tills, long loginNanos, long elapsedNanos, long bills, long busyRetries, List<Long> latencies) {
+            this.tills = tills;
+            this.loginNanos = loginNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.bills = bills;
+            this.busyRetries = busyRetries;
+            this.sortedLatencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        public double billsPerSecond() {
+            return bills * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return The checkout latency at the given percentile (0 to 100), in milliseconds.
+         */
+        public double latencyMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.round(percentile / 100 * (sortedLatencies.length - 1)));
+            return sortedLatencies[index] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%5d tills: logins %6.1f s | %8d bills, %8.1f bills/s | checkout p50 %6.2f ms, p99 %7.2f ms, max %7.2f ms | %d busy retries",
+                    tills, loginNanos / 1e9, bills, billsPerSecond(), latencyMillis(50), latencyMillis(99), latencyMillis(100), busyRetries);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package supermarket.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import supermarket.functionality.DataFileLock;
+import supermarket.functionality.IdGenerator;
+import supermarket.functionality.PosEngine;
+
+/**
+ * Local multi-till server: one process owns the data files and many tills check out through it.
+ * Every connection is one till session running on its own thread (a virtual thread where the JVM has them);
+ * all of them share one {@link PosEngine}, so catalog changes go through one {@link supermarket.functionality.ItemCatalog}
+ * and every bill through one {@link supermarket.functionality.BillWriter}, the single writer of bills.dat.
+ * <p>
+ * Line protocol (UTF-8, one request per line, answered by {@code OK ...} or {@code ERR <message>}):
+ * <pre>
+ * LOGIN &lt;username&gt; &lt;password&gt;  -> OK &lt;role&gt;
+ * SEARCH &lt;limit&gt; [query]         -> OK &lt;n&gt;, then n lines: &lt;id&gt; TAB &lt;price&gt; TAB &lt;name&gt;
+ * SCAN &lt;item id&gt; [quantity]      -> OK &lt;line&gt; &lt;total&gt;
+ * TOTAL                           -> OK &lt;lines&gt; &lt;total&gt;
+ * CLEAR                           -> OK
+ * CHECKOUT                        -> OK &lt;bill id&gt; &lt;total&gt;, once the bill is on disk
+ * QUIT                            -> BYE
+ * </pre>
+ * The server only listens on the loopback interface.
+ */
+public class TillServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7070;
+
+    static final boolean VIRTUAL_THREADS = hasVirtualThreads();
+
+    private static DataFileLock dataFileLock; // Held by main() for the life of the server process
+
+    private final PosEngine engine;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptThread;
+    private volatile boolean closed;
+
+    /**
+     * Binds the port (0 for any free port) and starts accepting tills.
+     */
+    public TillServer(PosEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.sessions = newThreadPerTaskExecutor("till-session-");
+        this.acceptThread = new Thread(this::acceptTills, "till-accept");
+        this.acceptThread.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        dataFileLock = DataFileLock.tryAcquireExclusive(new File("."));
+        if (dataFileLock == null) {
+            System.err.println("The data files are in use by another till or server. Close it first.");
+            System.exit(1);
+        }
+        try {
+            IdGenerator.claim(new File("."));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        PosEngine engine = PosEngine.getInstance();
+        engine.createDefaultAdminIfMissing();
+        engine.getCatalog().ensureLoaded();
+        engine.getUserRepository().ensureLoaded();
+        engine.getSalesAggregates().ensureLoaded();
+        engine.getInventory().ensureLoaded();
+        engine.getInventory().addStockListener((itemId, onHand, lowStockLevel) -> System.err.println(
+                "Low stock: item " + itemId + " has " + onHand + " left (low-stock level " + lowStockLevel + ")"));
+
+        TillServer server = new TillServer(engine, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "till-server-shutdown"));
+        System.out.println("Till server listening on " + server.serverSocket.getLocalSocketAddress()
+                + " (" + (VIRTUAL_THREADS ? "virtual" : "platform") + " threads per till)");
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The number of tills currently connected.
+     */
+    public int getConnectedTills() {
+        return openSockets.size();
+    }
+
+    /**
+     * Stops accepting tills and disconnects the connected ones. Bills already being checked out are still saved
+     * by the bill writer, which outlives the server.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing till server socket: " + e.getMessage());
+        }
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        sessions.shutdown();
+        try {
+            acceptThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptTills() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Error accepting till connection: " + e.getMessage());
+                }
+                continue;
+            }
+            openSockets.add(socket);
+            sessions.execute(() -> {
+                try {
+                    new TillConnection(engine, socket).run();
+                } finally {
+                    openSockets.remove(socket);
+                    closeQuietly(socket);
+                }
+            });
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    /**
+     * Returns an executor that runs every task on a new thread: a virtual thread on JDK 21 and later,
+     * otherwise a platform daemon thread from a cached pool (a thousand of those are still affordable,
+     * at about 1 MB of reserved stack each). Looked up reflectively because the project compiles for Java 17.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (VIRTUAL_THREADS) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall back to platform threads below
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    private static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -1,52 +1,115 @@
 package supermarket.view;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 // No need to import ListSelectionEvent and ListSelectionListener explicitly if using lambda or anonymous class
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 // No need to import ActionEvent and ActionListener explicitly if using lambda or anonymous class
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Iterator; // For safe removal from list while iterating if needed
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import supermarket.functionality.CatalogListener;
+import supermarket.functionality.Inventory;
 import supermarket.functionality.Item;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.ItemImporter;
+import supermarket.functionality.Metrics;
+import supermarket.functionality.Money;
+import supermarket.functionality.PasswordHasher;
+import supermarket.functionality.PosEngine;
+import supermarket.functionality.SalesAggregates;
+import supermarket.functionality.SalesAnalyzer;
+import supermarket.functionality.SalesReport;
+import supermarket.functionality.StockListener;
 import supermarket.functionality.User;
+import supermarket.functionality.UserRepository;
 // LoginFrame is in the same 'view' package
 
 /**
  * Admin panel for managing items and users.
  * Simplified User Management: Admin can add/delete sellers. Passwords not displayed.
- * Simplified Item ID Generation: Timestamp-based.
+ * Validation and storage are done by PosEngine; this frame only collects input and shows results.
+ * The items table ({@link CatalogTableModel}) follows the catalog through a CatalogListener, so it also shows changes
+ * made by other admin windows. Its Stock column is read from the Inventory as rows are painted and repainted on a timer,
+ * so it follows sales live.
+ * Items and users are loaded by {@link BackgroundLoader}s, so the window opens at once and the tables fill
+ * in chunks while a large file is read, with a progress bar and a Cancel button.
  * Currency is PKR.
  */
 public class AdminFrame extends JFrame {
     private User adminUser;
+    private final PosEngine engine;
 
     // Item Management Components
     private JTextField itemNameField, itemPriceField;
     private JButton addItemButton;
     private JButton deleteItemButton;
+    private JButton updatePriceButton;
+    private JButton addStockButton;
+    private JButton setStockButton;
+    private JLabel lowStockLabel;
+    private static final int STOCK_REFRESH_MILLIS = 2000;
+    private static final int MAX_LOW_STOCK_NAMES = 5;
+    private Timer stockRefreshTimer;
+    private final Inventory inventory;
+    private final StockListener stockListener = new LowStockAlerter();
     private JTable itemsTable;
-    private DefaultTableModel itemsTableModel;
-    private List<Item> itemList;
+    private CatalogTableModel itemsTableModel;
+    private JTextField itemFilterField;
+    private JButton importItemsButton;
+    private JButton exportItemsButton;
+    private JButton reloadItemsButton;
+    private LoadProgressPanel itemsLoadPanel;
+    private boolean followingItems; // Catalog and stock listeners are registered after the first load
+    private final ItemCatalog itemCatalog; // Shared with SellerFrame, loaded once per process
+    private final CatalogListener catalogListener = new ItemsTableUpdater();
+    private final AtomicLong catalogEvents = new AtomicLong(); // Counted as the catalog fires them, under its lock
+    private long itemsTableEvents; // EDT only: the catalog events already in the items table's snapshot
 
     // User Management Components (Simplified)
     private JTable usersTable;
     private DefaultTableModel usersTableModel;
-    private List<User> userListForManagement;
+    private final UserRepository userRepository; // Shared with LoginFrame
     private JTextField manageSellerUsernameField; // Renamed for clarity
     private JPasswordField manageSellerPasswordField; // Renamed for clarity
     private JButton manageSellerAddButton; // Renamed
     private JButton manageSellerDeleteButton; // Renamed
+    private LoadProgressPanel usersLoadPanel;
 
-    private static final String ITEMS_FILE_PATH = "items.txt";
-    private static final String USERS_FILE_PATH = "users.txt";
+    // Sales Reports Components
+    private static final String[] REPORT_PERIODS = {"Today", "Last 7 Days", "Last 30 Days", "Last 365 Days", "All Time"};
+    private static final int[] REPORT_PERIOD_DAYS = {1, 7, 30, 365, -1};
+    private static final int LIVE_TOTALS_REFRESH_MILLIS = 2000;
+    private JLabel liveTotalsLabel;
+    private Timer liveTotalsTimer;
+    private JComboBox<String> reportPeriodComboBox;
+    private JButton runReportButton;
+    private JLabel reportSummaryLabel;
+    private DefaultTableModel revenueByDayTableModel;
+    private DefaultTableModel revenueByHourTableModel;
+    private DefaultTableModel revenueBySellerTableModel;
+    private DefaultTableModel topItemsByQuantityTableModel;
+    private DefaultTableModel topItemsByRevenueTableModel;
 
     public AdminFrame(User loggedInAdminUser) {
         this.adminUser = loggedInAdminUser;
-        this.itemList = new ArrayList<>();
-        this.userListForManagement = new ArrayList<>();
+        this.engine = PosEngine.getInstance();
+        this.itemCatalog = engine.getCatalog();
+        this.inventory = engine.getInventory();
+        this.userRepository = engine.getUserRepository();
 
         setTitle("Admin Panel - Welcome " + adminUser.getUsername());
         setSize(900, 650); // Adjusted size
@@ -56,6 +119,7 @@ public class AdminFrame extends JFrame {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.addTab("Manage Items", createManageItemsPanel());
         tabbedPane.addTab("Manage Sellers", createManageSellersPanel()); // Renamed tab
+        tabbedPane.addTab("Sales Reports", createReportsPanel());
 
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton logoutButton = new JButton("Logout");
@@ -72,6 +136,19 @@ public class AdminFrame extends JFrame {
         loadUsersForManagement();
     }
 
+    @Override
+    public void dispose() {
+        itemCatalog.removeCatalogListener(catalogListener);
+        inventory.removeStockListener(stockListener);
+        if (stockRefreshTimer != null) {
+            stockRefreshTimer.stop();
+        }
+        if (liveTotalsTimer != null) {
+            liveTotalsTimer.stop();
+        }
+        super.dispose();
+    }
+
     private JPanel createManageItemsPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -97,20 +174,79 @@ public class AdminFrame extends JFrame {
 
         panel.add(inputFormPanel, BorderLayout.NORTH);
 
-        String[] columnNames = {"Item ID", "Name", "Price (PKR)"};
-        itemsTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override public boolean isCellEditable(int row, int column) { return false; }
-        };
+        itemsTableModel = new CatalogTableModel(itemCatalog, inventory);
         itemsTable = new JTable(itemsTableModel);
-        JScrollPane tableScrollPane = new JScrollPane(itemsTable);
-        panel.add(tableScrollPane, BorderLayout.CENTER);
+        itemsTable.getTableHeader().setReorderingAllowed(false);
+        itemsTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = itemsTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    handleSortItems(column);
+                }
+            }
+        });
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        filterPanel.add(new JLabel("Filter:"));
+        itemFilterField = new JTextField(20);
+        filterPanel.add(itemFilterField);
+        filterPanel.add(new JLabel("(click a column header to sort)"));
+        JPanel importExportPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        importItemsButton = new JButton("Import CSV...");
+        importExportPanel.add(importItemsButton);
+        exportItemsButton = new JButton("Export CSV...");
+        importExportPanel.add(exportItemsButton);
+        reloadItemsButton = new JButton("Reload");
+        importExportPanel.add(reloadItemsButton);
+        JPanel tableToolsPanel = new JPanel(new BorderLayout());
+        tableToolsPanel.add(filterPanel, BorderLayout.WEST);
+        tableToolsPanel.add(importExportPanel, BorderLayout.EAST);
+        JPanel tablePanel = new JPanel(new BorderLayout(0, 5));
+        tablePanel.add(tableToolsPanel, BorderLayout.NORTH);
+        tablePanel.add(new JScrollPane(itemsTable), BorderLayout.CENTER);
+        itemsLoadPanel = new LoadProgressPanel("Loading items...", true);
+        tablePanel.add(itemsLoadPanel, BorderLayout.SOUTH);
+        panel.add(tablePanel, BorderLayout.CENTER);
+        itemFilterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                itemsTableModel.setFilter(itemFilterField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                itemsTableModel.setFilter(itemFilterField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                itemsTableModel.setFilter(itemFilterField.getText());
+            }
+        });
 
         JPanel itemActionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        updatePriceButton = new JButton("Update Price");
+        itemActionsPanel.add(updatePriceButton);
+        addStockButton = new JButton("Add Stock");
+        itemActionsPanel.add(addStockButton);
+        setStockButton = new JButton("Set Stock");
+        itemActionsPanel.add(setStockButton);
         deleteItemButton = new JButton("Delete Selected Item");
         itemActionsPanel.add(deleteItemButton);
-        panel.add(itemActionsPanel, BorderLayout.SOUTH);
+        lowStockLabel = new JLabel(" ");
+        lowStockLabel.setForeground(Color.RED.darker());
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(lowStockLabel, BorderLayout.WEST);
+        southPanel.add(itemActionsPanel, BorderLayout.EAST);
+        panel.add(southPanel, BorderLayout.SOUTH);
 
         addItemButton.addActionListener(e -> handleAddItem());
+        updatePriceButton.addActionListener(e -> handleUpdatePrice());
+        importItemsButton.addActionListener(e -> handleImportItems());
+        exportItemsButton.addActionListener(e -> handleExportItems());
+        reloadItemsButton.addActionListener(e -> loadItemsFromFile());
+        addStockButton.addActionListener(e -> handleAddStock());
+        setStockButton.addActionListener(e -> handleSetStock());
         deleteItemButton.addActionListener(e -> handleDeleteItem());
         return panel;
     }
@@ -130,6 +266,8 @@ public class AdminFrame extends JFrame {
         usersTable = new JTable(usersTableModel);
         JScrollPane userTableScrollPane = new JScrollPane(usersTable);
         panel.add(userTableScrollPane, BorderLayout.CENTER);
+        usersLoadPanel = new LoadProgressPanel("Loading users...", true);
+        panel.add(usersLoadPanel, BorderLayout.NORTH);
 
         // --- Seller Input and Action Form (Bottom part) ---
         JPanel formPanel = new JPanel(new GridBagLayout());
@@ -169,199 +307,687 @@ public class AdminFrame extends JFrame {
         return panel;
     }
 
+    /**
+     * Creates the panel for sales reports over the bill history.
+     */
+    private JPanel createReportsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        liveTotalsLabel = new JLabel("Loading sales totals...");
+        liveTotalsLabel.setFont(liveTotalsLabel.getFont().deriveFont(Font.BOLD, 14f));
+        liveTotalsLabel.setBorder(BorderFactory.createTitledBorder("Live Totals"));
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        controlsPanel.add(new JLabel("Period:"));
+        reportPeriodComboBox = new JComboBox<>(REPORT_PERIODS);
+        reportPeriodComboBox.setSelectedIndex(2);
+        controlsPanel.add(reportPeriodComboBox);
+        runReportButton = new JButton("Run Report");
+        controlsPanel.add(runReportButton);
+        reportSummaryLabel = new JLabel("Choose a period and run the report.");
+        controlsPanel.add(Box.createHorizontalStrut(10));
+        controlsPanel.add(reportSummaryLabel);
+        JPanel headerPanel = new JPanel(new GridLayout(2, 1, 0, 5));
+        headerPanel.add(liveTotalsLabel);
+        headerPanel.add(controlsPanel);
+        panel.add(headerPanel, BorderLayout.NORTH);
+
+        revenueByDayTableModel = createReportTableModel("Day", "Revenue (PKR)");
+        revenueByHourTableModel = createReportTableModel("Hour", "Revenue (PKR)");
+        revenueBySellerTableModel = createReportTableModel("Seller", "Revenue (PKR)");
+        topItemsByQuantityTableModel = createReportTableModel("Item ID", "Name", "Quantity", "Revenue (PKR)");
+        topItemsByRevenueTableModel = createReportTableModel("Item ID", "Name", "Quantity", "Revenue (PKR)");
+
+        JTabbedPane reportTabs = new JTabbedPane();
+        reportTabs.addTab("By Day", new JScrollPane(new JTable(revenueByDayTableModel)));
+        reportTabs.addTab("By Hour", new JScrollPane(new JTable(revenueByHourTableModel)));
+        reportTabs.addTab("By Seller", new JScrollPane(new JTable(revenueBySellerTableModel)));
+        reportTabs.addTab("Top Items by Quantity", new JScrollPane(new JTable(topItemsByQuantityTableModel)));
+        reportTabs.addTab("Top Items by Revenue", new JScrollPane(new JTable(topItemsByRevenueTableModel)));
+        panel.add(reportTabs, BorderLayout.CENTER);
+
+        runReportButton.addActionListener(e -> handleRunReport());
+        loadLiveTotals();
+        return panel;
+    }
+
+    private static DefaultTableModel createReportTableModel(String... columnNames) {
+        return new DefaultTableModel(columnNames, 0) {
+            @Override public boolean isCellEditable(int row, int column) { return false; }
+        };
+    }
+
     // --- Item Management Logic ---
+    /**
+     * Loads the items and stock levels in the background, streaming the items into the table as they are read.
+     * The item buttons wait for the load, since every catalog call would.
+     */
     private void loadItemsFromFile() {
-        this.itemList.clear();
-        itemsTableModel.setRowCount(0);
-        File itemsFile = new File(ITEMS_FILE_PATH);
-        if (!itemsFile.exists()) {
-            try {
-                if (itemsFile.createNewFile()) { System.out.println(ITEMS_FILE_PATH + " created."); }
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error creating items file: " + e.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
-                return;
+        long start = System.nanoTime();
+        setItemControlsEnabled(false);
+        itemsTableModel.clear();
+        new BackgroundLoader<Item>(itemsLoadPanel) {
+            private Item[] loadedItems;
+            private long loadedEvents;
+
+            @Override
+            protected void load() throws IOException {
+                itemCatalog.ensureLoaded(this);
+                inventory.ensureLoaded();
+                synchronized (itemCatalog) { // Events fire under the catalog's lock, so the count matches the array
+                    loadedItems = itemCatalog.toItemArray(); // With the journal's changes; changes after this arrive as events
+                    loadedEvents = catalogEvents.get();
+                }
             }
-        }
-        try (BufferedReader reader = new BufferedReader(new FileReader(itemsFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Item item = Item.fromCSVString(line);
-                if (item != null) {
-                    this.itemList.add(item);
-                    itemsTableModel.addRow(new Object[]{item.getId(), item.getName(), String.format("%.2f", item.getPrice())});
+
+            @Override
+            protected void addChunk(List<Item> chunk) {
+                itemsTableModel.appendLoaded(chunk);
+            }
+
+            @Override
+            protected void loaded() {
+                if (!isDisplayable()) {
+                    return; // Closed while loading
+                }
+                itemsTableEvents = loadedEvents; // Events queued meanwhile are already in loadedItems
+                itemsTableModel.reload(loadedItems); // References only; rows are formatted as they are painted
+                Metrics.getInstance().latency(Metrics.CATALOG_LOAD).recordSince(start);
+                setItemControlsEnabled(true);
+                if (!followingItems) {
+                    followingItems = true;
+                    itemCatalog.addCatalogListener(catalogListener);
+                    itemCatalog.startWatching();
+                    inventory.addStockListener(stockListener);
+                    startStockRefresh();
                 }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading items: " + e.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
-        }
+
+            @Override
+            protected void failed(Throwable cause) {
+                Metrics.getInstance().increment(Metrics.CATALOG_LOADS_FAILED);
+                reloadItemsButton.setEnabled(true);
+                JOptionPane.showMessageDialog(AdminFrame.this, "Error loading items: " + cause.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            protected void cancelled() {
+                reloadItemsButton.setEnabled(true); // The rows read so far stay visible
+            }
+        }.start();
+    }
+
+    private void setItemControlsEnabled(boolean enabled) {
+        addItemButton.setEnabled(enabled);
+        updatePriceButton.setEnabled(enabled);
+        addStockButton.setEnabled(enabled);
+        setStockButton.setEnabled(enabled);
+        deleteItemButton.setEnabled(enabled);
+        importItemsButton.setEnabled(enabled);
+        exportItemsButton.setEnabled(enabled);
+        reloadItemsButton.setEnabled(enabled);
     }
 
-    private boolean saveAllItemsToFile() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ITEMS_FILE_PATH, false))) {
-            for (Item item : itemList) {
-                writer.println(item.toCSVString());
+    /**
+     * Sorts the items table by a column (again to reverse), marking the sort column's header.
+     */
+    private void handleSortItems(int column) {
+        itemsTableModel.sortBy(column);
+        for (int i = 0; i < itemsTable.getColumnCount(); i++) {
+            String name = itemsTableModel.getColumnName(i);
+            if (i == itemsTableModel.getSortColumn()) {
+                name += itemsTableModel.isAscending() ? " \u25B2" : " \u25BC";
             }
-            return true;
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error saving items to file: " + e.getMessage(), "File Save Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+            itemsTable.getColumnModel().getColumn(i).setHeaderValue(name);
         }
+        itemsTable.getTableHeader().repaint();
     }
 
     /**
-     * Generates a unique item ID using timestamp and a random number.
-     * @return A unique item ID as a String.
+     * Runs a catalog or stock change on a worker thread, with its button disabled meanwhile: the change
+     * may wait for another till's compaction, forces the journal to disk, and now and then compacts.
      */
-    private String generateNewItemId() {
-        // Timestamp ensures high likelihood of uniqueness, random part reduces collision for rapid adds.
-        return System.currentTimeMillis() + "-" + (int)(Math.random()*1000);
+    private <T> void runChange(JButton button, Callable<T> change, String saveError, Consumer<T> onSaved) {
+        button.setEnabled(false);
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return change.call();
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                T result;
+                try {
+                    result = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IllegalArgumentException) {
+                        JOptionPane.showMessageDialog(AdminFrame.this, e.getCause().getMessage(), "Input Error", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(AdminFrame.this, saveError + "\n" + e.getCause().getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
+                onSaved.accept(result);
+            }
+        }.execute();
     }
 
     private void handleAddItem() {
-        String name = itemNameField.getText().trim();
-        String priceStr = itemPriceField.getText().trim();
-        if (name.isEmpty() || priceStr.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Item Name and Price cannot be empty.", "Input Error", JOptionPane.WARNING_MESSAGE);
+        String name = itemNameField.getText();
+        String priceText = itemPriceField.getText();
+        runChange(addItemButton, () -> engine.addItem(name, priceText), "Failed to save item. Item not added.", newItem -> {
+            // The table row is added by the catalog listener
+            JOptionPane.showMessageDialog(this, "Item '" + newItem.getName() + "' (ID: " + newItem.getId() + ") added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            itemNameField.setText("");
+            itemPriceField.setText("");
+        });
+    }
+
+    private void handleDeleteItem() {
+        int selectedRow = itemsTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this, "Please select an item from the table to delete.", "Selection Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        double price;
-        try {
-            price = Double.parseDouble(priceStr);
-            if (price <= 0) {
-                JOptionPane.showMessageDialog(this, "Price must be a positive number.", "Input Error", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Invalid price format.", "Input Error", JOptionPane.WARNING_MESSAGE);
+
+        Item selectedItem = itemsTableModel.getItemAt(selectedRow);
+        String itemIdToDelete = selectedItem.getId();
+        String itemName = selectedItem.getName();
+
+        int confirmation = JOptionPane.showConfirmDialog(this,
+                "Are you sure you want to delete item '" + itemName + "' (ID: " + itemIdToDelete + ")?",
+                "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+
+        if (confirmation == JOptionPane.YES_OPTION) {
+            runChange(deleteItemButton, () -> engine.removeItem(itemIdToDelete),
+                    "Failed to save changes after deletion. Item not deleted from file.", removedItem -> {
+                if (removedItem != null) { // The table row is removed by the catalog listener
+                    JOptionPane.showMessageDialog(this, "Item '" + itemName + "' deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Could not find the selected item. Please refresh.", "Deletion Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+
+    private void handleUpdatePrice() {
+        int selectedRow = itemsTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this, "Please select an item from the table to update.", "Selection Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        Item selectedItem = itemsTableModel.getItemAt(selectedRow);
+        String itemId = selectedItem.getId();
+        String itemName = selectedItem.getName();
+        String priceText = (String) JOptionPane.showInputDialog(this, "New price (PKR) for '" + itemName + "':",
+                "Update Price", JOptionPane.QUESTION_MESSAGE, null, null, Money.format(selectedItem.getPricePaisa()));
+        if (priceText == null) {
+            return; // Cancelled
+        }
 
-        String id = generateNewItemId(); // Use simplified ID generation
-        Item newItem = new Item(id, name, price);
+        runChange(updatePriceButton, () -> engine.updateItemPrice(itemId, priceText),
+                "Failed to save the new price. Price not changed.", updatedItem -> {
+            if (updatedItem == null) {
+                JOptionPane.showMessageDialog(this, "Could not find the selected item. Please refresh.", "Update Error", JOptionPane.ERROR_MESSAGE);
+            }
+            // The table row is updated by the catalog listener; open seller windows re-price their bills
+        });
+    }
 
-        for (Item existingItem : this.itemList) {
-            if (existingItem.getName().equalsIgnoreCase(name)) { // Check for duplicate name
-                JOptionPane.showMessageDialog(this, "Item with this Name already exists.", "Duplicate Item Name", JOptionPane.WARNING_MESSAGE);
-                return;
+    /**
+     * Imports a supplier CSV file on a worker thread; the table follows through the catalog listener.
+     */
+    private void handleImportItems() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Import Items from CSV (columns: name, price, optional id)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File csvFile = chooser.getSelectedFile();
+        importItemsButton.setEnabled(false);
+        new SwingWorker<ItemImporter.Result, Void>() {
+            @Override
+            protected ItemImporter.Result doInBackground() throws IOException {
+                return engine.importItems(csvFile);
+            }
+
+            @Override
+            protected void done() {
+                importItemsButton.setEnabled(true);
+                ItemImporter.Result result;
+                try {
+                    result = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IllegalArgumentException) {
+                        JOptionPane.showMessageDialog(AdminFrame.this, e.getCause().getMessage(), "Import Error", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(AdminFrame.this, "Failed to import items. No items were added.\n" + e.getCause().getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
+                String message = result.getImported() + " of " + result.getRowsRead() + " items imported.";
+                if (result.getRejectFile() != null) {
+                    message += "\n" + result.getRejected() + " rows were rejected; see " + result.getRejectFile().getPath();
+                }
+                JOptionPane.showMessageDialog(AdminFrame.this, message, "Import Finished",
+                        result.getRejected() == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
             }
+        }.execute();
+    }
+
+    private void handleExportItems() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Export Items to CSV");
+        chooser.setSelectedFile(new File("items-export.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File csvFile = chooser.getSelectedFile();
+        exportItemsButton.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                return engine.exportItems(csvFile);
+            }
 
-        this.itemList.add(newItem);
+            @Override
+            protected void done() {
+                exportItemsButton.setEnabled(true);
+                try {
+                    JOptionPane.showMessageDialog(AdminFrame.this, get() + " items exported to " + csvFile.getPath(), "Export Finished", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(AdminFrame.this, "Failed to export items.\n" + e.getCause().getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
 
-        if (saveAllItemsToFile()) {
-            itemsTableModel.addRow(new Object[]{newItem.getId(), newItem.getName(), String.format("%.2f", newItem.getPrice())});
-            JOptionPane.showMessageDialog(this, "Item '" + name + "' (ID: " + id + ") added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            itemNameField.setText("");
-            itemPriceField.setText("");
-        } else {
-            this.itemList.remove(newItem);
-            JOptionPane.showMessageDialog(this, "Failed to save item. Item not added.", "Save Error", JOptionPane.ERROR_MESSAGE);
+    private void handleAddStock() {
+        int selectedRow = itemsTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this, "Please select an item from the table to add stock to.", "Selection Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Item selectedItem = itemsTableModel.getItemAt(selectedRow);
+        String itemId = selectedItem.getId();
+        String itemName = selectedItem.getName();
+        String quantityText = JOptionPane.showInputDialog(this,
+                "Quantity of '" + itemName + "' received (negative to write off):", "Add Stock", JOptionPane.QUESTION_MESSAGE);
+        if (quantityText == null) {
+            return; // Cancelled
         }
+
+        runChange(addStockButton, () -> engine.addStock(itemId, quantityText),
+                "Failed to save the stock change. Stock not changed.", onHand -> refreshStock());
     }
 
-    private void handleDeleteItem() {
+    private void handleSetStock() {
         int selectedRow = itemsTable.getSelectedRow();
         if (selectedRow < 0) {
-            JOptionPane.showMessageDialog(this, "Please select an item from the table to delete.", "Selection Error", JOptionPane.WARNING_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Please select an item from the table to set stock for.", "Selection Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Item selectedItem = itemsTableModel.getItemAt(selectedRow);
+        String itemId = selectedItem.getId();
+        String itemName = selectedItem.getName();
+        long lowStockLevel = inventory.getLowStockLevel(itemId);
+        JTextField quantityField = new JTextField((String) itemsTableModel.getValueAt(selectedRow, CatalogTableModel.STOCK_COLUMN), 10);
+        JTextField lowStockField = new JTextField(Long.toString(lowStockLevel == Inventory.NOT_TRACKED ? Inventory.DEFAULT_LOW_STOCK_LEVEL : lowStockLevel), 10);
+        JPanel form = new JPanel(new GridLayout(2, 2, 5, 5));
+        form.add(new JLabel("Quantity on hand:"));
+        form.add(quantityField);
+        form.add(new JLabel("Low-stock level:"));
+        form.add(lowStockField);
+        int choice = JOptionPane.showConfirmDialog(this, form, "Set Stock for '" + itemName + "'",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
             return;
         }
 
-        String itemIdToDelete = (String) itemsTableModel.getValueAt(selectedRow, 0);
-        String itemName = (String) itemsTableModel.getValueAt(selectedRow, 1);
+        String quantityText = quantityField.getText();
+        String lowStockText = lowStockField.getText();
+        runChange(setStockButton, () -> engine.setStock(itemId, quantityText, lowStockText),
+                "Failed to save the stock change. Stock not changed.", onHand -> refreshStock());
+    }
 
-        int confirmation = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to delete item '" + itemName + "' (ID: " + itemIdToDelete + ")?",
-                "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+    /**
+     * Follows sales and restocks from other tills every few seconds. The ledger is read off the EDT;
+     * the Stock column then only needs a repaint.
+     */
+    private void startStockRefresh() {
+        refreshStock();
+        stockRefreshTimer = new Timer(STOCK_REFRESH_MILLIS, e -> new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                inventory.followChanges();
+                return null;
+            }
 
-        if (confirmation == JOptionPane.YES_OPTION) {
-            Item itemToRemove = null;
-            for(Item item : itemList) {
-                if(item.getId().equals(itemIdToDelete)) {
-                    itemToRemove = item;
-                    break;
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    System.err.println("Error refreshing stock levels: " + ex.getCause().getMessage());
                 }
+                refreshStock();
             }
+        }.execute());
+        stockRefreshTimer.start();
+    }
 
-            if (itemToRemove != null) {
-                itemList.remove(itemToRemove);
-                if (saveAllItemsToFile()) {
-                    JOptionPane.showMessageDialog(this, "Item '" + itemName + "' deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    itemsTableModel.removeRow(selectedRow);
-                } else {
-                    itemList.add(itemToRemove);
-                    JOptionPane.showMessageDialog(this, "Failed to save changes after deletion. Item not deleted from file.", "Save Error", JOptionPane.ERROR_MESSAGE);
+    private void refreshStock() {
+        itemsTable.repaint();
+        List<String> lowItemIds = inventory.getLowStockItemIds();
+        if (lowItemIds.isEmpty()) {
+            lowStockLabel.setText(" ");
+            return;
+        }
+        StringBuilder text = new StringBuilder("Low on stock: ");
+        for (int i = 0; i < Math.min(lowItemIds.size(), MAX_LOW_STOCK_NAMES); i++) {
+            Item item = itemCatalog.findById(lowItemIds.get(i));
+            text.append(i > 0 ? ", " : "").append(item == null ? lowItemIds.get(i) : item.getName())
+                    .append(" (").append(Math.max(0, inventory.getOnHand(lowItemIds.get(i)))).append(')');
+        }
+        if (lowItemIds.size() > MAX_LOW_STOCK_NAMES) {
+            text.append(" and ").append(lowItemIds.size() - MAX_LOW_STOCK_NAMES).append(" more");
+        }
+        lowStockLabel.setText(text.toString());
+    }
+
+    /**
+     * Shows items as soon as they run low. Alerts arrive on the selling thread, so the label is updated on the EDT.
+     */
+    private class LowStockAlerter implements StockListener {
+        @Override
+        public void lowStock(String itemId, long onHand, long lowStockLevel) {
+            SwingUtilities.invokeLater(AdminFrame.this::refreshStock);
+        }
+    }
+
+    /**
+     * Keeps the items table in step with the catalog, one row at a time. Each event is numbered as it fires,
+     * and one still queued when the table takes a newer snapshot of the catalog is dropped, or a Reload
+     * would show an item added meanwhile twice.
+     */
+    private class ItemsTableUpdater implements CatalogListener {
+        @Override
+        public void itemAdded(Item item) {
+            long event = catalogEvents.incrementAndGet();
+            SwingUtilities.invokeLater(() -> {
+                if (event > itemsTableEvents) {
+                    itemsTableModel.itemAdded(item);
                 }
-            } else {
-                JOptionPane.showMessageDialog(this, "Could not find the selected item. Please refresh.", "Deletion Error", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+
+        @Override
+        public void itemRemoved(Item item) {
+            long event = catalogEvents.incrementAndGet();
+            SwingUtilities.invokeLater(() -> {
+                if (event > itemsTableEvents) {
+                    itemsTableModel.itemRemoved(item);
+                }
+            });
+        }
+
+        @Override
+        public void itemUpdated(Item oldItem, Item newItem) {
+            long event = catalogEvents.incrementAndGet();
+            SwingUtilities.invokeLater(() -> {
+                if (event > itemsTableEvents) {
+                    itemsTableModel.itemUpdated(oldItem, newItem);
+                }
+            });
+        }
+
+        @Override
+        public void catalogReloaded() {
+            long event = catalogEvents.incrementAndGet();
+            SwingUtilities.invokeLater(() -> {
+                if (event > itemsTableEvents) {
+                    Item[] items;
+                    synchronized (itemCatalog) {
+                        items = itemCatalog.toItemArray();
+                        itemsTableEvents = catalogEvents.get();
+                    }
+                    itemsTableModel.reload(items);
+                }
+            });
+        }
+    }
+
+    // --- Sales Reports Logic ---
+
+    /**
+     * Loads the running sales totals off the EDT (only the bills since the last checkpoint are read),
+     * then refreshes the live figures on a timer. Every refresh is a handful of counter reads.
+     */
+    private void loadLiveTotals() {
+        SalesAggregates aggregates = engine.getSalesAggregates();
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                aggregates.ensureLoaded();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    liveTotalsLabel.setText("Sales totals unavailable: " + e.getCause().getMessage());
+                    return;
+                }
+                showLiveTotals();
+                liveTotalsTimer = new Timer(LIVE_TOTALS_REFRESH_MILLIS, e -> refreshLiveTotals());
+                liveTotalsTimer.start();
+            }
+        }.execute();
+    }
+
+    // Bills saved by this process are applied as they are committed; other tills' bills are picked up here
+    private void refreshLiveTotals() {
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                engine.getSalesAggregates().catchUp();
+                return null;
             }
+
+            @Override
+            protected void done() {
+                showLiveTotals();
+            }
+        }.execute();
+    }
+
+    private void showLiveTotals() {
+        SalesAggregates aggregates = engine.getSalesAggregates();
+        LocalDate today = LocalDate.now();
+        liveTotalsLabel.setText("Today: " + aggregates.getBillCountForDay(today) + " bills, PKR " + Money.format(aggregates.getRevenueForDay(today))
+                + "     All time: " + aggregates.getBillCount() + " bills, PKR " + Money.format(aggregates.getRevenuePaisa()));
+    }
+
+    private void handleRunReport() {
+        int days = REPORT_PERIOD_DAYS[reportPeriodComboBox.getSelectedIndex()];
+        long toMillis = System.currentTimeMillis();
+        // Periods start at midnight, so "Today" and "Last 7 Days" cover whole calendar days
+        long fromMillis = days < 0 ? Long.MIN_VALUE
+                : LocalDate.now().minusDays(days - 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        // A long history takes a while to read, so it is read on a worker thread
+        runReportButton.setEnabled(false);
+        reportSummaryLabel.setText("Reading bills...");
+        new SwingWorker<SalesReport, Void>() {
+            @Override
+            protected SalesReport doInBackground() throws IOException {
+                if (days < 0) { // All time is what the running totals hold, so the bills need not be read
+                    SalesAggregates aggregates = engine.getSalesAggregates();
+                    aggregates.ensureLoaded();
+                    aggregates.catchUp(); // Include bills other tills saved since the last update
+                    return aggregates.toReport(SalesAnalyzer.DEFAULT_TOP_ITEMS);
+                }
+                return engine.salesReport(fromMillis, toMillis, SalesAnalyzer.DEFAULT_TOP_ITEMS);
+            }
+
+            @Override
+            protected void done() {
+                runReportButton.setEnabled(true);
+                SalesReport report;
+                try {
+                    report = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    reportSummaryLabel.setText("Report failed.");
+                    JOptionPane.showMessageDialog(AdminFrame.this, "Error reading bills: " + e.getCause().getMessage(), "Report Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                showReport(report);
+            }
+        }.execute();
+    }
+
+    private void showReport(SalesReport report) {
+        reportSummaryLabel.setText(report.getBillCount() + " bills, " + report.getQuantitySold() + " items sold, revenue PKR "
+                + Money.format(report.getRevenuePaisa()));
+
+        revenueByDayTableModel.setRowCount(0);
+        report.getRevenueByDay().forEach((day, revenue) -> revenueByDayTableModel.addRow(new Object[]{day.toString(), Money.format(revenue)}));
+        revenueByHourTableModel.setRowCount(0);
+        for (int hour = 0; hour < 24; hour++) {
+            revenueByHourTableModel.addRow(new Object[]{String.format("%02d:00 - %02d:59", hour, hour), Money.format(report.getRevenueForHour(hour))});
+        }
+        revenueBySellerTableModel.setRowCount(0);
+        report.getRevenueBySeller().forEach((seller, revenue) -> revenueBySellerTableModel.addRow(new Object[]{seller, Money.format(revenue)}));
+        fillItemSalesTable(topItemsByQuantityTableModel, report.getTopItemsByQuantity());
+        fillItemSalesTable(topItemsByRevenueTableModel, report.getTopItemsByRevenue());
+    }
+
+    private static void fillItemSalesTable(DefaultTableModel tableModel, List<SalesReport.ItemSales> items) {
+        tableModel.setRowCount(0);
+        for (SalesReport.ItemSales item : items) {
+            tableModel.addRow(new Object[]{item.getItemId(), item.getItemName(), item.getQuantity(), Money.format(item.getRevenuePaisa())});
         }
     }
 
     // --- Simplified User (Seller) Management Logic ---
+    /**
+     * Loads the users in the background (usually they are already in memory since the login),
+     * streaming them into the table as they are read.
+     */
     private void loadUsersForManagement() {
-        userListForManagement.clear();
         usersTableModel.setRowCount(0);
-        File usersFile = new File(USERS_FILE_PATH);
-        if (!usersFile.exists()) {
+        if (!userRepository.getUsersFile().exists()) {
             JOptionPane.showMessageDialog(this, "Users file ('users.txt') not found.", "File Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        try (BufferedReader reader = new BufferedReader(new FileReader(usersFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                User user = User.fromCSVString(line);
-                if (user != null) {
-                    userListForManagement.add(user);
-                    // Only display username and role, not password
-                    usersTableModel.addRow(new Object[]{user.getUsername(), user.getRole()});
-                }
+        setSellerControlsEnabled(false);
+        new BackgroundLoader<User>(usersLoadPanel) {
+            @Override
+            protected void load() throws IOException {
+                userRepository.ensureLoaded(this);
+            }
+
+            @Override
+            protected void addChunk(List<User> chunk) {
+                addUserRows(chunk);
+            }
+
+            @Override
+            protected void loaded() {
+                usersTableModel.setRowCount(0); // Now with the journal's changes
+                addUserRows(userRepository.getAllUsers());
+                setSellerControlsEnabled(true);
+            }
+
+            @Override
+            protected void failed(Throwable cause) {
+                setSellerControlsEnabled(true); // The engine loads the users itself when a seller is added
+                JOptionPane.showMessageDialog(AdminFrame.this, "Error loading users: " + cause.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading users: " + e.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
 
-    private boolean saveAllUsersToFile() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(USERS_FILE_PATH, false))) {
-            for (User user : userListForManagement) {
-                writer.println(user.toCSVString());
+            @Override
+            protected void cancelled() {
+                setSellerControlsEnabled(true);
             }
-            return true;
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error saving users to file: " + e.getMessage(), "File Save Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+        }.start();
+    }
+
+    private void setSellerControlsEnabled(boolean enabled) {
+        manageSellerAddButton.setEnabled(enabled);
+        manageSellerDeleteButton.setEnabled(enabled);
+    }
+
+    /**
+     * Appends users to the table with a single rowsInserted event.
+     */
+    private void addUserRows(List<User> users) {
+        if (users.isEmpty()) {
+            return;
         }
+        int firstRow = usersTableModel.getRowCount();
+        for (User user : users) {
+            // Only display username and role, not password
+            usersTableModel.getDataVector().add(new Vector<>(Arrays.asList(user.getUsername(), user.getRole())));
+        }
+        usersTableModel.fireTableRowsInserted(firstRow, usersTableModel.getRowCount() - 1);
     }
 
     private void handleAddSeller() { // Renamed from handleAddUser
         String username = manageSellerUsernameField.getText().trim();
-        String password = new String(manageSellerPasswordField.getPassword()).trim();
-        String role = "seller"; // Role is fixed to "seller"
+        char[] password = PasswordHasher.trim(manageSellerPasswordField.getPassword()); // Never a String, so it can be cleared
 
-        if (username.isEmpty() || password.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Seller Username and Password cannot be empty.", "Input Error", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        // Check if username is already taken by any user
-        for (User existingUser : userListForManagement) {
-            if (existingUser.getUsername().equalsIgnoreCase(username)) {
-                JOptionPane.showMessageDialog(this, "Username '" + username + "' is already taken.", "Username Exists", JOptionPane.WARNING_MESSAGE);
-                return;
+        // Hashing is deliberately slow, so the engine is called on a worker thread
+        manageSellerAddButton.setEnabled(false);
+        new SwingWorker<User, Void>() {
+            @Override
+            protected User doInBackground() throws IOException {
+                return engine.addSeller(username, password);
             }
-        }
 
-        User newSeller = new User(username, password, role);
-        userListForManagement.add(newSeller);
-
-        if (saveAllUsersToFile()) {
-            usersTableModel.addRow(new Object[]{newSeller.getUsername(), newSeller.getRole()}); // Add to table without password
-            JOptionPane.showMessageDialog(this, "Seller '" + username + "' added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-            manageSellerUsernameField.setText(""); // Clear form fields
-            manageSellerPasswordField.setText("");
-        } else {
-            userListForManagement.remove(newSeller); // Rollback if save failed
-            JOptionPane.showMessageDialog(this, "Failed to save new seller.", "Save Error", JOptionPane.ERROR_MESSAGE);
-        }
+            @Override
+            protected void done() {
+                manageSellerAddButton.setEnabled(true);
+                User seller;
+                try {
+                    seller = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IllegalArgumentException) {
+                        JOptionPane.showMessageDialog(AdminFrame.this, e.getCause().getMessage(), "Input Error", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(AdminFrame.this, "Failed to save new seller.\n" + e.getCause().getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
+                usersTableModel.addRow(new Object[]{seller.getUsername(), seller.getRole()}); // Add to table without password
+                JOptionPane.showMessageDialog(AdminFrame.this, "Seller '" + seller.getUsername() + "' added successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                manageSellerUsernameField.setText(""); // Clear form fields
+                manageSellerPasswordField.setText("");
+            }
+        }.execute();
     }
 
     private void handleDeleteSeller() { // Renamed from handleDeleteUser
@@ -373,14 +999,12 @@ public class AdminFrame extends JFrame {
         String usernameToDelete = (String) usersTableModel.getValueAt(selectedRow, 0);
         String roleOfUserToDelete = (String) usersTableModel.getValueAt(selectedRow, 1);
 
-        // Prevent deleting the currently logged-in admin (though this panel focuses on sellers)
+        // The engine enforces these too; checking first avoids asking for a confirmation that would be refused
         if (adminUser.getUsername().equals(usernameToDelete)) {
             JOptionPane.showMessageDialog(this, "You cannot delete your own account from this interface.", "Deletion Denied", JOptionPane.ERROR_MESSAGE);
             return;
         }
-
-        // Prevent deleting other admin accounts from this simplified interface
-        if ("admin".equalsIgnoreCase(roleOfUserToDelete)) {
+        if (PosEngine.ADMIN_ROLE.equalsIgnoreCase(roleOfUserToDelete)) {
             JOptionPane.showMessageDialog(this, "Admin accounts cannot be deleted from this interface.", "Deletion Denied", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -390,30 +1014,22 @@ public class AdminFrame extends JFrame {
                 "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
 
         if (confirmation == JOptionPane.YES_OPTION) {
-            boolean removed = false;
-            // Iterate using Iterator to safely remove from userListForManagement
-            Iterator<User> iterator = userListForManagement.iterator();
-            while(iterator.hasNext()){
-                User user = iterator.next();
-                if(user.getUsername().equals(usernameToDelete) && "seller".equalsIgnoreCase(user.getRole())){
-                    iterator.remove();
-                    removed = true;
-                    break;
-                }
+            User removed;
+            try {
+                removed = engine.removeSeller(adminUser, usernameToDelete);
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Deletion Denied", JOptionPane.ERROR_MESSAGE);
+                return;
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Failed to save changes after seller deletion.\n" + e.getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            if (removed) {
-                if (saveAllUsersToFile()) {
-                    usersTableModel.removeRow(selectedRow);
-                    JOptionPane.showMessageDialog(this, "Seller '" + usernameToDelete + "' deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    manageSellerUsernameField.setText(""); // Clear form
-                    manageSellerPasswordField.setText("");
-                } else {
-                    // If save fails, we need to add the user back to userListForManagement to keep consistency
-                    // For simplicity in this version, we might just reload all users
-                    loadUsersForManagement();
-                    JOptionPane.showMessageDialog(this, "Failed to save changes after seller deletion. List reloaded.", "Save Error", JOptionPane.ERROR_MESSAGE);
-                }
+            if (removed != null) {
+                usersTableModel.removeRow(selectedRow);
+                JOptionPane.showMessageDialog(this, "Seller '" + usernameToDelete + "' deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                manageSellerUsernameField.setText(""); // Clear form
+                manageSellerPasswordField.setText("");
             } else {
                 JOptionPane.showMessageDialog(this, "Seller not found for deletion or user is not a seller. Please refresh.", "Deletion Error", JOptionPane.ERROR_MESSAGE);
             }
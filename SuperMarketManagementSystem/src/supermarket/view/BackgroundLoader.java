@@ -0,0 +1,118 @@
+package supermarket.view;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import supermarket.functionality.LoadProgress;
+
+/**
+ * Loads a data file off the Event Dispatch Thread and streams its records to a table model as they are read.
+ * Subclasses say how to load ({@link #load()}, on a worker thread, passing this loader as the
+ * {@link LoadProgress}) and what to do with the records ({@link #addChunk(List)}, {@link #loaded()},
+ * {@link #failed(Throwable)}, on the EDT).
+ * <p>
+ * Chunks that arrive faster than the EDT takes them are merged by SwingWorker, so a million-row file reaches
+ * the table in a few dozen appends, each one rowsInserted event, and the window keeps repainting meanwhile.
+ * Cancelling (from a {@link LoadProgressPanel}) stops the load at the next chunk.
+ */
+abstract class BackgroundLoader<T> extends SwingWorker<Void, List<T>> implements LoadProgress<T> {
+    private final LoadProgressPanel progressPanel;
+
+    /**
+     * @param progressPanel Shows the progress from {@link #start()} until the load ends.
+     */
+    protected BackgroundLoader(LoadProgressPanel progressPanel) {
+        this.progressPanel = progressPanel;
+    }
+
+    /**
+     * Shows the progress panel and starts loading. Call on the EDT.
+     */
+    public void start() {
+        progressPanel.track(this);
+        execute();
+    }
+
+    /**
+     * Reads the records, passing this loader to the store's load method. Runs on the worker thread.
+     */
+    protected abstract void load() throws IOException;
+
+    /**
+     * Adds records just read to the table. Runs on the EDT.
+     */
+    protected abstract void addChunk(List<T> chunk);
+
+    /**
+     * The load succeeded; take the final state from the store (it may have been loaded already, in which case
+     * no chunks were streamed). Runs on the EDT.
+     */
+    protected abstract void loaded();
+
+    /**
+     * The load failed. Runs on the EDT.
+     */
+    protected abstract void failed(Throwable cause);
+
+    /**
+     * The user cancelled the load. Runs on the EDT. Does nothing by default.
+     */
+    protected void cancelled() {
+    }
+
+    @Override
+    protected Void doInBackground() throws IOException {
+        load();
+        return null;
+    }
+
+    @Override
+    public void chunkLoaded(List<T> chunk, long bytesDone, long bytesTotal) {
+        if (!chunk.isEmpty()) {
+            publish(chunk);
+        }
+        setProgress(bytesTotal <= 0 ? 100 : (int) (bytesDone * 100 / bytesTotal));
+    }
+
+    @Override
+    protected void process(List<List<T>> chunks) {
+        if (isCancelled()) {
+            return;
+        }
+        if (chunks.size() == 1) {
+            addChunk(chunks.get(0));
+            return;
+        }
+        int size = 0;
+        for (List<T> chunk : chunks) {
+            size += chunk.size();
+        }
+        List<T> merged = new ArrayList<>(size);
+        for (List<T> chunk : chunks) {
+            merged.addAll(chunk);
+        }
+        addChunk(merged);
+    }
+
+    @Override
+    protected void done() {
+        progressPanel.finished(this);
+        if (isCancelled()) {
+            cancelled();
+            return;
+        }
+        try {
+            get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            failed(e.getCause());
+            return;
+        }
+        loaded();
+    }
+}
@@ -0,0 +1,133 @@
+package supermarket.view;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+import supermarket.functionality.BillItem;
+import supermarket.functionality.BillSession;
+import supermarket.functionality.Item;
+import supermarket.functionality.Money;
+
+/**
+ * Table model showing the {@link BillSession} being built in SellerFrame.
+ * Adding an item touches only its own row (a new row, or the existing row for the same item ID
+ * with the quantities added together); the session keeps the running total.
+ * Must only be used on the Event Dispatch Thread.
+ */
+public class BillTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"Item ID", "Item Name", "Price (PKR)", "Qty", "Subtotal (PKR)"};
+
+    private final BillSession session;
+
+    public BillTableModel(BillSession session) {
+        this.session = session;
+    }
+
+    public BillSession getSession() {
+        return session;
+    }
+
+    /**
+     * Adds a quantity of an item, merging it into the item's existing line if there is one.
+     * @return The row that was inserted or updated.
+     */
+    public int addItem(Item item, int quantity) {
+        int rowsBefore = session.getLineCount();
+        int row = session.addItem(item, quantity);
+        if (row < rowsBefore) {
+            fireTableRowsUpdated(row, row);
+        } else {
+            fireTableRowsInserted(row, row);
+        }
+        return row;
+    }
+
+    /**
+     * Drops the line of an item that was deleted from the catalog.
+     * @return true if the bill had a line for it.
+     */
+    public boolean removeItem(Item item) {
+        int row = session.removeItem(item.getId());
+        if (row < 0) {
+            return false;
+        }
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    /**
+     * Re-prices the line of an item whose catalog entry changed.
+     * @return true if the bill had a line for it.
+     */
+    public boolean updateItem(Item newItem) {
+        int row = session.updateItem(newItem);
+        if (row < 0) {
+            return false;
+        }
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+
+    /**
+     * Call after the session was changed other than through this model (checkout, restore, resync).
+     */
+    public void refresh() {
+        fireTableDataChanged();
+    }
+
+    public void clear() {
+        session.clear();
+        fireTableDataChanged();
+    }
+
+    public boolean isEmpty() {
+        return session.isEmpty();
+    }
+
+    /**
+     * @return The running bill total in paisa.
+     */
+    public long getTotalPaisa() {
+        return session.getTotalPaisa();
+    }
+
+    /**
+     * @return A copy of the current lines, in the order they were first added.
+     */
+    public List<BillItem> getBillItems() {
+        return session.getLines();
+    }
+
+    @Override
+    public int getRowCount() {
+        return session.getLineCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 3 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        BillItem line = session.getLine(row);
+        switch (column) {
+            case 0: return line.getItem().getId();
+            case 1: return line.getItem().getName();
+            case 2: return Money.format(line.getItem().getPricePaisa());
+            case 3: return line.getQuantity();
+            case 4: return Money.format(line.getSubtotal());
+            default: throw new IndexOutOfBoundsException("Column " + column);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package supermarket.view;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import supermarket.functionality.Inventory;
+import supermarket.functionality.Item;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.Money;
+
+/**
+ * Table model showing the {@link ItemCatalog} in AdminFrame, however large it is.
+ * It holds only an array of references to the catalog's own (immutable) Item instances; cell values are made
+ * when JTable asks for them, which is only for the rows being painted. Sorting and filtering are done here
+ * on that array instead of by a row sorter, so no per-row objects are created for them either.
+ * The Stock column is read live from the {@link Inventory}.
+ * Must only be used on the Event Dispatch Thread.
+ */
+public class CatalogTableModel extends AbstractTableModel {
+    public static final int ID_COLUMN = 0;
+    public static final int NAME_COLUMN = 1;
+    public static final int PRICE_COLUMN = 2;
+    public static final int STOCK_COLUMN = 3;
+    public static final int UNSORTED = -1;
+
+    private static final String[] COLUMN_NAMES = {"Item ID", "Name", "Price (PKR)", "Stock"};
+
+    private final ItemCatalog catalog;
+    private final Inventory inventory;
+    private Item[] allItems = new Item[0];   // Catalog order; allCount used
+    private int allCount;
+    private Item[] rows = new Item[0];       // Filtered and sorted view; rowCount used
+    private int rowCount;
+    private String filter = "";
+    private int sortColumn = UNSORTED;
+    private boolean ascending = true;
+
+    public CatalogTableModel(ItemCatalog catalog, Inventory inventory) {
+        this.catalog = catalog;
+        this.inventory = inventory;
+    }
+
+    /**
+     * Takes a fresh copy of the catalog's item references. Call after the catalog was (re)loaded.
+     */
+    public void reload() {
+        reload(catalog.toItemArray());
+    }
+
+    /**
+     * Shows items taken with {@link ItemCatalog#toItemArray()}, which for a large catalog is best done off the EDT.
+     * The model keeps the array.
+     */
+    public void reload(Item[] items) {
+        allItems = items;
+        allCount = allItems.length;
+        rebuildView();
+    }
+
+    /**
+     * Empties the table, before streaming a load into it with {@link #appendLoaded(List)}.
+     */
+    public void clear() {
+        allItems = new Item[0];
+        allCount = 0;
+        rows = new Item[0];
+        rowCount = 0;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Appends items as they are read during a load, in file order even if the table is sorted.
+     * Call {@link #reload()} when the load is done to sort them and pick up journal changes.
+     */
+    public void appendLoaded(List<Item> items) {
+        if (allCount + items.size() > allItems.length) {
+            allItems = Arrays.copyOf(allItems, Math.max(allCount + items.size(), allCount * 2));
+        }
+        if (rowCount + items.size() > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(rowCount + items.size(), rowCount * 2));
+        }
+        int firstRow = rowCount;
+        for (Item item : items) {
+            allItems[allCount++] = item;
+            if (matchesFilter(item)) {
+                rows[rowCount++] = item;
+            }
+        }
+        if (rowCount > firstRow) {
+            fireTableRowsInserted(firstRow, rowCount - 1);
+        }
+    }
+
+    public Item getItemAt(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Shows only the items whose ID or name contains the text, ignoring case. Empty shows all items.
+     */
+    public void setFilter(String text) {
+        text = text == null ? "" : text.trim();
+        if (text.equals(filter)) {
+            return;
+        }
+        boolean narrowing = !filter.isEmpty() && containsIgnoreCase(text, filter);
+        filter = text;
+        if (narrowing) { // Typing on: only the rows shown can still match, and they are already sorted
+            int kept = 0;
+            for (int i = 0; i < rowCount; i++) {
+                if (matchesFilter(rows[i])) {
+                    rows[kept++] = rows[i];
+                }
+            }
+            Arrays.fill(rows, kept, rowCount, null);
+            rowCount = kept;
+            fireTableDataChanged();
+        } else {
+            rebuildView();
+        }
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sorts by a column; sorting by the current sort column again reverses the order.
+     */
+    public void sortBy(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        if (sortColumn != UNSORTED) {
+            Arrays.sort(rows, 0, rowCount, rowOrder());
+        } else {
+            rebuildView(); // Back to catalog order
+            return;
+        }
+        fireTableDataChanged();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // --- Catalog changes, one row at a time ---
+
+    public void itemAdded(Item item) {
+        if (allCount == allItems.length) {
+            allItems = Arrays.copyOf(allItems, Math.max(16, allCount * 2));
+        }
+        allItems[allCount++] = item;
+        if (matchesFilter(item)) {
+            insertRow(item);
+        }
+    }
+
+    public void itemRemoved(Item item) {
+        int index = indexOf(allItems, allCount, item);
+        if (index >= 0) {
+            System.arraycopy(allItems, index + 1, allItems, index, allCount - index - 1);
+            allItems[--allCount] = null;
+        }
+        int row = indexOf(rows, rowCount, item);
+        if (row >= 0) {
+            removeRow(row);
+        }
+    }
+
+    public void itemUpdated(Item oldItem, Item newItem) {
+        int index = indexOf(allItems, allCount, oldItem);
+        if (index >= 0) {
+            allItems[index] = newItem;
+        }
+        int row = indexOf(rows, rowCount, oldItem);
+        if (row < 0) {
+            return;
+        }
+        if (sortColumn == UNSORTED) {
+            rows[row] = newItem;
+            fireTableRowsUpdated(row, row);
+        } else { // May have moved
+            removeRow(row);
+            insertRow(newItem);
+        }
+    }
+
+    private void insertRow(Item item) {
+        int row = rowCount;
+        if (sortColumn == STOCK_COLUMN) {
+            // Stock changes without events, so the rows are only roughly in order and cannot be binary searched
+            Comparator<Item> order = rowOrder();
+            row = 0;
+            while (row < rowCount && order.compare(rows[row], item) <= 0) {
+                row++;
+            }
+        } else if (sortColumn != UNSORTED) {
+            row = Arrays.binarySearch(rows, 0, rowCount, item, rowOrder());
+            row = row < 0 ? -row - 1 : row;
+        }
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(16, rowCount * 2));
+        }
+        System.arraycopy(rows, row, rows, row + 1, rowCount - row);
+        rows[row] = item;
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    private void removeRow(int row) {
+        System.arraycopy(rows, row + 1, rows, row, rowCount - row - 1);
+        rows[--rowCount] = null;
+        fireTableRowsDeleted(row, row);
+    }
+
+    // Items are replaced, never changed, so identity finds the right one; a reference scan takes well under
+    // a millisecond even for a million rows, and stays correct while stock (a sort key) changes
+    private static int indexOf(Item[] items, int count, Item item) {
+        for (int i = 0; i < count; i++) {
+            if (items[i] == item) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void rebuildView() {
+        if (filter.isEmpty()) {
+            rows = Arrays.copyOf(allItems, allCount);
+            rowCount = allCount;
+        } else {
+            rows = new Item[Math.min(allCount, 1024)];
+            rowCount = 0;
+            for (int i = 0; i < allCount; i++) {
+                if (matchesFilter(allItems[i])) {
+                    if (rowCount == rows.length) {
+                        rows = Arrays.copyOf(rows, rowCount * 2);
+                    }
+                    rows[rowCount++] = allItems[i];
+                }
+            }
+        }
+        if (sortColumn != UNSORTED) {
+            Arrays.sort(rows, 0, rowCount, rowOrder());
+        }
+        fireTableDataChanged();
+    }
+
+    private boolean matchesFilter(Item item) {
+        return filter.isEmpty() || containsIgnoreCase(item.getName(), filter) || containsIgnoreCase(item.getId(), filter);
+    }
+
+    // Allocation-free, unlike lower-casing every name for every keystroke
+    private static boolean containsIgnoreCase(String text, String part) {
+        char firstLower = Character.toLowerCase(part.charAt(0));
+        char firstUpper = Character.toUpperCase(part.charAt(0));
+        for (int start = 0; start <= text.length() - part.length(); start++) {
+            char c = text.charAt(start);
+            if ((c == firstLower || c == firstUpper) && text.regionMatches(true, start, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Comparator<Item> rowOrder() {
+        Comparator<Item> order;
+        switch (sortColumn) {
+            case NAME_COLUMN: order = Comparator.comparing(Item::getName, String.CASE_INSENSITIVE_ORDER); break;
+            case PRICE_COLUMN: order = Comparator.comparingLong(Item::getPricePaisa); break;
+            case STOCK_COLUMN: order = Comparator.comparingLong(item -> inventory.getOnHand(item.getId())); break;
+            default: order = (a, b) -> 0; break;
+        }
+        order = order.thenComparing(Item::getId); // A total order, so inserts land in a definite place
+        return ascending ? order : order.reversed();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Item item = rows[row];
+        switch (column) {
+            case ID_COLUMN: return item.getId();
+            case NAME_COLUMN: return item.getName();
+            case PRICE_COLUMN: return Money.format(item.getPricePaisa());
+            case STOCK_COLUMN:
+                long onHand = inventory.getOnHand(item.getId());
+                return onHand == Inventory.NOT_TRACKED ? "" : Long.toString(onHand);
+            default: throw new IndexOutOfBoundsException("Column " + column);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package supermarket.view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.beans.PropertyChangeListener;
+
+/**
+ * A "Loading..." label, progress bar and Cancel button for a {@link BackgroundLoader}.
+ * Hidden except while a load runs.
+ */
+class LoadProgressPanel extends JPanel {
+    private final JLabel label;
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton cancelButton = new JButton("Cancel");
+    private final PropertyChangeListener progressListener = e -> {
+        if ("progress".equals(e.getPropertyName())) {
+            progressBar.setValue((Integer) e.getNewValue());
+        }
+    };
+    private BackgroundLoader<?> loader;
+
+    /**
+     * @param text E.g. "Loading items...".
+     * @param cancellable Whether to offer a Cancel button.
+     */
+    LoadProgressPanel(String text, boolean cancellable) {
+        super(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        label = new JLabel(text);
+        progressBar.setStringPainted(true);
+        add(label);
+        add(progressBar);
+        if (cancellable) {
+            add(cancelButton);
+        }
+        cancelButton.addActionListener(e -> {
+            if (loader != null) {
+                loader.cancel(false); // Stops at the next chunk; interrupting could close the files mid-read
+            }
+        });
+        setVisible(false);
+    }
+
+    void track(BackgroundLoader<?> newLoader) {
+        if (loader != null) {
+            loader.removePropertyChangeListener(progressListener);
+        }
+        loader = newLoader;
+        loader.addPropertyChangeListener(progressListener);
+        progressBar.setValue(0);
+        setVisible(true);
+    }
+
+    void finished(BackgroundLoader<?> finishedLoader) {
+        finishedLoader.removePropertyChangeListener(progressListener);
+        if (finishedLoader == loader) {
+            loader = null;
+            setVisible(false);
+        }
+    }
+}
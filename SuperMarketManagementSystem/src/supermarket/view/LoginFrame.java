@@ -5,6 +5,11 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import supermarket.functionality.Metrics;
+import supermarket.functionality.PasswordHasher;
+import supermarket.functionality.PosEngine;
 import supermarket.functionality.User; // Import User from functionality package
 // AdminFrame and SellerFrame are in the same 'view' package, so direct import not strictly needed
 // but can be explicit:
@@ -14,7 +19,10 @@ import supermarket.functionality.User; // Import User from functionality package
 
 /**
  * The login window for the Supermarket Management System.
- * Handles user authentication by reading from users.txt.
+ * Handles user authentication against the users in users.txt (via UserRepository).
+ * Passwords are verified against salted hashes on a background thread.
+ * The window is shown before any file is read: users.txt and then the item catalog are read in the
+ * background while the user types, so the seller panel opens ready to scan.
  * Updated for new package structure.
  */
 public class LoginFrame extends JFrame {
@@ -22,6 +30,7 @@ public class LoginFrame extends JFrame {
     private JPasswordField passwordField;
     private JButton loginButton;
     private JButton exitButton;
+    private final CountDownLatch usersReady = new CountDownLatch(1); // users.txt exists and is loaded (or failed to)
 
     private static final String USERS_FILE_PATH = "users.txt"; // Path relative to execution directory
 
@@ -32,8 +41,6 @@ public class LoginFrame extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new GridBagLayout());
 
-        createDefaultAdminIfNotExists();
-
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10);
         gbc.fill = GridBagConstraints.HORIZONTAL;
@@ -73,7 +80,7 @@ public class LoginFrame extends JFrame {
             @Override
             public void actionPerformed(ActionEvent e) {
                 String username = usernameField.getText().trim();
-                String password = new String(passwordField.getPassword()).trim();
+                char[] password = PasswordHasher.trim(passwordField.getPassword()); // Never a String, so it can be cleared
                 authenticateAndProceed(username, password);
             }
         });
@@ -84,60 +91,112 @@ public class LoginFrame extends JFrame {
                 System.exit(0);
             }
         });
+
+        preloadInBackground();
     }
 
-    private void createDefaultAdminIfNotExists() {
-        File usersFile = new File(USERS_FILE_PATH);
-        if (!usersFile.exists()) {
-            try (PrintWriter writer = new PrintWriter(new FileWriter(usersFile))) {
-                User defaultAdmin = new User("admin", "password123", "admin");
-                writer.println(defaultAdmin.toCSVString());
-                System.out.println(USERS_FILE_PATH + " not found. Created with default admin (admin/password123).");
+    /**
+     * Loads the user repository while the login form is shown, off the Event Dispatch Thread; logins wait
+     * only for that. The item catalog is prefetched afterwards, so it is usually loaded by the time the
+     * login succeeds. Plain-text credentials left by older versions are hashed on a separate low-priority
+     * thread, as each hash takes as long as a login.
+     */
+    private void preloadInBackground() {
+        Thread preloader = new Thread(() -> {
+            PosEngine engine = PosEngine.getInstance();
+            try {
+                createDefaultAdminIfNotExists();
+                engine.getUserRepository().ensureLoaded();
             } catch (IOException ex) {
-                System.err.println("Error creating default " + USERS_FILE_PATH + ": " + ex.getMessage());
-                JOptionPane.showMessageDialog(this,
-                        "Critical Error: Could not create user data file.",
-                        "File Creation Error", JOptionPane.ERROR_MESSAGE);
+                // Reported to the user on the next login attempt
+                System.err.println("Error preloading " + USERS_FILE_PATH + ": " + ex.getMessage());
+                return;
+            } finally {
+                usersReady.countDown();
             }
-        }
+            Thread upgrader = new Thread(this::hashLegacyPasswords, "legacy-password-upgrade");
+            upgrader.setDaemon(true);
+            upgrader.setPriority(Thread.MIN_PRIORITY);
+            upgrader.start();
+            Metrics.getInstance(); // Registers with JMX, which is slow the first time
+            engine.prefetchCatalog();
+        }, "user-preload");
+        preloader.setDaemon(true);
+        preloader.start();
     }
 
-    private void authenticateAndProceed(String username, String password) {
-        if (username.isEmpty() || password.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Username and Password cannot be empty.", "Login Error", JOptionPane.ERROR_MESSAGE);
-            return;
+    private void hashLegacyPasswords() {
+        int upgraded = PosEngine.getInstance().getUserRepository().hashLegacyPasswords();
+        if (upgraded > 0) {
+            System.out.println("Hashed " + upgraded + " plain-text password(s) in " + USERS_FILE_PATH + ".");
         }
+    }
 
-        User authenticatedUser = null;
-        File usersFile = new File(USERS_FILE_PATH);
+    private void createDefaultAdminIfNotExists() {
+        try {
+            PosEngine.getInstance().createDefaultAdminIfMissing();
+        } catch (IOException ex) {
+            System.err.println("Error creating default " + USERS_FILE_PATH + ": " + ex.getMessage());
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                    "Critical Error: Could not create user data file.",
+                    "File Creation Error", JOptionPane.ERROR_MESSAGE));
+        }
+    }
 
-        if (!usersFile.exists()) {
-            JOptionPane.showMessageDialog(this, "User data file not found. Please restart or contact support.", "Login Error", JOptionPane.ERROR_MESSAGE);
+    private void authenticateAndProceed(String username, char[] password) {
+        if (username.isEmpty() || password.length == 0) {
+            JOptionPane.showMessageDialog(this, "Username and Password cannot be empty.", "Login Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(usersFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                User user = User.fromCSVString(line); // User class is now in functionality package
-                if (user != null && user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                    authenticatedUser = user;
-                    break;
+        // Password hashing is slow by design, so verify on a worker thread and keep the EDT responsive
+        long start = System.nanoTime();
+        loginButton.setEnabled(false);
+        new SwingWorker<User, Void>() {
+            @Override
+            protected User doInBackground() throws IOException, InterruptedException {
+                usersReady.await(); // users.txt may still be being created
+                PosEngine engine = PosEngine.getInstance();
+                if (!engine.getUserRepository().getUsersFile().exists()) {
+                    throw new FileNotFoundException(USERS_FILE_PATH);
                 }
+                return engine.login(username, password); // Clears the password
             }
-        } catch (FileNotFoundException ex) {
-            JOptionPane.showMessageDialog(this, "User data file not found unexpectedly.", "File Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Error reading user data: " + ex.getMessage(), "File Read Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
 
+            @Override
+            protected void done() {
+                loginButton.setEnabled(true);
+                Metrics metrics = Metrics.getInstance();
+                metrics.latency(Metrics.LOGIN).recordSince(start);
+                User authenticatedUser;
+                try {
+                    authenticatedUser = get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    metrics.increment(Metrics.LOGINS_FAILED);
+                    if (ex.getCause() instanceof FileNotFoundException) {
+                        JOptionPane.showMessageDialog(LoginFrame.this, "User data file not found. Please restart or contact support.", "Login Error", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(LoginFrame.this, "Error reading user data: " + ex.getCause().getMessage(), "File Read Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
+                if (authenticatedUser == null) {
+                    metrics.increment(Metrics.LOGINS_FAILED);
+                }
+                proceed(authenticatedUser);
+            }
+        }.execute();
+    }
+
+    private void proceed(User authenticatedUser) {
         if (authenticatedUser != null) {
             JOptionPane.showMessageDialog(this, "Login Successful! Welcome " + authenticatedUser.getUsername() + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
-            if ("admin".equalsIgnoreCase(authenticatedUser.getRole())) {
+            if (PosEngine.ADMIN_ROLE.equalsIgnoreCase(authenticatedUser.getRole())) {
                 new AdminFrame(authenticatedUser).setVisible(true); // AdminFrame is in the same view package
-            } else if ("seller".equalsIgnoreCase(authenticatedUser.getRole())) {
+            } else if (PosEngine.SELLER_ROLE.equalsIgnoreCase(authenticatedUser.getRole())) {
                 new SellerFrame(authenticatedUser).setVisible(true); // SellerFrame is in the same view package
             } else {
                 JOptionPane.showMessageDialog(this, "Unknown user role: " + authenticatedUser.getRole(), "Role Error", JOptionPane.ERROR_MESSAGE);
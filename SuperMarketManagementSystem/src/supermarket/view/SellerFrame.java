@@ -1,47 +1,70 @@
 package supermarket.view;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
 import java.awt.*;
-import java.io.*;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 // UUID is not used for Bill ID
 
+import supermarket.functionality.CatalogListener;
 import supermarket.functionality.Item;
+import supermarket.functionality.ItemCatalog;
+import supermarket.functionality.LatencyHistogram;
+import supermarket.functionality.Metrics;
+import supermarket.functionality.Money;
+import supermarket.functionality.PosEngine;
 import supermarket.functionality.User;
-import supermarket.functionality.BillItem;
+import supermarket.functionality.Bill;
 
 /**
  * Seller panel for creating bills.
- * Simplified Bill ID Generation: Timestamp-based.
+ * A thin client of PosEngine: the bill being built is a BillSession shown through BillTableModel.
+ * Price changes and deletions made by the admin, in this or another process, reach the open bill and
+ * the item search through a CatalogListener, without the seller logging in again.
+ * The panel opens at once and loads the items in the background; barcodes scanned meanwhile are
+ * added to the bill as soon as the items are loaded.
  * Currency updated to PKR.
  */
 public class SellerFrame extends JFrame {
+    // The drop-down shows only the best matches; the seller narrows them down by typing
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     private User sellerUser;
+    private final PosEngine engine;
+    private final ItemCatalog catalog;
+    private final Metrics metrics = Metrics.getInstance();
+    private final LatencyHistogram addToBillLatency = metrics.latency(Metrics.ADD_TO_BILL);
+    private final LatencyHistogram checkoutLatency = metrics.latency(Metrics.CHECKOUT);
+    private JTextField scanField;
+    private final Segment scanText = new Segment(); // Reused for every scan, so reading the barcode allocates nothing
+    private JTextField searchField;
     private JComboBox<Item> itemComboBox;
     private JSpinner quantitySpinner;
     private JButton addItemToBillButton;
-    private JTextArea billTextArea;
+    private JTable billTable;
+    private BillTableModel billTableModel;
     private JButton generateBillButton;
     private JButton clearBillButton;
     private JLabel totalAmountLabel;
-
-    private List<Item> availableItemsList;
-    private List<BillItem> currentBillItemsList;
-
-    private static final String ITEMS_FILE_PATH = "items.txt";
-    private static final String BILLS_FILE_PATH = "bills.txt";
-    private static final String BILL_ID_PREFIX_IN_FILE = "Bill ID: ";
+    private LoadProgressPanel loadProgressPanel;
+    private boolean itemsLoaded;
+    private final List<String> pendingScans = new ArrayList<>(); // Scanned before the items were loaded
+    private final CatalogListener catalogListener = new SellerCatalogListener();
 
     public SellerFrame(User sellerUser) {
         this.sellerUser = sellerUser;
-        this.availableItemsList = new ArrayList<>();
-        this.currentBillItemsList = new ArrayList<>();
+        this.engine = PosEngine.getInstance();
+        this.catalog = engine.getCatalog();
+        this.billTableModel = new BillTableModel(engine.openBill(sellerUser));
 
         setTitle("Seller Panel - Welcome " + sellerUser.getUsername());
-        setSize(750, 650);
+        setSize(750, 700);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
@@ -50,9 +73,15 @@ public class SellerFrame extends JFrame {
         JPanel selectionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
         selectionPanel.setBorder(BorderFactory.createTitledBorder("Add Item to Bill"));
 
+        selectionPanel.add(new JLabel("Search:"));
+        searchField = new JTextField();
+        searchField.setPreferredSize(new Dimension(140, 25));
+        searchField.setToolTipText("Type the start of any word of the item name, or its ID");
+        selectionPanel.add(searchField);
+
         selectionPanel.add(new JLabel("Select Item:"));
         itemComboBox = new JComboBox<>();
-        itemComboBox.setPreferredSize(new Dimension(300, 25));
+        itemComboBox.setPreferredSize(new Dimension(220, 25));
         selectionPanel.add(itemComboBox);
 
         selectionPanel.add(new JLabel("Quantity:"));
@@ -74,13 +103,26 @@ public class SellerFrame extends JFrame {
         selectionPanel.add(Box.createHorizontalStrut(20));
         selectionPanel.add(logoutButton);
 
-        add(selectionPanel, BorderLayout.NORTH);
-
-        billTextArea = new JTextArea(15, 50);
-        billTextArea.setEditable(false);
-        billTextArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
-        JScrollPane billScrollPane = new JScrollPane(billTextArea);
-        billScrollPane.setBorder(BorderFactory.createTitledBorder("Current Bill / Receipt"));
+        // Barcode scanners type the item ID followed by Enter into the focused field
+        JPanel scanPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
+        scanPanel.setBorder(BorderFactory.createTitledBorder("Scan Barcode"));
+        scanPanel.add(new JLabel("Item ID:"));
+        scanField = new JTextField();
+        scanField.setPreferredSize(new Dimension(220, 25));
+        scanField.setToolTipText("Scan or type an item ID and press Enter to add one of that item");
+        scanPanel.add(scanField);
+        loadProgressPanel = new LoadProgressPanel("Loading items...", false); // A till cannot sell without them
+        scanPanel.add(loadProgressPanel);
+
+        JPanel topPanel = new JPanel(new GridLayout(2, 1));
+        topPanel.add(scanPanel);
+        topPanel.add(selectionPanel);
+        add(topPanel, BorderLayout.NORTH);
+
+        billTable = new JTable(billTableModel);
+        billTable.setFillsViewportHeight(true);
+        JScrollPane billScrollPane = new JScrollPane(billTable);
+        billScrollPane.setBorder(BorderFactory.createTitledBorder("Current Bill"));
         add(billScrollPane, BorderLayout.CENTER);
 
         JPanel bottomControlsPanel = new JPanel(new BorderLayout(10, 5));
@@ -104,36 +146,108 @@ public class SellerFrame extends JFrame {
         add(bottomControlsPanel, BorderLayout.SOUTH);
 
         addItemToBillButton.addActionListener(e -> handleAddItemToBill());
+        scanField.addActionListener(e -> handleScan());
+        searchField.addActionListener(e -> handleAddItemToBill()); // Enter adds the best match
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refreshSearchResults();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refreshSearchResults();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refreshSearchResults();
+            }
+        });
         generateBillButton.addActionListener(e -> handleGenerateAndSaveBill());
         clearBillButton.addActionListener(e -> handleClearBill());
 
+        setItemControlsEnabled(false);
         loadAvailableItems();
-        updateBillDisplay();
     }
 
+    private void setItemControlsEnabled(boolean enabled) {
+        searchField.setEnabled(enabled);
+        itemComboBox.setEnabled(enabled);
+        addItemToBillButton.setEnabled(enabled);
+        generateBillButton.setEnabled(enabled);
+    }
+
+    /**
+     * Loads the items off the Event Dispatch Thread, usually finding them already prefetched at login.
+     */
     private void loadAvailableItems() {
-        availableItemsList.clear();
-        itemComboBox.removeAllItems();
-        File itemsFile = new File(ITEMS_FILE_PATH);
-        if (!itemsFile.exists()) {
-            JOptionPane.showMessageDialog(this, "Items data file not found.", "File Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        try (BufferedReader reader = new BufferedReader(new FileReader(itemsFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Item item = Item.fromCSVString(line);
-                if (item != null) {
-                    availableItemsList.add(item);
-                    itemComboBox.addItem(item);
+        long start = System.nanoTime();
+        new BackgroundLoader<Item>(loadProgressPanel) {
+            @Override
+            protected void load() throws IOException {
+                catalog.ensureLoaded(this); // Only the first frame in this process reads items.txt
+                engine.getInventory().ensureLoaded(); // So checkouts cannot sell more than is in stock
+            }
+
+            @Override
+            protected void addChunk(List<Item> chunk) {
+                // Nothing to show until the search works, which needs the whole catalog
+            }
+
+            @Override
+            protected void failed(Throwable cause) {
+                metrics.increment(Metrics.CATALOG_LOADS_FAILED);
+                JOptionPane.showMessageDialog(SellerFrame.this, "Error loading items: " + cause.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
+            }
+
+            @Override
+            protected void loaded() {
+                if (!isDisplayable()) {
+                    return; // Closed while loading
                 }
+                itemsLoaded = true;
+                setItemControlsEnabled(true);
+                refreshSearchResults();
+                addPendingScans();
+                metrics.latency(Metrics.CATALOG_LOAD).recordSince(start);
+                catalog.addCatalogListener(catalogListener);
+                catalog.startWatching(); // Picks up changes made by other tills and admin windows
+            }
+        }.start();
+    }
+
+    private void addPendingScans() {
+        for (String barcode : pendingScans) {
+            Item scannedItem = catalog.findByScan(barcode);
+            if (scannedItem == null) {
+                metrics.increment(Metrics.UNKNOWN_SCANS);
+                Toolkit.getDefaultToolkit().beep();
+            } else {
+                billTableModel.addItem(scannedItem, 1);
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading items: " + e.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
         }
+        pendingScans.clear();
+        updateTotalLabel();
+    }
+
+    @Override
+    public void dispose() {
+        catalog.removeCatalogListener(catalogListener);
+        super.dispose();
+    }
+
+    /**
+     * Replaces the drop-down contents with the items matching the search text.
+     * Only a bounded number of matches is ever put into the combo box, however large the catalog.
+     */
+    private void refreshSearchResults() {
+        List<Item> matches = catalog.search(searchField.getText(), MAX_SEARCH_RESULTS);
+        itemComboBox.setModel(new DefaultComboBoxModel<>(matches.toArray(new Item[0])));
     }
 
     private void handleAddItemToBill() {
+        long start = System.nanoTime();
         Item selectedItem = (Item) itemComboBox.getSelectedItem();
         if (selectedItem == null) {
             JOptionPane.showMessageDialog(this, "Please select an item.", "Selection Error", JOptionPane.WARNING_MESSAGE);
@@ -144,99 +258,178 @@ public class SellerFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Quantity must be at least 1.", "Input Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        currentBillItemsList.add(new BillItem(selectedItem, quantity));
-        updateBillDisplay();
+        int row = billTableModel.addItem(selectedItem, quantity); // Repeated items merge into one line
+        billTable.scrollRectToVisible(billTable.getCellRect(row, 0, true));
+        updateTotalLabel();
         quantitySpinner.setValue(1);
-        if (itemComboBox.getItemCount() > 0) {
-            itemComboBox.setSelectedIndex(0);
-        }
-    }
-
-    private void updateBillDisplay() {
-        StringBuilder billText = new StringBuilder();
-        double currentTotal = 0.0;
-        if (currentBillItemsList.isEmpty()) {
-            billText.append("<<< Add items to start a new bill >>>");
-        } else {
-            billText.append(String.format("%-15s %-25s %-13s %-5s %-15s\n", "Item ID", "Item Name", "Price(PKR)", "Qty", "Subtotal(PKR)")); // Adjusted for potentially longer timestamp ID
-            billText.append("---------------------------------------------------------------------------------\n");
-            for (BillItem billItem : currentBillItemsList) {
-                billText.append(String.format("%-15s %-25.25s PKR %-10.2f %-5d PKR %-12.2f\n",
-                        billItem.getItem().getId(),
-                        billItem.getItem().getName(),
-                        billItem.getItem().getPrice(),
-                        billItem.getQuantity(),
-                        billItem.getSubtotal()));
-                currentTotal += billItem.getSubtotal();
-            }
-            billText.append("---------------------------------------------------------------------------------\n");
-        }
-        billTextArea.setText(billText.toString());
-        totalAmountLabel.setText(String.format("Total: PKR %.2f", currentTotal));
+        searchField.setText(""); // Ready for the next item
+        addToBillLatency.recordSince(start);
+        scanField.requestFocusInWindow();
     }
 
     /**
-     * Generates a unique bill ID using timestamp and a random number.
-     * @return A unique bill ID as a String.
+     * Adds one of the scanned item to the bill. Scanners send bursts of reads, so an unknown code
+     * beeps and stays selected for correction instead of opening a dialog that would swallow the next scans.
      */
-    private String generateNewBillId() {
-        return System.currentTimeMillis() + "-" + (int)(Math.random()*1000);
+    private void handleScan() {
+        long start = System.nanoTime();
+        Document document = scanField.getDocument();
+        try {
+            document.getText(0, document.getLength(), scanText);
+        } catch (BadLocationException e) {
+            return; // Cannot happen: the range is the whole document
+        }
+        trimScanText();
+        if (scanText.count == 0) {
+            return;
+        }
+        if (!itemsLoaded) {
+            pendingScans.add(scanText.toString());
+            scanField.setText("");
+            return;
+        }
+        Item scannedItem = catalog.findByScan(scanText);
+        if (scannedItem == null) {
+            metrics.increment(Metrics.UNKNOWN_SCANS);
+            Toolkit.getDefaultToolkit().beep();
+            scanField.selectAll();
+            return;
+        }
+        int row = billTableModel.addItem(scannedItem, 1);
+        billTable.scrollRectToVisible(billTable.getCellRect(row, 0, true));
+        updateTotalLabel();
+        scanField.setText("");
+        addToBillLatency.recordSince(start);
+    }
+
+    // Scanners may add a leading or trailing space or tab
+    private void trimScanText() {
+        while (scanText.count > 0 && scanText.array[scanText.offset] <= ' ') {
+            scanText.offset++;
+            scanText.count--;
+        }
+        while (scanText.count > 0 && scanText.array[scanText.offset + scanText.count - 1] <= ' ') {
+            scanText.count--;
+        }
+    }
+
+    private void updateTotalLabel() {
+        totalAmountLabel.setText("Total: PKR " + Money.format(billTableModel.getTotalPaisa()));
     }
 
     private void handleGenerateAndSaveBill() {
-        if (currentBillItemsList.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Cannot generate an empty bill.", "Billing Error", JOptionPane.WARNING_MESSAGE);
+        long start = System.nanoTime();
+        Bill bill;
+        try {
+            bill = engine.checkout(billTableModel.getSession()); // Empties the session for the next customer
+        } catch (IllegalArgumentException e) {
+            metrics.increment(Metrics.BILLS_REFUSED);
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Billing Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        billTableModel.refresh();
+        updateTotalLabel();
+        commitBill(bill, start);
+    }
+
+    // Saved on the bill-writer thread; the EDT only reacts once the bill is durable
+    private void commitBill(Bill bill, long start) {
+        generateBillButton.setEnabled(false);
+        engine.commit(bill).whenComplete((savedBill, error) -> SwingUtilities.invokeLater(() -> {
+            generateBillButton.setEnabled(true);
+            checkoutLatency.recordSince(start); // Click to durable, before the receipt dialog
+            metrics.increment(error == null ? Metrics.BILLS_SAVED : Metrics.BILL_SAVES_FAILED);
+            if (error != null) {
+                handleUnsavedBill(bill, error);
+                return;
+            }
+            showReceipt(savedBill);
+        }));
+    }
+
+    /**
+     * Nothing is lost when a bill cannot be saved, but it is never merged into the next customer's bill:
+     * it goes back on the till only if the till is still empty. Otherwise the seller retries or voids it.
+     */
+    private void handleUnsavedBill(Bill bill, Throwable error) {
+        if (engine.reopen(billTableModel.getSession(), bill)) { // The seller can retry with Generate Bill
+            billTableModel.refresh();
+            updateTotalLabel();
+            JOptionPane.showMessageDialog(this, "Error saving bill to file: " + error.getMessage(), "File Save Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        Object[] options = {"Retry Saving", "Void Bill"};
+        int choice = JOptionPane.showOptionDialog(this,
+                "Error saving bill " + bill.getBillId() + " (PKR " + Money.format(bill.getTotal()) + ") to file: " + error.getMessage()
+                        + "\nThe next customer's bill is already open, so it was not put back on the till.",
+                "File Save Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE, null, options, options[0]);
+        if (choice == 1) {
+            engine.voidUnsaved(bill);
+        } else { // Closing the dialog retries too, so the sale cannot be dropped by accident
+            commitBill(bill, System.nanoTime());
+        }
+    }
 
-        String billId = generateNewBillId(); // Use simplified timestamp-based ID
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        String billDate = dateFormat.format(new Date());
-        double finalTotalAmount = currentBillItemsList.stream().mapToDouble(BillItem::getSubtotal).sum();
+    /**
+     * Shows the printable receipt of a saved bill. The text is only rendered here, on demand.
+     */
+    private void showReceipt(Bill savedBill) {
+        JTextArea receiptTextArea = new JTextArea(savedBill.toReceiptText(), 20, 60);
+        receiptTextArea.setEditable(false);
+        receiptTextArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
+        JOptionPane.showMessageDialog(this, new JScrollPane(receiptTextArea),
+                "Bill (ID: " + savedBill.getBillId() + ") generated and saved successfully!", JOptionPane.INFORMATION_MESSAGE);
+    }
 
-        StringBuilder receiptBuilder = new StringBuilder();
-        receiptBuilder.append("==========================================================\n");
-        receiptBuilder.append("                     SUPERMARKET RECEIPT                  \n");
-        receiptBuilder.append("==========================================================\n");
-        receiptBuilder.append(BILL_ID_PREFIX_IN_FILE).append(billId).append("\n");
-        receiptBuilder.append("Seller:  ").append(sellerUser.getUsername()).append("\n");
-        receiptBuilder.append("Date:    ").append(billDate).append("\n");
-        receiptBuilder.append("----------------------------------------------------------\n");
-        receiptBuilder.append(String.format("%-15s %-25s %-5s %-13s %-13s\n", "Item ID", "Item Name", "Qty", "Price (PKR)", "Amount (PKR)"));
-        receiptBuilder.append("----------------------------------------------------------\n");
+    /**
+     * Applies catalog changes to this till. Events arrive on the thread that made the change
+     * (or on the catalog watcher), so all work is handed to the Event Dispatch Thread.
+     */
+    private class SellerCatalogListener implements CatalogListener {
+        @Override
+        public void itemAdded(Item item) {
+            SwingUtilities.invokeLater(SellerFrame.this::refreshSearchResults);
+        }
 
-        for (BillItem bi : currentBillItemsList) {
-            receiptBuilder.append(String.format("%-15s %-25.25s %-5d PKR %-10.2f PKR %-10.2f\n",
-                    bi.getItem().getId(),
-                    bi.getItem().getName(),
-                    bi.getQuantity(),
-                    bi.getItem().getPrice(),
-                    bi.getSubtotal()));
+        @Override
+        public void itemRemoved(Item item) {
+            SwingUtilities.invokeLater(() -> {
+                refreshSearchResults();
+                if (billTableModel.removeItem(item)) {
+                    updateTotalLabel();
+                    JOptionPane.showMessageDialog(SellerFrame.this,
+                            "Item '" + item.getName() + "' was deleted from the catalog and has been removed from the bill.",
+                            "Item Removed", JOptionPane.WARNING_MESSAGE);
+                }
+            });
         }
-        receiptBuilder.append("----------------------------------------------------------\n");
-        receiptBuilder.append(String.format("%48s PKR %.2f\n", "TOTAL AMOUNT: ", finalTotalAmount));
-        receiptBuilder.append("==========================================================\n");
-        receiptBuilder.append("                 Thank you for your purchase!             \n");
-        receiptBuilder.append("==========================================================\n\n");
 
-        String finalReceipt = receiptBuilder.toString();
-        billTextArea.setText(finalReceipt);
+        @Override
+        public void itemUpdated(Item oldItem, Item newItem) {
+            SwingUtilities.invokeLater(() -> {
+                refreshSearchResults();
+                if (billTableModel.updateItem(newItem)) {
+                    updateTotalLabel();
+                }
+            });
+        }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(BILLS_FILE_PATH, true))) {
-            writer.print(finalReceipt);
-            JOptionPane.showMessageDialog(this, "Bill (ID: " + billId + ") generated and saved successfully!", "Bill Saved", JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error saving bill to file: " + e.getMessage(), "File Save Error", JOptionPane.ERROR_MESSAGE);
+        @Override
+        public void catalogReloaded() {
+            SwingUtilities.invokeLater(() -> {
+                billTableModel.getSession().resync(catalog);
+                billTableModel.refresh();
+                updateTotalLabel();
+                refreshSearchResults();
+            });
         }
     }
 
     private void handleClearBill() {
-        currentBillItemsList.clear();
-        updateBillDisplay();
+        billTableModel.clear();
+        updateTotalLabel();
         quantitySpinner.setValue(1);
-        if (itemComboBox.getItemCount() > 0) {
-            itemComboBox.setSelectedIndex(0);
-        }
+        searchField.setText("");
         JOptionPane.showMessageDialog(this, "Bill cleared.", "Bill Cleared", JOptionPane.INFORMATION_MESSAGE);
     }
 }